@@ -1,6 +1,7 @@
 plugins {
     `java-library`
     kotlin("jvm") version "2.1.20"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "ru.vood.kotkin.rules"
@@ -28,6 +29,22 @@ tasks.withType<JavaCompile> {
     options.encoding = "UTF-8"
 }
 
+// Vector API (VectorKernels) в JDK 21 - инкубаторный модуль. Он нужен только векторным ядрам
+// (src/vector/java) и бенчмаркам, остальная сборка и демо его не подключают и не печатают
+// предупреждение об инкубаторном модуле. ColumnKernels загружает VectorKernels рефлексией,
+// если JVM запущена с модулем; тесты и JavaExec с модулем: ./gradlew test -Pvector
+val vectorModuleArgs = listOf("--add-modules", "jdk.incubator.vector")
+
+if (providers.gradleProperty("vector").isPresent) {
+    tasks.withType<Test> {
+        jvmArgs(vectorModuleArgs)
+    }
+
+    tasks.withType<JavaExec> {
+        jvmArgs(vectorModuleArgs)
+    }
+}
+
 kotlin {
     jvmToolchain(21)
 }
@@ -50,4 +67,44 @@ sourceSets {
             setSrcDirs(listOf("src/test/kotlin", "src/test/java"))
         }
     }
+    named("jmh") {
+        java {
+            setSrcDirs(listOf("src/jmh/kotlin", "src/jmh/java"))
+        }
+        kotlin {
+            setSrcDirs(listOf("src/jmh/kotlin", "src/jmh/java"))
+        }
+    }
+    // Векторные ядра: компилируются поверх main, в main попадают только во время выполнения
+    create("vector") {
+        java {
+            setSrcDirs(listOf("src/vector/java"))
+        }
+        compileClasspath += sourceSets["main"].output
+    }
+}
+
+dependencies {
+    runtimeOnly(sourceSets["vector"].output)
+    "jmhImplementation"(sourceSets["vector"].output)
+}
+
+tasks.named<JavaCompile>("compileVectorJava") {
+    options.compilerArgs.addAll(vectorModuleArgs)
+}
+
+tasks.named<JavaCompile>("compileJmhJava") {
+    options.compilerArgs.addAll(vectorModuleArgs)
+}
+
+tasks.jar {
+    from(sourceSets["vector"].output)
+}
+
+// Бенчмарки: ./gradlew jmh, параметры размера задаются через @Param в самих классах
+jmh {
+    jmhVersion.set("1.37")
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    // Модуль jdk.incubator.vector подключает только ColumnKernelsBenchmark через @Fork(jvmArgsAppend)
 }
\ No newline at end of file
@@ -0,0 +1,152 @@
+package ru.vood.kotkin.rules._010_nulluble.javaP;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Бенчмарк: доступ по nullable-цепочке client.getId().getValue() с значением по умолчанию.
+ *
+ * ternary - ручные проверки из JavaNullSafetyDemo (каждый геттер вызывается дважды)
+ * optional - Optional.ofNullable(...).map(...).orElse(...)
+ * path - NullSafePath, собранный в static final поле: цепочка MethodHandle - константа для JIT
+ * pathMegamorphic - тот же путь, но перед замером прогреты еще несколько путей; у каждого
+ * своя цепочка, поэтому на path это влиять не должно
+ * pathNotConstant - тот же путь из обычного поля: цепочка не константа и не встраивается
+ * Доля null на каждом уровне задается nullPercent; gc-профилировщик показывает аллокации.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NullSafePathBenchmark {
+
+    private static final NullSafePath<ClientNullable, String> CLIENT_ID =
+            NullSafePath.path(ClientNullable::getId, ClientIdNullable::getValue).orElse("default");
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    @Param({"0", "20", "50"})
+    public int nullPercent;
+
+    // Другие пути с теми же шагами - каждая ссылка на метод здесь отдельный класс лямбды
+    private static final List<NullSafePath<ClientNullable, ?>> OTHER_PATHS = List.of(
+            NullSafePath.path(ClientNullable::getId, ClientIdNullable::getValue, String::trim),
+            NullSafePath.path(ClientNullable::getId, ClientIdNullable::getValue, String::strip),
+            NullSafePath.path(ClientNullable::getId, ClientIdNullable::toString),
+            NullSafePath.path(ClientNullable::toString, String::trim),
+            NullSafePath.<ClientNullable, ClientIdNullable>path(client -> client.getId()).then(id -> id.getValue()));
+
+    private List<ClientNullable> clients;
+
+    // Не final - JIT не может считать цепочку константой
+    private NullSafePath<ClientNullable, String> clientIdField = CLIENT_ID;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        clients = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ClientIdNullable id = random.nextInt(100) < nullPercent
+                    ? null
+                    : new ClientIdNullable(random.nextInt(100) < nullPercent ? null : "client-" + i);
+            clients.add(new ClientNullable(id));
+        }
+    }
+
+    @Benchmark
+    public int ternary() {
+        int length = 0;
+        for (ClientNullable client : clients) {
+            String id = (client.getId() != null && client.getId().getValue() != null)
+                    ? client.getId().getValue()
+                    : "default";
+            length += id.length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int optional() {
+        int length = 0;
+        for (ClientNullable client : clients) {
+            String id = Optional.ofNullable(client.getId())
+                    .map(ClientIdNullable::getValue)
+                    .orElse("default");
+            length += id.length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int path() {
+        int length = 0;
+        for (ClientNullable client : clients) {
+            length += CLIENT_ID.get(client).length();
+        }
+        return length;
+    }
+
+    /**
+     * Отдельный State: прогрев других путей не должен задевать остальные бенчмарки
+     */
+    @State(Scope.Benchmark)
+    public static class PollutedProfile {
+        @Setup(Level.Trial)
+        public void pollute(NullSafePathBenchmark benchmark) {
+            for (int round = 0; round < 20; round++) {
+                for (NullSafePath<ClientNullable, ?> other : OTHER_PATHS) {
+                    other.countPresent(benchmark.clients);
+                    other.applyAll(benchmark.clients);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int pathMegamorphic(PollutedProfile profile) {
+        return path();
+    }
+
+    @Benchmark
+    public int pathNotConstant() {
+        int length = 0;
+        for (ClientNullable client : clients) {
+            length += clientIdField.get(client).length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public List<String> optionalBulk() {
+        return clients.stream()
+                .map(client -> Optional.ofNullable(client.getId())
+                        .map(ClientIdNullable::getValue)
+                        .orElse("default"))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> pathBulk() {
+        return CLIENT_ID.applyAll(clients);
+    }
+}
@@ -0,0 +1,109 @@
+package ru.vood.kotkin.rules._020_collection;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк: скалярные и векторные ядра над колонками salary (double[]) и age (int[]).
+ *
+ * Обе реализации вызываются напрямую, минуя выбор в ColumnKernels, поэтому пары
+ * scalarX / vectorX сравнимы в одном запуске. Выигрыш зависит от ширины вектора:
+ * на x86 Linux с AVX2 - 4 double / 8 int за инструкцию, с AVX-512 - вдвое больше.
+ * Запуск: ./gradlew jmh -Pjmh.includes=ColumnKernelsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ColumnKernelsBenchmark {
+
+    private static final double SALARY_THRESHOLD = 52000.0;
+    private static final int AGE_THRESHOLD = 30;
+
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    private final ColumnKernels.Kernels scalar = new ScalarKernels();
+    private final ColumnKernels.Kernels vector = new VectorKernels();
+
+    private double[] salaries;
+    private int[] ages;
+    private int[] selection;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        salaries = new double[size];
+        ages = new int[size];
+        selection = new int[size];
+        for (int i = 0; i < size; i++) {
+            salaries[i] = 30000 + random.nextInt(70000);
+            ages[i] = 20 + random.nextInt(45);
+        }
+    }
+
+    @Benchmark
+    public double scalarSumSalary() {
+        return scalar.sum(salaries, size);
+    }
+
+    @Benchmark
+    public double vectorSumSalary() {
+        return vector.sum(salaries, size);
+    }
+
+    @Benchmark
+    public double scalarMaxSalary() {
+        return scalar.max(salaries, size);
+    }
+
+    @Benchmark
+    public double vectorMaxSalary() {
+        return vector.max(salaries, size);
+    }
+
+    @Benchmark
+    public long scalarSumAge() {
+        return scalar.sum(ages, size);
+    }
+
+    @Benchmark
+    public long vectorSumAge() {
+        return vector.sum(ages, size);
+    }
+
+    @Benchmark
+    public int scalarCountAgeBelow() {
+        return scalar.countLessThan(ages, size, AGE_THRESHOLD);
+    }
+
+    @Benchmark
+    public int vectorCountAgeBelow() {
+        return vector.countLessThan(ages, size, AGE_THRESHOLD);
+    }
+
+    @Benchmark
+    public int scalarSelectSalaryAbove() {
+        return scalar.selectGreaterThan(salaries, size, SALARY_THRESHOLD, selection);
+    }
+
+    @Benchmark
+    public int vectorSelectSalaryAbove() {
+        return vector.selectGreaterThan(salaries, size, SALARY_THRESHOLD, selection);
+    }
+}
@@ -0,0 +1,142 @@
+package ru.vood.kotkin.rules._020_collection.javaP;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * БЕНЧМАРК: ОПЕРАЦИИ ИЗ JavaCollectionsDemo НА JAVA STREAMS
+ *
+ * Пара к KotlinCollectionsBenchmark - те же данные, те же операции, одинаковые имена методов.
+ * Лежит в пакете javaP, потому что User здесь package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class JavaCollectionsBenchmark {
+
+    private static final List<String> DEPARTMENTS =
+            List.of("IT", "HR", "Sales", "Finance", "Marketing", "Support", "Legal", "R&D");
+
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    private List<User> users;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        users = generateUsers(size);
+    }
+
+    @Benchmark
+    public List<String> map() {
+        return users.stream().map(User::getName).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<User> filter() {
+        return users.stream()
+                .filter(user -> user.isActive() && user.getAge() > 30)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Map<String, List<User>> groupBy() {
+        return users.stream().collect(Collectors.groupingBy(User::getDepartment));
+    }
+
+    @Benchmark
+    public List<User> sortedWith() {
+        return users.stream()
+                .sorted(Comparator.comparing(User::getDepartment)
+                        .thenComparing(Comparator.comparingDouble(User::getSalary).reversed()))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Map<Boolean, List<User>> partition() {
+        return users.stream().collect(Collectors.partitioningBy(user -> user.getSalary() > 52000));
+    }
+
+    @Benchmark
+    public List<String> flatMap() {
+        return users.stream()
+                .flatMap(user -> Stream.of(user.getDepartment(), user.getDepartment() + "-Backup"))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> distinct() {
+        return users.stream().map(User::getDepartment).distinct().collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Map<Integer, User> associateBy() {
+        return users.stream().collect(Collectors.toMap(User::getId, Function.identity()));
+    }
+
+    /**
+     * Ленивая цепочка - аналог Sequence из collections.kt
+     */
+    @Benchmark
+    public List<String> sequence() {
+        return users.stream()
+                .filter(User::isActive)
+                .map(user -> user.getName().toUpperCase())
+                .filter(name -> name.length() > 3)
+                .limit(10)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Та же работа, что в Kotlin-версии: map с упаковкой в Double, а не mapToDouble
+     */
+    @Benchmark
+    public long sequenceFull() {
+        return users.stream()
+                .filter(User::isActive)
+                .map(User::getSalary)
+                .filter(salary -> salary > 50000)
+                .count();
+    }
+
+    // Тот же seed и тот же порядок вызовов, что и в Kotlin-версии
+    static List<User> generateUsers(int size) {
+        Random random = new Random(42);
+        List<User> users = new ArrayList<>(size);
+        for (int id = 0; id < size; id++) {
+            users.add(new User(
+                    id,
+                    "User" + id,
+                    20 + random.nextInt(45),
+                    "user" + id + "@company.com",
+                    DEPARTMENTS.get(random.nextInt(DEPARTMENTS.size())),
+                    30000.0 + random.nextInt(70000),
+                    random.nextInt(10) < 8
+            ));
+        }
+        return users;
+    }
+}
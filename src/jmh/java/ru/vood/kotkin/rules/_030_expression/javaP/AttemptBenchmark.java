@@ -0,0 +1,104 @@
+package ru.vood.kotkin.rules._030_expression.javaP;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_expression.SafeMath;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк: ошибка исключением (try/catch, как в Try.java и try.kt) против ошибки-значения (Attempt).
+ *
+ * catchDivide / attemptDivide - деление, ошибка при делителе 0
+ * catchParse / attemptParse - разбор строки, ошибка на нечисловой строке
+ * failurePercent - доля входов с ошибкой. Пропускная способность в операциях на элемент.
+ *
+ * Неявное ArithmeticException от "/" C2 может заменить заранее созданным исключением без стека
+ * (-XX:+OmitStackTraceInFastThrow), поэтому catchDivide - лучший случай для исключений.
+ * NumberFormatException создается явно - catchParse показывает полную цену fillInStackTrace.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(AttemptBenchmark.SIZE)
+public class AttemptBenchmark {
+
+    static final int SIZE = 1024;
+
+    @Param({"0", "10", "50"})
+    public int failurePercent;
+
+    private int[] divisors;
+    private String[] texts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        divisors = new int[SIZE];
+        texts = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            boolean fail = random.nextInt(100) < failurePercent;
+            divisors[i] = fail ? 0 : 1 + random.nextInt(100);
+            texts[i] = fail ? "n/a-" + i : Integer.toString(random.nextInt(1_000_000));
+        }
+    }
+
+    @Benchmark
+    public int catchDivide() {
+        int sum = 0;
+        for (int divisor : divisors) {
+            try {
+                sum += 1_000_000 / divisor;
+            } catch (ArithmeticException e) {
+                sum -= 1;
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int attemptDivide() {
+        int sum = 0;
+        for (int divisor : divisors) {
+            sum += SafeMath.divide(1_000_000, divisor).getOrElse(-1);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int catchParse() {
+        int sum = 0;
+        for (String text : texts) {
+            try {
+                sum += Integer.parseInt(text);
+            } catch (NumberFormatException e) {
+                sum -= 1;
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int attemptParse() {
+        int sum = 0;
+        for (String text : texts) {
+            sum += SafeMath.parseInt(text).getOrElse(-1);
+        }
+        return sum;
+    }
+}
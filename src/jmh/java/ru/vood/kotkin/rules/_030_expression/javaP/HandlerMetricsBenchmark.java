@@ -0,0 +1,74 @@
+package ru.vood.kotkin.rules._030_expression.javaP;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк: цена одной записи в HandlerMetrics - цель меньше 50 нс на событие.
+ *
+ * nanoTimePair - только два System.nanoTime() (нижняя граница любого замера)
+ * record - запись уже измеренного интервала
+ * timedRecord - то, что платит processResult: start() + stop(start), задержка замеряется у 1 из 16 вызовов
+ * timedRecordEveryCall - то же с sampleEvery = 1: nanoTime на каждом вызове
+ * recordContended - timedRecord из 4 потоков в одни метрики
+ * nanoTimePairContended - два System.nanoTime() из 4 потоков: цена замера каждого вызова под конкуренцией
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandlerMetricsBenchmark {
+
+    private final HandlerMetrics metrics = new HandlerMetrics("benchmark");
+
+    private final HandlerMetrics everyCall = new HandlerMetrics("benchmark-every-call", 60, 1);
+
+    private long latency = 1_234;
+
+    @Benchmark
+    public long nanoTimePair() {
+        long start = System.nanoTime();
+        return System.nanoTime() - start;
+    }
+
+    @Benchmark
+    public void record() {
+        long end = latency += 17;
+        metrics.record(end - 1_234, end);
+    }
+
+    @Benchmark
+    public void timedRecord() {
+        metrics.stop(metrics.start());
+    }
+
+    @Benchmark
+    public void timedRecordEveryCall() {
+        everyCall.stop(everyCall.start());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long nanoTimePairContended() {
+        long start = System.nanoTime();
+        return System.nanoTime() - start;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        metrics.stop(metrics.start());
+    }
+}
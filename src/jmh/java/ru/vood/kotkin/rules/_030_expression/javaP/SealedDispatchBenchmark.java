@@ -0,0 +1,468 @@
+package ru.vood.kotkin.rules._030_expression.javaP;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.Error;
+import ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.IResult;
+import ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.Ok;
+import ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.KVariant8;
+import ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.KVariant32;
+import ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.WhenDispatchKt;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк: диспетчеризация по sealed-иерархии на 2, 8 и 32 варианта.
+ *
+ * switchN - switch с паттернами, как в ExhaustiveWhen.processResult
+ * whenN - when из Kotlin (WhenDispatch.kt), как в exhaustiveWhen.kt
+ * dispatcherN - IntSealedDispatcher (ClassValue -> номер -> tableSwitch) из static final поля:
+ *   как и switch/when, возвращает int без упаковки - иначе сравнивалась бы еще и аллокация Integer
+ * dispatcherNotConstant32 - тот же диспетчер из обычного поля: invoker не константа для JIT
+ * Варианты во входном массиве перемешаны равномерно - call site видит все подтипы сразу,
+ * результат - ns на один элемент массива.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(SealedDispatchBenchmark.SIZE)
+public class SealedDispatchBenchmark {
+
+    static final int SIZE = 1024;
+
+    sealed interface JVariant8 permits J8V0, J8V1, J8V2, J8V3, J8V4, J8V5, J8V6, J8V7 {
+        int value();
+    }
+
+    record J8V0(int value) implements JVariant8 {
+    }
+
+    record J8V1(int value) implements JVariant8 {
+    }
+
+    record J8V2(int value) implements JVariant8 {
+    }
+
+    record J8V3(int value) implements JVariant8 {
+    }
+
+    record J8V4(int value) implements JVariant8 {
+    }
+
+    record J8V5(int value) implements JVariant8 {
+    }
+
+    record J8V6(int value) implements JVariant8 {
+    }
+
+    record J8V7(int value) implements JVariant8 {
+    }
+
+    sealed interface JVariant32 permits J32V0, J32V1, J32V2, J32V3, J32V4, J32V5, J32V6, J32V7, J32V8, J32V9, J32V10, J32V11, J32V12, J32V13, J32V14, J32V15, J32V16, J32V17, J32V18, J32V19, J32V20, J32V21, J32V22, J32V23, J32V24, J32V25, J32V26, J32V27, J32V28, J32V29, J32V30, J32V31 {
+        int value();
+    }
+
+    record J32V0(int value) implements JVariant32 {
+    }
+
+    record J32V1(int value) implements JVariant32 {
+    }
+
+    record J32V2(int value) implements JVariant32 {
+    }
+
+    record J32V3(int value) implements JVariant32 {
+    }
+
+    record J32V4(int value) implements JVariant32 {
+    }
+
+    record J32V5(int value) implements JVariant32 {
+    }
+
+    record J32V6(int value) implements JVariant32 {
+    }
+
+    record J32V7(int value) implements JVariant32 {
+    }
+
+    record J32V8(int value) implements JVariant32 {
+    }
+
+    record J32V9(int value) implements JVariant32 {
+    }
+
+    record J32V10(int value) implements JVariant32 {
+    }
+
+    record J32V11(int value) implements JVariant32 {
+    }
+
+    record J32V12(int value) implements JVariant32 {
+    }
+
+    record J32V13(int value) implements JVariant32 {
+    }
+
+    record J32V14(int value) implements JVariant32 {
+    }
+
+    record J32V15(int value) implements JVariant32 {
+    }
+
+    record J32V16(int value) implements JVariant32 {
+    }
+
+    record J32V17(int value) implements JVariant32 {
+    }
+
+    record J32V18(int value) implements JVariant32 {
+    }
+
+    record J32V19(int value) implements JVariant32 {
+    }
+
+    record J32V20(int value) implements JVariant32 {
+    }
+
+    record J32V21(int value) implements JVariant32 {
+    }
+
+    record J32V22(int value) implements JVariant32 {
+    }
+
+    record J32V23(int value) implements JVariant32 {
+    }
+
+    record J32V24(int value) implements JVariant32 {
+    }
+
+    record J32V25(int value) implements JVariant32 {
+    }
+
+    record J32V26(int value) implements JVariant32 {
+    }
+
+    record J32V27(int value) implements JVariant32 {
+    }
+
+    record J32V28(int value) implements JVariant32 {
+    }
+
+    record J32V29(int value) implements JVariant32 {
+    }
+
+    record J32V30(int value) implements JVariant32 {
+    }
+
+    record J32V31(int value) implements JVariant32 {
+    }
+
+    private static final IntSealedDispatcher<IResult> DISPATCHER_2 = IntSealedDispatcher.builder(IResult.class)
+            .on(Ok.class, ok -> ok.getValue().length())
+            .on(Error.class, error -> -error.getValue().length())
+            .build();
+
+    private static final IntSealedDispatcher<JVariant8> DISPATCHER_8 = buildDispatcher8();
+
+    private static final IntSealedDispatcher<JVariant32> DISPATCHER_32 = buildDispatcher32();
+
+    // Не final - JIT не может считать invoker константой
+    private IntSealedDispatcher<JVariant32> dispatcher32Field = DISPATCHER_32;
+
+    private IResult[] results;
+    private JVariant8[] javaVariants8;
+    private KVariant8[] kotlinVariants8;
+    private JVariant32[] javaVariants32;
+    private KVariant32[] kotlinVariants32;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        results = new IResult[SIZE];
+        javaVariants8 = new JVariant8[SIZE];
+        kotlinVariants8 = new KVariant8[SIZE];
+        javaVariants32 = new JVariant32[SIZE];
+        kotlinVariants32 = new KVariant32[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            results[i] = random.nextBoolean() ? new Ok("ok-" + i) : new Error("error-" + i);
+            int kind8 = random.nextInt(8);
+            javaVariants8[i] = javaVariant8(kind8, i);
+            kotlinVariants8[i] = WhenDispatchKt.kVariant8(kind8, i);
+            int kind32 = random.nextInt(32);
+            javaVariants32[i] = javaVariant32(kind32, i);
+            kotlinVariants32[i] = WhenDispatchKt.kVariant32(kind32, i);
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // 2 варианта: IResult
+    // ------------------------------------------------------------------
+
+    @Benchmark
+    public int switch2() {
+        int sum = 0;
+        for (IResult result : results) {
+            sum += switch (result) {
+                case Ok ok -> ok.getValue().length();
+                case Error error -> -error.getValue().length();
+            };
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int when2() {
+        int sum = 0;
+        for (IResult result : results) {
+            sum += WhenDispatchKt.whenCode(result);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int dispatcher2() {
+        int sum = 0;
+        for (IResult result : results) {
+            sum += DISPATCHER_2.dispatch(result);
+        }
+        return sum;
+    }
+
+    // ------------------------------------------------------------------
+    // 8 вариантов
+    // ------------------------------------------------------------------
+
+    @Benchmark
+    public int switch8() {
+        int sum = 0;
+        for (JVariant8 variant : javaVariants8) {
+            sum += switchCode8(variant);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int when8() {
+        int sum = 0;
+        for (KVariant8 variant : kotlinVariants8) {
+            sum += WhenDispatchKt.whenCode8(variant);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int dispatcher8() {
+        int sum = 0;
+        for (JVariant8 variant : javaVariants8) {
+            sum += DISPATCHER_8.dispatch(variant);
+        }
+        return sum;
+    }
+
+    // ------------------------------------------------------------------
+    // 32 вариантов
+    // ------------------------------------------------------------------
+
+    @Benchmark
+    public int switch32() {
+        int sum = 0;
+        for (JVariant32 variant : javaVariants32) {
+            sum += switchCode32(variant);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int when32() {
+        int sum = 0;
+        for (KVariant32 variant : kotlinVariants32) {
+            sum += WhenDispatchKt.whenCode32(variant);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int dispatcher32() {
+        int sum = 0;
+        for (JVariant32 variant : javaVariants32) {
+            sum += DISPATCHER_32.dispatch(variant);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int dispatcherNotConstant32() {
+        int sum = 0;
+        for (JVariant32 variant : javaVariants32) {
+            sum += dispatcher32Field.dispatch(variant);
+        }
+        return sum;
+    }
+
+    private static int switchCode8(JVariant8 variant) {
+        return switch (variant) {
+            case J8V0 v -> v.value() + 0;
+            case J8V1 v -> v.value() + 1;
+            case J8V2 v -> v.value() + 2;
+            case J8V3 v -> v.value() + 3;
+            case J8V4 v -> v.value() + 4;
+            case J8V5 v -> v.value() + 5;
+            case J8V6 v -> v.value() + 6;
+            case J8V7 v -> v.value() + 7;
+        };
+    }
+
+    private static JVariant8 javaVariant8(int kind, int value) {
+        return switch (kind) {
+            case 0 -> new J8V0(value);
+            case 1 -> new J8V1(value);
+            case 2 -> new J8V2(value);
+            case 3 -> new J8V3(value);
+            case 4 -> new J8V4(value);
+            case 5 -> new J8V5(value);
+            case 6 -> new J8V6(value);
+            case 7 -> new J8V7(value);
+            default -> throw new IllegalArgumentException("Нет варианта " + kind);
+        };
+    }
+
+    private static IntSealedDispatcher<JVariant8> buildDispatcher8() {
+        IntSealedDispatcher.Builder<JVariant8> builder = IntSealedDispatcher.builder(JVariant8.class);
+        builder.on(J8V0.class, v -> v.value() + 0);
+        builder.on(J8V1.class, v -> v.value() + 1);
+        builder.on(J8V2.class, v -> v.value() + 2);
+        builder.on(J8V3.class, v -> v.value() + 3);
+        builder.on(J8V4.class, v -> v.value() + 4);
+        builder.on(J8V5.class, v -> v.value() + 5);
+        builder.on(J8V6.class, v -> v.value() + 6);
+        builder.on(J8V7.class, v -> v.value() + 7);
+        return builder.build();
+    }
+
+    private static int switchCode32(JVariant32 variant) {
+        return switch (variant) {
+            case J32V0 v -> v.value() + 0;
+            case J32V1 v -> v.value() + 1;
+            case J32V2 v -> v.value() + 2;
+            case J32V3 v -> v.value() + 3;
+            case J32V4 v -> v.value() + 4;
+            case J32V5 v -> v.value() + 5;
+            case J32V6 v -> v.value() + 6;
+            case J32V7 v -> v.value() + 7;
+            case J32V8 v -> v.value() + 8;
+            case J32V9 v -> v.value() + 9;
+            case J32V10 v -> v.value() + 10;
+            case J32V11 v -> v.value() + 11;
+            case J32V12 v -> v.value() + 12;
+            case J32V13 v -> v.value() + 13;
+            case J32V14 v -> v.value() + 14;
+            case J32V15 v -> v.value() + 15;
+            case J32V16 v -> v.value() + 16;
+            case J32V17 v -> v.value() + 17;
+            case J32V18 v -> v.value() + 18;
+            case J32V19 v -> v.value() + 19;
+            case J32V20 v -> v.value() + 20;
+            case J32V21 v -> v.value() + 21;
+            case J32V22 v -> v.value() + 22;
+            case J32V23 v -> v.value() + 23;
+            case J32V24 v -> v.value() + 24;
+            case J32V25 v -> v.value() + 25;
+            case J32V26 v -> v.value() + 26;
+            case J32V27 v -> v.value() + 27;
+            case J32V28 v -> v.value() + 28;
+            case J32V29 v -> v.value() + 29;
+            case J32V30 v -> v.value() + 30;
+            case J32V31 v -> v.value() + 31;
+        };
+    }
+
+    private static JVariant32 javaVariant32(int kind, int value) {
+        return switch (kind) {
+            case 0 -> new J32V0(value);
+            case 1 -> new J32V1(value);
+            case 2 -> new J32V2(value);
+            case 3 -> new J32V3(value);
+            case 4 -> new J32V4(value);
+            case 5 -> new J32V5(value);
+            case 6 -> new J32V6(value);
+            case 7 -> new J32V7(value);
+            case 8 -> new J32V8(value);
+            case 9 -> new J32V9(value);
+            case 10 -> new J32V10(value);
+            case 11 -> new J32V11(value);
+            case 12 -> new J32V12(value);
+            case 13 -> new J32V13(value);
+            case 14 -> new J32V14(value);
+            case 15 -> new J32V15(value);
+            case 16 -> new J32V16(value);
+            case 17 -> new J32V17(value);
+            case 18 -> new J32V18(value);
+            case 19 -> new J32V19(value);
+            case 20 -> new J32V20(value);
+            case 21 -> new J32V21(value);
+            case 22 -> new J32V22(value);
+            case 23 -> new J32V23(value);
+            case 24 -> new J32V24(value);
+            case 25 -> new J32V25(value);
+            case 26 -> new J32V26(value);
+            case 27 -> new J32V27(value);
+            case 28 -> new J32V28(value);
+            case 29 -> new J32V29(value);
+            case 30 -> new J32V30(value);
+            case 31 -> new J32V31(value);
+            default -> throw new IllegalArgumentException("Нет варианта " + kind);
+        };
+    }
+
+    private static IntSealedDispatcher<JVariant32> buildDispatcher32() {
+        IntSealedDispatcher.Builder<JVariant32> builder = IntSealedDispatcher.builder(JVariant32.class);
+        builder.on(J32V0.class, v -> v.value() + 0);
+        builder.on(J32V1.class, v -> v.value() + 1);
+        builder.on(J32V2.class, v -> v.value() + 2);
+        builder.on(J32V3.class, v -> v.value() + 3);
+        builder.on(J32V4.class, v -> v.value() + 4);
+        builder.on(J32V5.class, v -> v.value() + 5);
+        builder.on(J32V6.class, v -> v.value() + 6);
+        builder.on(J32V7.class, v -> v.value() + 7);
+        builder.on(J32V8.class, v -> v.value() + 8);
+        builder.on(J32V9.class, v -> v.value() + 9);
+        builder.on(J32V10.class, v -> v.value() + 10);
+        builder.on(J32V11.class, v -> v.value() + 11);
+        builder.on(J32V12.class, v -> v.value() + 12);
+        builder.on(J32V13.class, v -> v.value() + 13);
+        builder.on(J32V14.class, v -> v.value() + 14);
+        builder.on(J32V15.class, v -> v.value() + 15);
+        builder.on(J32V16.class, v -> v.value() + 16);
+        builder.on(J32V17.class, v -> v.value() + 17);
+        builder.on(J32V18.class, v -> v.value() + 18);
+        builder.on(J32V19.class, v -> v.value() + 19);
+        builder.on(J32V20.class, v -> v.value() + 20);
+        builder.on(J32V21.class, v -> v.value() + 21);
+        builder.on(J32V22.class, v -> v.value() + 22);
+        builder.on(J32V23.class, v -> v.value() + 23);
+        builder.on(J32V24.class, v -> v.value() + 24);
+        builder.on(J32V25.class, v -> v.value() + 25);
+        builder.on(J32V26.class, v -> v.value() + 26);
+        builder.on(J32V27.class, v -> v.value() + 27);
+        builder.on(J32V28.class, v -> v.value() + 28);
+        builder.on(J32V29.class, v -> v.value() + 29);
+        builder.on(J32V30.class, v -> v.value() + 30);
+        builder.on(J32V31.class, v -> v.value() + 31);
+        return builder.build();
+    }
+}
@@ -0,0 +1,113 @@
+package ru.vood.kotkin.rules._020_collection
+
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.util.concurrent.TimeUnit
+import java.util.Random
+
+/**
+ * БЕНЧМАРК: ОПЕРАЦИИ ИЗ collections.kt НА KOTLIN COLLECTIONS API
+ *
+ * Пара к JavaCollectionsBenchmark - те же данные, те же операции, одинаковые имена методов.
+ * Запуск: ./gradlew jmh (профилировщик gc включен в build.gradle.kts)
+ *
+ * Класс open: JMH генерирует наследника для @State.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = ["-Xmx8g"])
+open class KotlinCollectionsBenchmark {
+
+    @Param("1000", "100000", "10000000")
+    var size: Int = 0
+
+    private lateinit var users: List<User>
+
+    @Setup(Level.Trial)
+    fun setUp() {
+        users = generateUsers(size)
+    }
+
+    @Benchmark
+    fun map(): List<String> = users.map { it.name }
+
+    @Benchmark
+    fun filter(): List<User> = users.filter { it.active && it.age > 30 }
+
+    @Benchmark
+    fun groupBy(): Map<String, List<User>> = users.groupBy { it.department }
+
+    @Benchmark
+    fun sortedWith(): List<User> = users.sortedWith(
+        compareBy<User> { it.department }.thenByDescending { it.salary }
+    )
+
+    @Benchmark
+    fun partition(): Pair<List<User>, List<User>> = users.partition { it.salary > 52000 }
+
+    @Benchmark
+    fun flatMap(): List<String> = users.flatMap { listOf(it.department, it.department + "-Backup") }
+
+    @Benchmark
+    fun distinct(): List<String> = users.map { it.department }.distinct()
+
+    @Benchmark
+    fun associateBy(): Map<Int, User> = users.associateBy { it.id }
+
+    /**
+     * Ленивая цепочка из раздела LAZY OPERATIONS
+     */
+    @Benchmark
+    fun sequence(): List<String> = users.asSequence()
+        .filter { it.active }
+        .map { it.name.uppercase() }
+        .filter { it.length > 3 }
+        .take(10)
+        .toList()
+
+    /**
+     * Та же цепочка без take - последовательность проходит все элементы.
+     * Зарплата упаковывается в Double (у Sequence нет примитивного варианта), Java-версия
+     * тоже идет через map, а не mapToDouble; результат - Long, как count() в Stream
+     */
+    @Benchmark
+    fun sequenceFull(): Long = users.asSequence()
+        .filter { it.active }
+        .map { it.salary }
+        .filter { it > 50000 }
+        .count()
+        .toLong()
+}
+
+private val DEPARTMENTS = listOf("IT", "HR", "Sales", "Finance", "Marketing", "Support", "Legal", "R&D")
+
+/**
+ * Детерминированный набор: одинаковый seed у Kotlin и Java бенчмарков
+ */
+internal fun generateUsers(size: Int): List<User> {
+    val random = Random(42)
+    return List(size) { id ->
+        User(
+            id = id,
+            name = "User$id",
+            age = 20 + random.nextInt(45),
+            email = "user$id@company.com",
+            department = DEPARTMENTS[random.nextInt(DEPARTMENTS.size)],
+            salary = 30000.0 + random.nextInt(70000),
+            active = random.nextInt(10) < 8,
+        )
+    }
+}
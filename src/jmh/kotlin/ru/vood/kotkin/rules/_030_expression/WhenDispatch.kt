@@ -0,0 +1,154 @@
+package ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen
+
+/**
+ * Синтетические sealed-иерархии на 8 и 32 варианта и when по ним для SealedDispatchBenchmark.
+ * Каждая ветка делает одинаковую минимальную работу, чтобы измерялась именно диспетчеризация.
+ */
+sealed interface KVariant8 {
+    val value: Int
+}
+
+data class K8V0(override val value: Int) : KVariant8
+data class K8V1(override val value: Int) : KVariant8
+data class K8V2(override val value: Int) : KVariant8
+data class K8V3(override val value: Int) : KVariant8
+data class K8V4(override val value: Int) : KVariant8
+data class K8V5(override val value: Int) : KVariant8
+data class K8V6(override val value: Int) : KVariant8
+data class K8V7(override val value: Int) : KVariant8
+
+sealed interface KVariant32 {
+    val value: Int
+}
+
+data class K32V0(override val value: Int) : KVariant32
+data class K32V1(override val value: Int) : KVariant32
+data class K32V2(override val value: Int) : KVariant32
+data class K32V3(override val value: Int) : KVariant32
+data class K32V4(override val value: Int) : KVariant32
+data class K32V5(override val value: Int) : KVariant32
+data class K32V6(override val value: Int) : KVariant32
+data class K32V7(override val value: Int) : KVariant32
+data class K32V8(override val value: Int) : KVariant32
+data class K32V9(override val value: Int) : KVariant32
+data class K32V10(override val value: Int) : KVariant32
+data class K32V11(override val value: Int) : KVariant32
+data class K32V12(override val value: Int) : KVariant32
+data class K32V13(override val value: Int) : KVariant32
+data class K32V14(override val value: Int) : KVariant32
+data class K32V15(override val value: Int) : KVariant32
+data class K32V16(override val value: Int) : KVariant32
+data class K32V17(override val value: Int) : KVariant32
+data class K32V18(override val value: Int) : KVariant32
+data class K32V19(override val value: Int) : KVariant32
+data class K32V20(override val value: Int) : KVariant32
+data class K32V21(override val value: Int) : KVariant32
+data class K32V22(override val value: Int) : KVariant32
+data class K32V23(override val value: Int) : KVariant32
+data class K32V24(override val value: Int) : KVariant32
+data class K32V25(override val value: Int) : KVariant32
+data class K32V26(override val value: Int) : KVariant32
+data class K32V27(override val value: Int) : KVariant32
+data class K32V28(override val value: Int) : KVariant32
+data class K32V29(override val value: Int) : KVariant32
+data class K32V30(override val value: Int) : KVariant32
+data class K32V31(override val value: Int) : KVariant32
+
+fun whenCode(result: IResult): Int = when (result) {
+    is Ok -> result.value.length
+    is Error -> -result.value.length
+}
+
+fun whenCode8(variant: KVariant8): Int = when (variant) {
+    is K8V0 -> variant.value + 0
+    is K8V1 -> variant.value + 1
+    is K8V2 -> variant.value + 2
+    is K8V3 -> variant.value + 3
+    is K8V4 -> variant.value + 4
+    is K8V5 -> variant.value + 5
+    is K8V6 -> variant.value + 6
+    is K8V7 -> variant.value + 7
+}
+
+fun kVariant8(kind: Int, value: Int): KVariant8 = when (kind) {
+    0 -> K8V0(value)
+    1 -> K8V1(value)
+    2 -> K8V2(value)
+    3 -> K8V3(value)
+    4 -> K8V4(value)
+    5 -> K8V5(value)
+    6 -> K8V6(value)
+    7 -> K8V7(value)
+    else -> throw IllegalArgumentException("Нет варианта $kind")
+}
+
+fun whenCode32(variant: KVariant32): Int = when (variant) {
+    is K32V0 -> variant.value + 0
+    is K32V1 -> variant.value + 1
+    is K32V2 -> variant.value + 2
+    is K32V3 -> variant.value + 3
+    is K32V4 -> variant.value + 4
+    is K32V5 -> variant.value + 5
+    is K32V6 -> variant.value + 6
+    is K32V7 -> variant.value + 7
+    is K32V8 -> variant.value + 8
+    is K32V9 -> variant.value + 9
+    is K32V10 -> variant.value + 10
+    is K32V11 -> variant.value + 11
+    is K32V12 -> variant.value + 12
+    is K32V13 -> variant.value + 13
+    is K32V14 -> variant.value + 14
+    is K32V15 -> variant.value + 15
+    is K32V16 -> variant.value + 16
+    is K32V17 -> variant.value + 17
+    is K32V18 -> variant.value + 18
+    is K32V19 -> variant.value + 19
+    is K32V20 -> variant.value + 20
+    is K32V21 -> variant.value + 21
+    is K32V22 -> variant.value + 22
+    is K32V23 -> variant.value + 23
+    is K32V24 -> variant.value + 24
+    is K32V25 -> variant.value + 25
+    is K32V26 -> variant.value + 26
+    is K32V27 -> variant.value + 27
+    is K32V28 -> variant.value + 28
+    is K32V29 -> variant.value + 29
+    is K32V30 -> variant.value + 30
+    is K32V31 -> variant.value + 31
+}
+
+fun kVariant32(kind: Int, value: Int): KVariant32 = when (kind) {
+    0 -> K32V0(value)
+    1 -> K32V1(value)
+    2 -> K32V2(value)
+    3 -> K32V3(value)
+    4 -> K32V4(value)
+    5 -> K32V5(value)
+    6 -> K32V6(value)
+    7 -> K32V7(value)
+    8 -> K32V8(value)
+    9 -> K32V9(value)
+    10 -> K32V10(value)
+    11 -> K32V11(value)
+    12 -> K32V12(value)
+    13 -> K32V13(value)
+    14 -> K32V14(value)
+    15 -> K32V15(value)
+    16 -> K32V16(value)
+    17 -> K32V17(value)
+    18 -> K32V18(value)
+    19 -> K32V19(value)
+    20 -> K32V20(value)
+    21 -> K32V21(value)
+    22 -> K32V22(value)
+    23 -> K32V23(value)
+    24 -> K32V24(value)
+    25 -> K32V25(value)
+    26 -> K32V26(value)
+    27 -> K32V27(value)
+    28 -> K32V28(value)
+    29 -> K32V29(value)
+    30 -> K32V30(value)
+    31 -> K32V31(value)
+    else -> throw IllegalArgumentException("Нет варианта $kind")
+}
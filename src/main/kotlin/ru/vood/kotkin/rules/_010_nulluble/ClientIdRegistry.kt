@@ -0,0 +1,103 @@
+package ru.vood.kotkin.rules._010_nulluble
+
+/**
+ * РЕЕСТР ИДЕНТИФИКАТОРОВ КЛИЕНТОВ: СТРОКА -> ПЛОТНЫЙ НОМЕР
+ *
+ * Java ClientId - отдельный объект на каждый id, а его hashCode через Objects.hash
+ * создает массив и сравнивает строки в equals. Kotlin value class ClientId
+ * не создает объект, пока не станет ключом Map - тогда он упаковывается.
+ *
+ * Реестр один раз, на входе данных, сопоставляет строке id номер 0, 1, 2, ...
+ * (handle), дальше вся работа идет с int: [ClientMap] по номеру, массивы по номеру,
+ * никаких оберток и хеширования строк на горячем пути.
+ *
+ * Своя таблица с открытой адресацией: строки и номера в двух массивах, без Map.Entry и Integer.
+ * Класс не потокобезопасен: регистрируйте клиентов в одном потоке, читать можно из любых
+ * после безопасной публикации.
+ */
+class ClientIdRegistry(expectedSize: Int = 16) {
+
+    private var keys = arrayOfNulls<String>(tableSizeFor(expectedSize))
+    private var handles = IntArray(keys.size)
+    private var ids = arrayOfNulls<String>(maxOf(expectedSize, 1))
+
+    var size: Int = 0
+        private set
+
+    /**
+     * Номер клиента; новый id получает следующий свободный номер
+     */
+    fun register(id: String): Int {
+        val slot = slotOf(id)
+        if (keys[slot] != null) return handles[slot]
+        val handle = size++
+        if (handle == ids.size) ids = ids.copyOf(handle * 2)
+        ids[handle] = id
+        keys[slot] = id
+        handles[slot] = handle
+        if (size * 2 > keys.size) rehash()
+        return handle
+    }
+
+    fun register(id: ClientId): Int = register(id.value)
+
+    /**
+     * Номер уже зарегистрированного клиента или [NO_HANDLE]
+     */
+    fun handleOf(id: String): Int {
+        val slot = slotOf(id)
+        return if (keys[slot] != null) handles[slot] else NO_HANDLE
+    }
+
+    fun handleOf(id: ClientId): Int = handleOf(id.value)
+
+    fun idOf(handle: Int): String {
+        if (handle < 0 || handle >= size) throw IndexOutOfBoundsException("handle: $handle, size: $size")
+        return checkNotNull(ids[handle])
+    }
+
+    fun clientIdOf(handle: Int): ClientId = ClientId(idOf(handle))
+
+    // Слот с этим id или первый пустой слот на его пути (линейное пробирование)
+    private fun slotOf(id: String): Int {
+        val mask = keys.size - 1
+        var slot = mix(id.hashCode()) and mask
+        while (true) {
+            val key = keys[slot] ?: return slot
+            if (key == id) return slot
+            slot = (slot + 1) and mask
+        }
+    }
+
+    private fun rehash() {
+        val oldKeys = keys
+        val oldHandles = handles
+        keys = arrayOfNulls(oldKeys.size * 2)
+        handles = IntArray(keys.size)
+        for (index in oldKeys.indices) {
+            val key = oldKeys[index] ?: continue
+            val slot = slotOf(key)
+            keys[slot] = key
+            handles[slot] = oldHandles[index]
+        }
+    }
+
+    companion object {
+        const val NO_HANDLE = -1
+
+        private const val MAX_TABLE_SIZE = 1 shl 30
+
+        // Таблица - степень двойки, заполнена не больше чем наполовину
+        internal fun tableSizeFor(expectedSize: Int): Int {
+            require(expectedSize >= 0) { "expectedSize не может быть отрицательным: $expectedSize" }
+            val required = maxOf(expectedSize.toLong() * 2, 16L)
+            return if (required >= MAX_TABLE_SIZE) MAX_TABLE_SIZE else Integer.highestOneBit((required - 1).toInt()) shl 1
+        }
+
+        // Перемешивание битов хеша: соседние хеши не должны занимать соседние слоты
+        internal fun mix(hash: Int): Int {
+            val spread = hash * -0x61c88647 // 0x9E3779B9
+            return spread xor (spread ushr 16)
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package ru.vood.kotkin.rules._010_nulluble
+
+import java.util.function.ObjIntConsumer
+
+/**
+ * MAP ПО НОМЕРУ КЛИЕНТА ИЗ [ClientIdRegistry]
+ *
+ * HashMap<ClientId, V> хранит Entry на каждую запись, упаковывает ключ
+ * и на каждый get считает hashCode и вызывает equals.
+ * Здесь ключ - int: номера и значения лежат в двух массивах, поиск - открытая адресация
+ * с линейным пробированием, удаление - сдвигом следующих записей назад (без "надгробий").
+ *
+ * Java: ClientMap<Car> cars = new ClientMap<>(); cars.put(registry.register(id), car);
+ */
+class ClientMap<V : Any>(expectedSize: Int = 16) {
+
+    private var keys = IntArray(ClientIdRegistry.tableSizeFor(expectedSize)).apply { fill(EMPTY) }
+    private var values = arrayOfNulls<Any>(keys.size)
+
+    var size: Int = 0
+        private set
+
+    fun isEmpty(): Boolean = size == 0
+
+    operator fun get(handle: Int): V? {
+        val slot = slotOf(handle)
+        return if (keys[slot] == EMPTY) null else valueAt(slot)
+    }
+
+    fun containsKey(handle: Int): Boolean = keys[slotOf(handle)] != EMPTY
+
+    /**
+     * Возвращает предыдущее значение или null
+     */
+    fun put(handle: Int, value: V): V? {
+        require(handle >= 0) { "Некорректный номер клиента: $handle" }
+        val slot = slotOf(handle)
+        if (keys[slot] != EMPTY) return valueAt(slot).also { values[slot] = value }
+        keys[slot] = handle
+        values[slot] = value
+        if (++size * 2 > keys.size) rehash()
+        return null
+    }
+
+    operator fun set(handle: Int, value: V) {
+        put(handle, value)
+    }
+
+    inline fun getOrPut(handle: Int, defaultValue: () -> V): V =
+        get(handle) ?: defaultValue().also { put(handle, it) }
+
+    fun remove(handle: Int): V? {
+        var slot = slotOf(handle)
+        if (keys[slot] == EMPTY) return null
+        val removed = valueAt(slot)
+        // Сдвигаем назад записи, которые без освободившегося слота стали бы недостижимы
+        val mask = keys.size - 1
+        var next = slot
+        while (true) {
+            next = (next + 1) and mask
+            val key = keys[next]
+            if (key == EMPTY) break
+            val homeSlot = home(key)
+            val reachable = if (slot <= next) homeSlot in (slot + 1)..next else homeSlot in (slot + 1)..mask || homeSlot <= next
+            if (!reachable) {
+                keys[slot] = key
+                values[slot] = values[next]
+                slot = next
+            }
+        }
+        keys[slot] = EMPTY
+        values[slot] = null
+        size--
+        return removed
+    }
+
+    fun forEach(action: ObjIntConsumer<in V>) {
+        for (slot in keys.indices) {
+            if (keys[slot] != EMPTY) action.accept(valueAt(slot), keys[slot])
+        }
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun valueAt(slot: Int): V = values[slot] as V
+
+    private fun home(handle: Int): Int = ClientIdRegistry.mix(handle) and (keys.size - 1)
+
+    private fun slotOf(handle: Int): Int {
+        val mask = keys.size - 1
+        var slot = home(handle)
+        while (true) {
+            val key = keys[slot]
+            if (key == EMPTY || key == handle) return slot
+            slot = (slot + 1) and mask
+        }
+    }
+
+    private fun rehash() {
+        val oldKeys = keys
+        val oldValues = values
+        keys = IntArray(oldKeys.size * 2).apply { fill(EMPTY) }
+        values = arrayOfNulls(keys.size)
+        for (index in oldKeys.indices) {
+            if (oldKeys[index] == EMPTY) continue
+            val slot = slotOf(oldKeys[index])
+            keys[slot] = oldKeys[index]
+            values[slot] = oldValues[index]
+        }
+    }
+
+    private companion object {
+        const val EMPTY = ClientIdRegistry.NO_HANDLE
+    }
+}
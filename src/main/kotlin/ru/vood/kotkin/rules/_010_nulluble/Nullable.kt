@@ -54,6 +54,9 @@ fun main() {
     // Работа с non-null версией - простая и безопасная
     val idStr: String = client.id.value  // Не нужно проверять на null
 
+    // Реестр ClientId -> номер вызываем до !! ниже: дальше main падает с NPE
+    demonstrateClientRegistry(listOf(client, Client(ClientId("abc")), Client(ClientId("xyz"))))
+
     // Работа с nullable версией - требует проверок
     val idStrNullable: String? = clientNullable.carInfo?.`производитель фаркопа`  // Проверяем и обертку, и значение
 
@@ -235,4 +238,16 @@ fun demonstrateAlternatives(client: ClientWithNullableField) {
     // 5. Extension функции
     val id5 = client.carInfo?.`производитель фаркопа`.orEmpty() // Для String
     val id6 = client.carInfo?.`производитель фаркопа` ?: return // Ранний возврат если null
-}
\ No newline at end of file
+}
+
+// ГОРЯЧИЙ ПУТЬ: ClientId КАК КЛЮЧ MAP
+fun demonstrateClientRegistry(clients: List<Client>) {
+    // Map<ClientId, Car> упаковал бы каждый ClientId в объект; номер из реестра - обычный int
+    val registry = ClientIdRegistry(clients.size)
+    val cars = ClientMap<Car>(clients.size)
+    clients.forEach { cars[registry.register(it.id)] = Car("Пипелац", "Westfalia") }
+
+    // Строка хешируется один раз на входе, дальше работаем с номером
+    val handle = registry.handleOf(clients.first().id)
+    println("Машина клиента ${registry.idOf(handle)}: ${cars[handle]}")
+}
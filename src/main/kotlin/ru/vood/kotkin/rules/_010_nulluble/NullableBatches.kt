@@ -0,0 +1,178 @@
+package ru.vood.kotkin.rules._010_nulluble
+
+import ru.vood.kotkin.rules._020_collection.StringDictionary
+import java.util.function.IntConsumer
+import java.util.function.ObjIntConsumer
+
+/**
+ * КОЛОНОЧНЫЕ ПАЧКИ С БИТОВЫМИ КАРТАМИ ЗАПОЛНЕННОСТИ (КАК В APACHE ARROW)
+ *
+ * client.carInfo?.`производитель фаркопа`?.let { } на миллионах клиентов - это
+ * два перехода по ссылкам и две проверки на null для каждого клиента.
+ * В пачке nullable-поле хранится двумя колонками:
+ * - значения (коды строк в словаре, для null - пустой слот)
+ * - битовая карта заполненности: бит i = 1, если значение в строке i не null
+ *
+ * "Сколько клиентов с производителем фаркопа" - это popcount(машина & фаркоп)
+ * по 64 клиента за одну операцию над long, без обращения к самим объектам.
+ */
+class ValidityBitmap(initialCapacity: Int = 64) {
+
+    private var words = LongArray(wordCount(initialCapacity))
+
+    var size: Int = 0
+        private set
+
+    fun add(valid: Boolean) {
+        if (size == words.size * Long.SIZE_BITS) words = words.copyOf(words.size * 2)
+        if (valid) words[size ushr 6] = words[size ushr 6] or (1L shl size)
+        size++
+    }
+
+    fun isValid(index: Int): Boolean {
+        if (index < 0 || index >= size) throw IndexOutOfBoundsException("index: $index, size: $size")
+        return words[index ushr 6] and (1L shl index) != 0L
+    }
+
+    /**
+     * Количество заполненных значений
+     */
+    fun validCount(): Int {
+        var count = 0
+        for (word in 0 until wordCount(size)) count += java.lang.Long.bitCount(words[word])
+        return count
+    }
+
+    /**
+     * Количество строк, заполненных в обеих картах - без промежуточной карты
+     */
+    fun validCountAnd(other: ValidityBitmap): Int {
+        requireSameSize(other)
+        var count = 0
+        for (word in 0 until wordCount(size)) count += java.lang.Long.bitCount(words[word] and other.words[word])
+        return count
+    }
+
+    /**
+     * Номера строк, заполненных в обеих картах: пустые слова по 64 строки пропускаются целиком
+     */
+    fun forEachValidAnd(other: ValidityBitmap, action: IntConsumer) {
+        requireSameSize(other)
+        for (word in 0 until wordCount(size)) {
+            var bits = words[word] and other.words[word]
+            while (bits != 0L) {
+                action.accept((word shl 6) + java.lang.Long.numberOfTrailingZeros(bits))
+                bits = bits and (bits - 1)
+            }
+        }
+    }
+
+    private fun requireSameSize(other: ValidityBitmap) {
+        require(size == other.size) { "Размеры карт не совпадают: $size и ${other.size}" }
+    }
+
+    private companion object {
+        fun wordCount(bits: Int): Int = maxOf(1, (bits + Long.SIZE_BITS - 1) ushr 6)
+    }
+}
+
+/**
+ * Пачка [Car]: марка словарем, производитель фаркопа - словарь + карта заполненности.
+ * Слот для отсутствующей машины ([addNull]) нужен, чтобы строки пачки совпадали
+ * со строками родительской пачки клиентов.
+ */
+class CarBatch(initialCapacity: Int = 64) {
+
+    private val brands = StringDictionary()
+    private val towBarMakers = StringDictionary()
+    private var brandCodes = IntArray(initialCapacity)
+    private var towBarMakerCodes = IntArray(initialCapacity)
+
+    val towBarMakerValidity = ValidityBitmap(initialCapacity)
+
+    var size: Int = 0
+        private set
+
+    fun add(car: Car) {
+        ensureCapacity()
+        brandCodes[size] = brands.encode(car.марка)
+        val towBarMaker = car.`производитель фаркопа`
+        towBarMakerCodes[size] = if (towBarMaker == null) StringDictionary.NO_CODE else towBarMakers.encode(towBarMaker)
+        towBarMakerValidity.add(towBarMaker != null)
+        size++
+    }
+
+    internal fun addNull() {
+        ensureCapacity()
+        brandCodes[size] = StringDictionary.NO_CODE
+        towBarMakerCodes[size] = StringDictionary.NO_CODE
+        towBarMakerValidity.add(false)
+        size++
+    }
+
+    fun brand(index: Int): String = brands.decode(brandCodes[checkIndex(index)])
+
+    fun towBarMaker(index: Int): String? =
+        if (towBarMakerValidity.isValid(index)) towBarMakers.decode(towBarMakerCodes[index]) else null
+
+    internal fun towBarMakerCode(index: Int): Int = towBarMakerCodes[index]
+
+    internal fun towBarMakerOf(code: Int): String = towBarMakers.decode(code)
+
+    fun car(index: Int): Car = Car(brand(index), towBarMaker(index))
+
+    private fun ensureCapacity() {
+        if (size == brandCodes.size) {
+            brandCodes = brandCodes.copyOf(maxOf(16, size * 2))
+            towBarMakerCodes = towBarMakerCodes.copyOf(brandCodes.size)
+        }
+    }
+
+    private fun checkIndex(index: Int): Int {
+        if (index < 0 || index >= size) throw IndexOutOfBoundsException("index: $index, size: $size")
+        return index
+    }
+}
+
+/**
+ * Пачка [ClientWithNullableField]: карта заполненности carInfo плюс дочерняя пачка машин.
+ * Значение по пути carInfo?.`производитель фаркопа` есть там, где заполнены обе карты.
+ */
+class ClientBatch(initialCapacity: Int = 64) {
+
+    val carValidity = ValidityBitmap(initialCapacity)
+    val cars = CarBatch(initialCapacity)
+
+    val size: Int get() = carValidity.size
+
+    fun add(client: ClientWithNullableField) {
+        val car = client.carInfo
+        carValidity.add(car != null)
+        if (car == null) cars.addNull() else cars.add(car)
+    }
+
+    fun client(index: Int): ClientWithNullableField =
+        ClientWithNullableField(if (carValidity.isValid(index)) cars.car(index) else null)
+
+    /**
+     * Аналог count { it.carInfo?.`производитель фаркопа` != null }
+     */
+    fun countWithTowBarMaker(): Int = carValidity.validCountAnd(cars.towBarMakerValidity)
+
+    /**
+     * Аналог forEach { it.carInfo?.`производитель фаркопа`?.let { maker -> ... } }:
+     * action получает производителя и номер клиента, строки без значения не затрагиваются
+     */
+    fun forEachWithTowBarMaker(action: ObjIntConsumer<String>) {
+        carValidity.forEachValidAnd(cars.towBarMakerValidity) { index ->
+            action.accept(cars.towBarMakerOf(cars.towBarMakerCode(index)), index)
+        }
+    }
+
+    companion object {
+        fun of(clients: Collection<ClientWithNullableField>): ClientBatch =
+            ClientBatch(maxOf(clients.size, 1)).apply { clients.forEach { add(it) } }
+    }
+}
+
+fun Collection<ClientWithNullableField>.toClientBatch(): ClientBatch = ClientBatch.of(this)
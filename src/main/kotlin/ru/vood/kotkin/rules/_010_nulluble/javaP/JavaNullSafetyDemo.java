@@ -2,9 +2,17 @@ package ru.vood.kotkin.rules._010_nulluble.javaP;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import ru.vood.kotkin.rules._010_nulluble.ClientIdRegistry;
+import ru.vood.kotkin.rules._010_nulluble.ClientMap;
+
+import java.util.List;
 
 public class JavaNullSafetyDemo {
 
+    // Путь собирается один раз - static final позволяет JIT встроить всю цепочку
+    private static final NullSafePath<ClientNullable, String> CLIENT_ID =
+            NullSafePath.path(ClientNullable::getId, ClientIdNullable::getValue).orElse("default");
+
     public static void main(String[] args) {
         // ----------------------------------------------------------------------
         // СОЗДАНИЕ ОБЪЕКТОВ
@@ -56,6 +64,9 @@ public class JavaNullSafetyDemo {
                 ? clientNullable.getId().getValue()
                 : "default-value";
 
+        // То же через NullSafePath - аналог clientNullable.id?.value ?: "default"
+        String idFromPath = CLIENT_ID.get(clientNullable);
+
         // Или с кастомным исключением:
         String idStrWithError = (clientNullable.getId() != null && clientNullable.getId().getValue() != null) ? (clientNullable.getId().getValue()) : "throw new RuntimeException(id is null)";
 
@@ -115,6 +126,8 @@ public class JavaNullSafetyDemo {
                 ((clientNullable.getId() != null && clientNullable.getId().getValue() != null)
                         ? clientNullable.getId().getValue()
                         : "null"));
+
+        demonstrateClientRegistry(List.of(client, new Client(new ClientId("abc")), new Client(new ClientId("xyz"))));
     }
 
     public static void processClientId(@NotNull ClientId id) {
@@ -160,6 +173,26 @@ public class JavaNullSafetyDemo {
         // 5. Utility методы (аналог extension functions)
         String id5 = getValueOrEmpty(client);
         String id6 = getValueOrReturn(client);
+
+        // 6. Собранный путь: каждый геттер вызывается один раз, без Optional
+        String id7 = CLIENT_ID.get(client);
+    }
+
+    // ----------------------------------------------------------------------
+    // ГОРЯЧИЙ ПУТЬ: ClientId КАК КЛЮЧ MAP
+    // ----------------------------------------------------------------------
+
+    public static void demonstrateClientRegistry(@NotNull List<Client> clients) {
+        // HashMap<ClientId, ...> на каждый get вызывает Objects.hash (массив) и equals по строке.
+        // Реестр переводит строку в номер один раз, дальше ключ - int
+        ClientIdRegistry registry = new ClientIdRegistry(clients.size());
+        ClientMap<String> cars = new ClientMap<>(clients.size());
+        for (Client client : clients) {
+            cars.put(registry.register(client.getId().getValue()), "Пипелац");
+        }
+
+        int handle = registry.handleOf(clients.get(0).getId().getValue());
+        System.out.println("Машина клиента " + registry.idOf(handle) + ": " + cars.get(handle));
     }
 
     // Утилитные методы для работы с nullable
@@ -0,0 +1,152 @@
+package ru.vood.kotkin.rules._010_nulluble.javaP;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Аналог цепочки ?. и ?: из Kotlin для Java.
+ *
+ * Вместо
+ * (client.getId() != null && client.getId().getValue() != null) ? client.getId().getValue() : "default"
+ * где каждый геттер вызывается дважды, или Optional.ofNullable(...).map(...).orElse(...),
+ * где на каждый шаг создается Optional, путь собирается один раз:
+ *
+ * static final NullSafePath<ClientNullable, String> CLIENT_ID =
+ *         NullSafePath.path(ClientNullable::getId, ClientIdNullable::getValue).orElse("default");
+ * String id = CLIENT_ID.get(client);
+ *
+ * Путь - цепочка MethodHandle, собранная при создании: каждый шаг - guardWithTest
+ * "null -> null, иначе следующий геттер", шаги соединены через filterReturnValue, а сами
+ * геттеры привязаны к цепочке как константы (bindTo). При вычислении каждый геттер вызывается
+ * один раз, на первом null возвращается значение по умолчанию, объекты не создаются.
+ *
+ * Путь - record, а поля record JIT считает по-настоящему неизменяемыми. Если сам путь лежит
+ * в static final поле, цепочка для JIT - константа: он встраивает ее целиком вместе с геттерами,
+ * и профиль других путей программы на нее не влияет (см. pathMegamorphic в NullSafePathBenchmark).
+ * Путь из обычного поля или коллекции так не сворачивается - каждый get тогда непрямой вызов
+ * MethodHandle без встраивания (pathNotConstant в том же бенчмарке).
+ */
+public record NullSafePath<T, R>(@NotNull MethodHandle chain, @Nullable R defaultValue) {
+
+    // Все цепочки одного типа (Object)Object - так их можно вызывать через invokeExact
+    private static final MethodType CHAIN_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodHandle APPLY;
+    private static final MethodHandle IS_NULL;
+    private static final MethodHandle RETURN_NULL;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            APPLY = lookup.findVirtual(Function.class, "apply", CHAIN_TYPE);
+            IS_NULL = lookup.findStatic(Objects.class, "isNull", MethodType.methodType(boolean.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        RETURN_NULL = constant(null);
+    }
+
+    public NullSafePath {
+        Objects.requireNonNull(chain, "chain");
+        if (!chain.type().equals(CHAIN_TYPE)) {
+            throw new IllegalArgumentException("Цепочка должна иметь тип " + CHAIN_TYPE + ": " + chain.type());
+        }
+    }
+
+    public static <A, B> NullSafePath<A, B> path(@NotNull Function<? super A, ? extends B> first) {
+        return new NullSafePath<>(step(first), null);
+    }
+
+    public static <A, B, C> NullSafePath<A, C> path(@NotNull Function<? super A, ? extends B> first,
+                                                    @NotNull Function<? super B, ? extends C> second) {
+        return NullSafePath.<A, B>path(first).then(second);
+    }
+
+    public static <A, B, C, D> NullSafePath<A, D> path(@NotNull Function<? super A, ? extends B> first,
+                                                       @NotNull Function<? super B, ? extends C> second,
+                                                       @NotNull Function<? super C, ? extends D> third) {
+        return NullSafePath.<A, B>path(first).then(second).then(third);
+    }
+
+    /**
+     * Следующий шаг пути - аналог ?. в Kotlin.
+     * Если до этого задан orElse, значение по умолчанию подставляется перед шагом,
+     * как в (client.id ?: fallbackId)?.value
+     */
+    public <S> NullSafePath<T, S> then(@NotNull Function<? super R, ? extends S> next) {
+        MethodHandle previous = chain;
+        if (defaultValue != null) {
+            MethodHandle orDefault = MethodHandles.guardWithTest(
+                    IS_NULL, constant(defaultValue), MethodHandles.identity(Object.class));
+            previous = MethodHandles.filterReturnValue(chain, orDefault);
+        }
+        return new NullSafePath<>(MethodHandles.filterReturnValue(previous, step(next)), null);
+    }
+
+    /**
+     * Значение по умолчанию, если по пути встретился null - аналог ?: в Kotlin
+     */
+    public NullSafePath<T, R> orElse(R defaultValue) {
+        return new NullSafePath<>(chain, defaultValue);
+    }
+
+    @Nullable
+    public R get(@Nullable T root) {
+        R value = invoke(root);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Вычисление пути для пачки объектов: один список результатов, без Optional на элемент
+     */
+    public List<R> applyAll(@NotNull List<? extends T> roots) {
+        List<R> result = new ArrayList<>(roots.size());
+        for (T root : roots) {
+            result.add(get(root));
+        }
+        return result;
+    }
+
+    /**
+     * Сколько объектов имеют непустое значение по пути - без списка результатов
+     */
+    public int countPresent(@NotNull List<? extends T> roots) {
+        int count = 0;
+        for (T root : roots) {
+            if (invoke(root) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    private R invoke(@Nullable T root) {
+        try {
+            return (R) (Object) chain.invokeExact((Object) root);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // Function.apply не объявляет проверяемых исключений - сюда попадают только "скрытно" брошенные
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // x == null ? null : getter.apply(x)
+    private static MethodHandle step(Function<?, ?> getter) {
+        Objects.requireNonNull(getter, "getter");
+        return MethodHandles.guardWithTest(IS_NULL, RETURN_NULL, APPLY.bindTo(getter));
+    }
+
+    private static MethodHandle constant(@Nullable Object value) {
+        return MethodHandles.dropArguments(MethodHandles.constant(Object.class, value), 0, Object.class);
+    }
+}
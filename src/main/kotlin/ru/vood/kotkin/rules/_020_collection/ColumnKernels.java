@@ -0,0 +1,133 @@
+package ru.vood.kotkin.rules._020_collection;
+
+/**
+ * Ядра агрегаций над примитивными колонками пользователей (salary double[], age int[]).
+ *
+ * Сумма, минимум, максимум, подсчет по порогу и отбор номеров строк по порогу
+ * над плоскими массивами - идеальная работа для SIMD. Если JVM запущена с
+ * --add-modules jdk.incubator.vector, используется реализация на Vector API
+ * (несколько элементов за инструкцию), иначе - обычные скалярные циклы с тем же результатом.
+ * В Gradle модуль подключается к тестам и JavaExec свойством -Pvector.
+ * Принудительно выключить векторную версию: -Dru.vood.kotkin.rules.vector=false
+ *
+ * Все методы обрабатывают первые length элементов массива (колонки растут с запасом).
+ * Векторная сумма double складывает элементы в другом порядке, поэтому может отличаться
+ * от последовательной в последних знаках.
+ */
+public final class ColumnKernels {
+
+    private static final String VECTOR_KERNELS = "ru.vood.kotkin.rules._020_collection.VectorKernels";
+
+    private static final Kernels KERNELS = selectKernels();
+
+    private ColumnKernels() {
+    }
+
+    public static boolean isVectorized() {
+        return !(KERNELS instanceof ScalarKernels);
+    }
+
+    public static double sum(double[] values, int length) {
+        return KERNELS.sum(values, checkLength(values.length, length));
+    }
+
+    public static double min(double[] values, int length) {
+        return KERNELS.min(values, checkLength(values.length, length));
+    }
+
+    public static double max(double[] values, int length) {
+        return KERNELS.max(values, checkLength(values.length, length));
+    }
+
+    public static long sum(int[] values, int length) {
+        return KERNELS.sum(values, checkLength(values.length, length));
+    }
+
+    public static int min(int[] values, int length) {
+        return KERNELS.min(values, checkLength(values.length, length));
+    }
+
+    public static int max(int[] values, int length) {
+        return KERNELS.max(values, checkLength(values.length, length));
+    }
+
+    /**
+     * Аналог count { it.salary > threshold }
+     */
+    public static int countGreaterThan(double[] values, int length, double threshold) {
+        return KERNELS.countGreaterThan(values, checkLength(values.length, length), threshold);
+    }
+
+    /**
+     * Аналог count { it.age < threshold }
+     */
+    public static int countLessThan(int[] values, int length, int threshold) {
+        return KERNELS.countLessThan(values, checkLength(values.length, length), threshold);
+    }
+
+    /**
+     * Записывает в selection номера элементов больше порога (вектор выбора) и возвращает их количество.
+     * selection должен вмещать length элементов.
+     */
+    public static int selectGreaterThan(double[] values, int length, double threshold, int[] selection) {
+        checkSelection(selection, checkLength(values.length, length));
+        return KERNELS.selectGreaterThan(values, length, threshold, selection);
+    }
+
+    public static int selectLessThan(int[] values, int length, int threshold, int[] selection) {
+        checkSelection(selection, checkLength(values.length, length));
+        return KERNELS.selectLessThan(values, length, threshold, selection);
+    }
+
+    private static int checkLength(int capacity, int length) {
+        if (length < 0 || length > capacity) {
+            throw new IndexOutOfBoundsException("length: " + length + ", capacity: " + capacity);
+        }
+        return length;
+    }
+
+    private static void checkSelection(int[] selection, int length) {
+        if (selection.length < length) {
+            throw new IllegalArgumentException("selection меньше length: " + selection.length + " < " + length);
+        }
+    }
+
+    // Векторный класс загружается рефлексией и только если модуль доступен: основной код
+    // компилируется без jdk.incubator.vector, а без модуля загрузка дала бы NoClassDefFoundError
+    private static Kernels selectKernels() {
+        boolean enabled = Boolean.parseBoolean(System.getProperty("ru.vood.kotkin.rules.vector", "true"));
+        if (enabled && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (Kernels) Class.forName(VECTOR_KERNELS).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Классов из src/vector/java нет в classpath - работаем скалярно
+            }
+        }
+        return new ScalarKernels();
+    }
+
+    /**
+     * Общий контракт скалярной и векторной реализаций
+     */
+    interface Kernels {
+        double sum(double[] values, int length);
+
+        double min(double[] values, int length);
+
+        double max(double[] values, int length);
+
+        long sum(int[] values, int length);
+
+        int min(int[] values, int length);
+
+        int max(int[] values, int length);
+
+        int countGreaterThan(double[] values, int length, double threshold);
+
+        int countLessThan(int[] values, int length, int threshold);
+
+        int selectGreaterThan(double[] values, int length, double threshold, int[] selection);
+
+        int selectLessThan(int[] values, int length, int threshold, int[] selection);
+    }
+}
@@ -0,0 +1,461 @@
+package ru.vood.kotkin.rules._020_collection
+
+import java.nio.ByteBuffer
+import java.util.Arrays
+import java.util.function.IntConsumer
+
+/**
+ * СЖАТОЕ МНОЖЕСТВО ЦЕЛЫХ ЧИСЕЛ (В СТИЛЕ ROARING BITMAP)
+ *
+ * distinct(), union, intersect на списках кладут каждое значение в HashSet<Integer>:
+ * объект на элемент и хеширование на каждую проверку.
+ * Здесь множество неотрицательных int хранится блоками по 65536 значений (по старшим 16 битам),
+ * и каждый блок выбирает представление сам:
+ * - ArrayContainer - отсортированный массив младших 16 бит, пока значений не больше 4096
+ * - BitmapContainer - битовая карта на 65536 бит (8 КБ), когда значений больше
+ *
+ * and / or / andNot работают поблочно: массив с массивом - слиянием, карта с картой -
+ * операциями над long по 64 значения за раз, cardinality хранится в каждом блоке.
+ *
+ * Множество можно сделать неизменяемым ([asReadOnly]) - так индексы отдают свои множества
+ * наружу без копирования: and/or/andNot по-прежнему работают и возвращают новое множество.
+ */
+class CompressedBitmap private constructor(
+    private var keys: CharArray,
+    private var containers: Array<Container?>,
+    private var containerCount: Int,
+) {
+
+    constructor() : this(CharArray(INITIAL_CONTAINERS), arrayOfNulls(INITIAL_CONTAINERS), 0)
+
+    var isReadOnly: Boolean = false
+        private set
+
+    val cardinality: Int
+        get() {
+            var result = 0
+            for (index in 0 until containerCount) result += container(index).cardinality
+            return result
+        }
+
+    fun isEmpty(): Boolean = containerCount == 0
+
+    fun add(value: Int) {
+        checkWritable()
+        require(value >= 0) { "Поддерживаются только неотрицательные значения: $value" }
+        val index = indexOf(value ushr 16)
+        if (index >= 0) {
+            containers[index] = container(index).add(value and LOW_MASK)
+        } else {
+            insertAt(-index - 1, (value ushr 16).toChar(), ArrayContainer().add(value and LOW_MASK))
+        }
+    }
+
+    fun remove(value: Int) {
+        checkWritable()
+        if (value < 0) return
+        val index = indexOf(value ushr 16)
+        if (index < 0) return
+        val container = container(index).remove(value and LOW_MASK)
+        if (container.cardinality == 0) removeAt(index) else containers[index] = container
+    }
+
+    /**
+     * Запрещает add/remove у этого экземпляра. Изменить множество обратно нельзя -
+     * для изменяемой копии: CompressedBitmap().or(bitmap)
+     */
+    fun asReadOnly(): CompressedBitmap = apply { isReadOnly = true }
+
+    operator fun contains(value: Int): Boolean {
+        if (value < 0) return false
+        val index = indexOf(value ushr 16)
+        return index >= 0 && container(index).contains(value and LOW_MASK)
+    }
+
+    /**
+     * Пересечение: блоки только с совпадающими ключами
+     */
+    fun and(other: CompressedBitmap): CompressedBitmap {
+        val result = CompressedBitmap()
+        var left = 0
+        var right = 0
+        while (left < containerCount && right < other.containerCount) {
+            val leftKey = keys[left]
+            val rightKey = other.keys[right]
+            when {
+                leftKey < rightKey -> left++
+                leftKey > rightKey -> right++
+                else -> {
+                    result.appendNonEmpty(leftKey, container(left++).and(other.container(right++)))
+                }
+            }
+        }
+        return result
+    }
+
+    fun or(other: CompressedBitmap): CompressedBitmap {
+        val result = CompressedBitmap()
+        var left = 0
+        var right = 0
+        while (left < containerCount || right < other.containerCount) {
+            val leftKey = if (left < containerCount) keys[left].code else Int.MAX_VALUE
+            val rightKey = if (right < other.containerCount) other.keys[right].code else Int.MAX_VALUE
+            when {
+                leftKey < rightKey -> result.appendNonEmpty(keys[left], container(left++).copy())
+                leftKey > rightKey -> result.appendNonEmpty(other.keys[right], other.container(right++).copy())
+                else -> result.appendNonEmpty(keys[left], container(left++).or(other.container(right++)))
+            }
+        }
+        return result
+    }
+
+    /**
+     * Разность: значения этого множества, которых нет в other
+     */
+    fun andNot(other: CompressedBitmap): CompressedBitmap {
+        val result = CompressedBitmap()
+        var right = 0
+        for (left in 0 until containerCount) {
+            val key = keys[left]
+            while (right < other.containerCount && other.keys[right] < key) right++
+            if (right < other.containerCount && other.keys[right] == key) {
+                result.appendNonEmpty(key, container(left).andNot(other.container(right)))
+            } else {
+                result.appendNonEmpty(key, container(left).copy())
+            }
+        }
+        return result
+    }
+
+    /**
+     * Обход значений по возрастанию без упаковки в Integer
+     */
+    fun forEach(action: IntConsumer) {
+        for (index in 0 until containerCount) {
+            container(index).forEach(keys[index].code shl 16, action)
+        }
+    }
+
+    fun toIntArray(): IntArray {
+        val result = IntArray(cardinality)
+        var position = 0
+        forEach { result[position++] = it }
+        return result
+    }
+
+    // ----------------------------------------------------------------------
+    // СЕРИАЛИЗАЦИЯ
+    // ----------------------------------------------------------------------
+
+    fun serializedSize(): Int {
+        var size = Int.SIZE_BYTES
+        for (index in 0 until containerCount) size += CONTAINER_HEADER_SIZE + container(index).serializedSize()
+        return size
+    }
+
+    /**
+     * Пишет множество с текущей позиции буфера, порядок байт задает буфер
+     */
+    fun writeTo(buffer: ByteBuffer) {
+        buffer.putInt(containerCount)
+        for (index in 0 until containerCount) {
+            val container = container(index)
+            buffer.putChar(keys[index])
+            buffer.put(if (container is BitmapContainer) BITMAP_CONTAINER else ARRAY_CONTAINER)
+            buffer.putInt(container.cardinality)
+            container.writeTo(buffer)
+        }
+    }
+
+    override fun equals(other: Any?): Boolean =
+        this === other || (other is CompressedBitmap && toIntArray().contentEquals(other.toIntArray()))
+
+    override fun hashCode(): Int = toIntArray().contentHashCode()
+
+    override fun toString(): String = "CompressedBitmap(cardinality=$cardinality)"
+
+    private fun container(index: Int): Container = checkNotNull(containers[index])
+
+    private fun checkWritable() {
+        if (isReadOnly) throw UnsupportedOperationException("Множество только для чтения")
+    }
+
+    // Позиция блока по старшим 16 битам или -(точка вставки) - 1
+    private fun indexOf(high: Int): Int = Arrays.binarySearch(keys, 0, containerCount, high.toChar())
+
+    private fun insertAt(index: Int, key: Char, container: Container) {
+        ensureCapacity()
+        System.arraycopy(keys, index, keys, index + 1, containerCount - index)
+        System.arraycopy(containers, index, containers, index + 1, containerCount - index)
+        keys[index] = key
+        containers[index] = container
+        containerCount++
+    }
+
+    private fun removeAt(index: Int) {
+        System.arraycopy(keys, index + 1, keys, index, containerCount - index - 1)
+        System.arraycopy(containers, index + 1, containers, index, containerCount - index - 1)
+        containers[--containerCount] = null
+    }
+
+    // Ключи приходят по возрастанию - только дописываем в конец
+    private fun appendNonEmpty(key: Char, container: Container) {
+        if (container.cardinality == 0) return
+        ensureCapacity()
+        keys[containerCount] = key
+        containers[containerCount++] = container
+    }
+
+    private fun ensureCapacity() {
+        if (containerCount == keys.size) {
+            keys = keys.copyOf(containerCount * 2)
+            containers = containers.copyOf(containerCount * 2)
+        }
+    }
+
+    companion object {
+        private const val INITIAL_CONTAINERS = 4
+        private const val LOW_MASK = 0xFFFF
+        private const val CONTAINER_HEADER_SIZE = 7 // key + type + cardinality
+        private const val ARRAY_CONTAINER: Byte = 0
+        private const val BITMAP_CONTAINER: Byte = 1
+
+        @JvmStatic
+        fun of(vararg values: Int): CompressedBitmap = CompressedBitmap().apply { values.forEach { add(it) } }
+
+        /**
+         * Читает множество, записанное [writeTo], с текущей позиции буфера
+         */
+        @JvmStatic
+        fun readFrom(buffer: ByteBuffer): CompressedBitmap {
+            val count = buffer.getInt()
+            require(count in 0..(1 shl 16)) { "Некорректное число блоков: $count" }
+            val keys = CharArray(maxOf(count, INITIAL_CONTAINERS))
+            val containers = arrayOfNulls<Container>(keys.size)
+            for (index in 0 until count) {
+                keys[index] = buffer.getChar()
+                val type = buffer.get()
+                val cardinality = buffer.getInt()
+                containers[index] = when (type) {
+                    ARRAY_CONTAINER -> ArrayContainer.readFrom(buffer, cardinality)
+                    BITMAP_CONTAINER -> BitmapContainer.readFrom(buffer, cardinality)
+                    else -> throw IllegalArgumentException("Неизвестный тип блока: $type")
+                }
+            }
+            return CompressedBitmap(keys, containers, count)
+        }
+    }
+}
+
+/**
+ * Блок из 65536 значений. Изменяющие операции возвращают блок, который нужно сохранить
+ * вместо текущего: при переполнении массив превращается в карту и наоборот.
+ */
+internal sealed class Container {
+
+    abstract val cardinality: Int
+
+    abstract fun contains(low: Int): Boolean
+
+    abstract fun add(low: Int): Container
+
+    abstract fun remove(low: Int): Container
+
+    abstract fun copy(): Container
+
+    abstract fun toBitmapContainer(): BitmapContainer
+
+    abstract fun forEach(base: Int, action: IntConsumer)
+
+    abstract fun serializedSize(): Int
+
+    abstract fun writeTo(buffer: ByteBuffer)
+
+    fun and(other: Container): Container = when (this) {
+        is ArrayContainer -> filter(other, keep = true)
+        is BitmapContainer -> when (other) {
+            is ArrayContainer -> other.filter(this, keep = true)
+            is BitmapContainer -> BitmapContainer.fromWords(LongArray(WORDS) { words[it] and other.words[it] })
+        }
+    }
+
+    fun or(other: Container): Container {
+        if (this is ArrayContainer && other is ArrayContainer && cardinality + other.cardinality <= MAX_ARRAY_SIZE) {
+            return merge(other)
+        }
+        val left = toBitmapContainer()
+        val right = other.toBitmapContainer()
+        return BitmapContainer.fromWords(LongArray(WORDS) { left.words[it] or right.words[it] })
+    }
+
+    fun andNot(other: Container): Container = when (this) {
+        is ArrayContainer -> filter(other, keep = false)
+        is BitmapContainer -> {
+            val right = other.toBitmapContainer()
+            BitmapContainer.fromWords(LongArray(WORDS) { words[it] and right.words[it].inv() })
+        }
+    }
+
+    companion object {
+        const val MAX_ARRAY_SIZE = 4096
+        const val WORDS = 1024
+    }
+}
+
+internal class ArrayContainer(
+    private var values: CharArray = CharArray(4),
+    override var cardinality: Int = 0,
+) : Container() {
+
+    override fun contains(low: Int): Boolean = Arrays.binarySearch(values, 0, cardinality, low.toChar()) >= 0
+
+    override fun add(low: Int): Container {
+        val index = Arrays.binarySearch(values, 0, cardinality, low.toChar())
+        if (index >= 0) return this
+        if (cardinality == MAX_ARRAY_SIZE) return toBitmapContainer().add(low)
+        if (cardinality == values.size) values = values.copyOf(minOf(MAX_ARRAY_SIZE, cardinality * 2))
+        val position = -index - 1
+        System.arraycopy(values, position, values, position + 1, cardinality - position)
+        values[position] = low.toChar()
+        cardinality++
+        return this
+    }
+
+    override fun remove(low: Int): Container {
+        val index = Arrays.binarySearch(values, 0, cardinality, low.toChar())
+        if (index < 0) return this
+        System.arraycopy(values, index + 1, values, index, cardinality - index - 1)
+        cardinality--
+        return this
+    }
+
+    override fun copy(): Container = ArrayContainer(values.copyOf(maxOf(cardinality, 1)), cardinality)
+
+    override fun toBitmapContainer(): BitmapContainer {
+        val words = LongArray(WORDS)
+        for (index in 0 until cardinality) {
+            val low = values[index].code
+            words[low ushr 6] = words[low ushr 6] or (1L shl low)
+        }
+        return BitmapContainer(words, cardinality)
+    }
+
+    override fun forEach(base: Int, action: IntConsumer) {
+        for (index in 0 until cardinality) action.accept(base or values[index].code)
+    }
+
+    override fun serializedSize(): Int = cardinality * Char.SIZE_BYTES
+
+    override fun writeTo(buffer: ByteBuffer) {
+        for (index in 0 until cardinality) buffer.putChar(values[index])
+    }
+
+    fun filter(other: Container, keep: Boolean): ArrayContainer {
+        val result = CharArray(maxOf(cardinality, 1))
+        var size = 0
+        for (index in 0 until cardinality) {
+            if (other.contains(values[index].code) == keep) result[size++] = values[index]
+        }
+        return ArrayContainer(result, size)
+    }
+
+    // Слияние двух отсортированных массивов без повторов
+    fun merge(other: ArrayContainer): ArrayContainer {
+        val result = CharArray(maxOf(cardinality + other.cardinality, 1))
+        var left = 0
+        var right = 0
+        var size = 0
+        while (left < cardinality && right < other.cardinality) {
+            val leftValue = values[left]
+            val rightValue = other.values[right]
+            when {
+                leftValue < rightValue -> { result[size++] = leftValue; left++ }
+                leftValue > rightValue -> { result[size++] = rightValue; right++ }
+                else -> { result[size++] = leftValue; left++; right++ }
+            }
+        }
+        while (left < cardinality) result[size++] = values[left++]
+        while (right < other.cardinality) result[size++] = other.values[right++]
+        return ArrayContainer(result, size)
+    }
+
+    companion object {
+        fun readFrom(buffer: ByteBuffer, cardinality: Int): ArrayContainer {
+            require(cardinality in 0..MAX_ARRAY_SIZE) { "Некорректный размер блока-массива: $cardinality" }
+            val values = CharArray(maxOf(cardinality, 1))
+            for (index in 0 until cardinality) values[index] = buffer.getChar()
+            return ArrayContainer(values, cardinality)
+        }
+    }
+}
+
+internal class BitmapContainer(
+    val words: LongArray,
+    override var cardinality: Int,
+) : Container() {
+
+    override fun contains(low: Int): Boolean = words[low ushr 6] and (1L shl low) != 0L
+
+    override fun add(low: Int): Container {
+        val word = words[low ushr 6]
+        val updated = word or (1L shl low)
+        if (updated != word) {
+            words[low ushr 6] = updated
+            cardinality++
+        }
+        return this
+    }
+
+    override fun remove(low: Int): Container {
+        val word = words[low ushr 6]
+        val updated = word and (1L shl low).inv()
+        if (updated == word) return this
+        words[low ushr 6] = updated
+        cardinality--
+        return if (cardinality <= MAX_ARRAY_SIZE) toArrayContainer() else this
+    }
+
+    override fun copy(): Container = BitmapContainer(words.copyOf(), cardinality)
+
+    override fun toBitmapContainer(): BitmapContainer = this
+
+    override fun forEach(base: Int, action: IntConsumer) {
+        for (index in 0 until WORDS) {
+            var word = words[index]
+            while (word != 0L) {
+                action.accept(base or (index shl 6) or java.lang.Long.numberOfTrailingZeros(word))
+                word = word and (word - 1)
+            }
+        }
+    }
+
+    override fun serializedSize(): Int = WORDS * Long.SIZE_BYTES
+
+    override fun writeTo(buffer: ByteBuffer) {
+        for (word in words) buffer.putLong(word)
+    }
+
+    fun toArrayContainer(): ArrayContainer {
+        val values = CharArray(maxOf(cardinality, 1))
+        var size = 0
+        forEach(0) { values[size++] = it.toChar() }
+        return ArrayContainer(values, size)
+    }
+
+    companion object {
+        /**
+         * Результат операции над картами: малые результаты сразу сворачиваются в массив
+         */
+        fun fromWords(words: LongArray): Container {
+            var cardinality = 0
+            for (word in words) cardinality += java.lang.Long.bitCount(word)
+            val bitmap = BitmapContainer(words, cardinality)
+            return if (cardinality <= MAX_ARRAY_SIZE) bitmap.toArrayContainer() else bitmap
+        }
+
+        fun readFrom(buffer: ByteBuffer, cardinality: Int): BitmapContainer {
+            val words = LongArray(WORDS) { buffer.getLong() }
+            return BitmapContainer(words, cardinality)
+        }
+    }
+}
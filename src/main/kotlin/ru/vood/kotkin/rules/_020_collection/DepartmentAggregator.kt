@@ -0,0 +1,138 @@
+package ru.vood.kotkin.rules._020_collection
+
+import java.util.RandomAccess
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.RecursiveTask
+import java.util.function.BiConsumer
+import java.util.function.BinaryOperator
+import java.util.function.Function
+import java.util.function.Supplier
+import java.util.function.ToDoubleFunction
+import java.util.stream.Collector
+import java.util.stream.Stream
+
+/**
+ * ПАРАЛЛЕЛЬНАЯ АГРЕГАЦИЯ ПО ОТДЕЛАМ
+ *
+ * groupingBy(..., averagingDouble(...)) в Java и groupBy { }.mapValues { average() } в Kotlin
+ * сначала раскладывают пользователей по спискам, а потом считают среднее.
+ * Здесь списков нет: источник делится fork-join задачами на диапазоны, каждая задача
+ * копит собственные частичные суммы (count + sum на ключ) без общих блокировок,
+ * а частичные результаты сливаются при join. Количество ключей мало, поэтому слияние
+ * практически бесплатно, и время масштабируется с числом ядер.
+ *
+ * Результат - та же форма Map<K, Double>, что и у groupingBy.
+ */
+class DepartmentAggregator<T, K>(
+    private val key: Function<in T, out K>,
+    private val value: ToDoubleFunction<in T>,
+    private val pool: ForkJoinPool = ForkJoinPool.commonPool(),
+    private val leafSize: Int = DEFAULT_LEAF_SIZE,
+) {
+
+    init {
+        require(leafSize > 0) { "leafSize должен быть положительным: $leafSize" }
+    }
+
+    // Изменяемая ячейка на ключ - без боксинга Double на каждую строку
+    private class Partial {
+        var count: Long = 0
+        var sum: Double = 0.0
+
+        fun add(value: Double) {
+            count++
+            sum += value
+        }
+
+        fun add(other: Partial) {
+            count += other.count
+            sum += other.sum
+        }
+    }
+
+    /**
+     * Среднее по ключу. Списки с произвольным доступом делятся на диапазоны индексов,
+     * остальные коллекции идут через parallelStream с тем же аккумулятором.
+     */
+    fun averages(source: Collection<T>): Map<K, Double> =
+        if (source is List<T> && source is RandomAccess) {
+            finish(pool.invoke(RangeTask(source, 0, source.size)))
+        } else {
+            source.parallelStream().collect(collector())
+        }
+
+    fun averages(source: Stream<T>): Map<K, Double> = source.collect(collector())
+
+    /**
+     * Коллектор с теми же частичными суммами - для стримов из других источников
+     */
+    fun collector(): Collector<T, *, Map<K, Double>> =
+        Collector.of(
+            Supplier { HashMap<K, Partial>() },
+            BiConsumer<HashMap<K, Partial>, T> { partials, item -> accumulate(partials, item) },
+            BinaryOperator<HashMap<K, Partial>> { left, right -> merge(left, right) },
+            Function<HashMap<K, Partial>, Map<K, Double>> { finish(it) },
+            Collector.Characteristics.UNORDERED,
+        )
+
+    private fun accumulate(partials: HashMap<K, Partial>, item: T) {
+        partials.getOrPut(key.apply(item)) { Partial() }.add(value.applyAsDouble(item))
+    }
+
+    private fun merge(left: HashMap<K, Partial>, right: HashMap<K, Partial>): HashMap<K, Partial> {
+        val (big, small) = if (left.size >= right.size) left to right else right to left
+        small.forEach { (group, partial) ->
+            big.getOrPut(group) { Partial() }.add(partial)
+        }
+        return big
+    }
+
+    private fun finish(partials: HashMap<K, Partial>): Map<K, Double> =
+        partials.mapValuesTo(HashMap<K, Double>(partials.size * 2)) { (_, partial) -> partial.sum / partial.count }
+
+    private inner class RangeTask(
+        private val source: List<T>,
+        private val from: Int,
+        private val to: Int,
+    ) : RecursiveTask<HashMap<K, Partial>>() {
+
+        override fun compute(): HashMap<K, Partial> {
+            if (to - from <= leafSize) {
+                val partials = HashMap<K, Partial>()
+                for (i in from until to) accumulate(partials, source[i])
+                return partials
+            }
+            val middle = (from + to) ushr 1
+            val left = RangeTask(source, from, middle).fork()
+            val right = RangeTask(source, middle, to).compute()
+            return merge(left.join(), right)
+        }
+    }
+
+    companion object {
+        const val DEFAULT_LEAF_SIZE = 16_384
+
+        /**
+         * Java: DepartmentAggregator.averaging(users, User::getDepartment, User::getSalary)
+         */
+        @JvmStatic
+        fun <T, K> averaging(
+            source: Collection<T>,
+            key: Function<in T, out K>,
+            value: ToDoubleFunction<in T>,
+        ): Map<K, Double> = DepartmentAggregator(key, value).averages(source)
+    }
+}
+
+/**
+ * Параллельный аналог groupBy { it.department }.mapValues { average() }
+ */
+fun Collection<User>.averageSalaryByDepartmentParallel(): Map<String, Double> =
+    DepartmentAggregator<User, String>({ it.department }, { it.salary }).averages(this)
+
+/**
+ * То же с ключом-value class. Агрегация идет по строке, а Department создается
+ * только для итоговых ключей, а не на каждую строку.
+ */
+fun Collection<User>.averageSalaryByDepartmentKeyParallel(): Map<Department, Double> =
+    averageSalaryByDepartmentParallel().mapKeys { (department, _) -> Department(department) }
@@ -0,0 +1,83 @@
+package ru.vood.kotkin.rules._020_collection
+
+/**
+ * Реестр отделов для value class [Department]: каждому отделу - плотный номер (ordinal).
+ *
+ * Сам Department - это просто String в runtime, поэтому кешировать в нем нечего,
+ * но строка из реестра каноническая (одна на отдел), а по номеру отдела группировка
+ * идет индексом в массиве вместо хеширования в HashMap.
+ *
+ * Номер на строке не хранится: [groupBy] и [averageBy] получают его через [ordinal],
+ * то есть один поиск в HashMap на строку остается (хеш String при этом закеширован).
+ * Выигрыш - корзины в массиве по номеру вместо HashMap<Department, MutableList> и
+ * примитивные счетчики вместо Double на каждый ключ. Совсем без хеширования на строку
+ * группирует [UserTable]: там код отдела - колонка, см. UserTable.averageSalaryByDepartment.
+ *
+ * Реестр не потокобезопасен - как и [StringDictionary], на котором он построен.
+ */
+class DepartmentRegistry {
+
+    private val dictionary = StringDictionary()
+
+    val size: Int
+        get() = dictionary.size
+
+    /**
+     * Отдел с канонической строкой, регистрирует новый при первом обращении
+     */
+    fun intern(value: String): Department = department(dictionary.encode(value))
+
+    /**
+     * Поиск в словаре (хеш строки), регистрирует новый отдел при первом обращении
+     */
+    fun ordinal(department: Department): Int = dictionary.encode(department.value)
+
+    fun department(ordinal: Int): Department = Department(dictionary.decode(ordinal))
+
+    /**
+     * Аналог groupBy { Department(...) }: корзины лежат в массиве по ordinal
+     */
+    fun <T> groupBy(items: Iterable<T>, departmentOf: (T) -> Department): Map<Department, List<T>> {
+        val buckets = ArrayList<MutableList<T>?>()
+        for (item in items) {
+            val ordinal = ordinal(departmentOf(item))
+            while (buckets.size <= ordinal) buckets.add(null)
+            (buckets[ordinal] ?: ArrayList<T>().also { buckets[ordinal] = it }).add(item)
+        }
+        val result = LinkedHashMap<Department, List<T>>()
+        buckets.forEachIndexed { ordinal, bucket ->
+            if (bucket != null) result[department(ordinal)] = bucket
+        }
+        return result
+    }
+
+    /**
+     * Аналог groupBy { }.mapValues { average() }: суммы и счетчики - примитивные массивы по ordinal
+     */
+    fun <T> averageBy(
+        items: Iterable<T>,
+        departmentOf: (T) -> Department,
+        value: (T) -> Double,
+    ): Map<Department, Double> {
+        var counts = LongArray(maxOf(size, 1))
+        var sums = DoubleArray(counts.size)
+        for (item in items) {
+            val ordinal = ordinal(departmentOf(item))
+            if (ordinal >= counts.size) {
+                val length = maxOf(ordinal + 1, counts.size * 2)
+                counts = counts.copyOf(length)
+                sums = sums.copyOf(length)
+            }
+            counts[ordinal]++
+            sums[ordinal] += value(item)
+        }
+        val result = LinkedHashMap<Department, Double>()
+        for (ordinal in counts.indices) {
+            if (counts[ordinal] > 0) result[department(ordinal)] = sums[ordinal] / counts[ordinal]
+        }
+        return result
+    }
+}
+
+fun Iterable<User>.averageSalaryByDepartment(registry: DepartmentRegistry): Map<Department, Double> =
+    registry.averageBy(this, { Department(it.department) }, { it.salary })
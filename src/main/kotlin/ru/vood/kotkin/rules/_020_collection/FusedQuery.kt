@@ -0,0 +1,122 @@
+package ru.vood.kotkin.rules._020_collection
+
+import java.util.function.Function
+import java.util.function.Predicate
+
+/**
+ * СЛИТАЯ ЦЕПОЧКА filter / sorted / take / map
+ *
+ * users.filter { }.filter { }.sortedByDescending { }.take(2).map { } создает новый список
+ * на каждом шаге, а Java Stream все равно сортирует весь поток перед limit.
+ * FusedQuery только запоминает шаги, а выполняет их одним проходом:
+ * - соседние filter склеиваются в один предикат
+ * - sorted + take превращается в [TopK] - куча на take элементов вместо сортировки
+ * - take без сортировки останавливает обход, как только набрано нужное количество
+ * - map применяется только к попавшим в результат элементам
+ *
+ * Объект неизменяемый: каждый шаг возвращает новый запрос, исходный можно переиспользовать.
+ * filter и sorted после take не поддерживаются - они меняют смысл take.
+ */
+class FusedQuery<T> private constructor(
+    private val source: Iterable<T>,
+    private val predicate: Predicate<in T>?,
+    private val comparator: Comparator<in T>?,
+    private val limit: Int,
+) {
+
+    fun filter(predicate: Predicate<in T>): FusedQuery<T> {
+        check(limit == NO_LIMIT) { "filter после take не поддерживается" }
+        val previous = this.predicate
+        val merged: Predicate<in T> = if (previous == null) predicate else Predicate<T> { previous.test(it) && predicate.test(it) }
+        return FusedQuery(source, merged, comparator, limit)
+    }
+
+    /**
+     * Повторная сортировка равносильна сортировке по новому ключу с уточнением по старому
+     * (сортировка стабильна), поэтому компараторы склеиваются, а не применяются по очереди
+     */
+    fun sortedWith(comparator: Comparator<in T>): FusedQuery<T> {
+        check(limit == NO_LIMIT) { "sorted после take не поддерживается" }
+        val previous = this.comparator
+        val merged: Comparator<in T> = if (previous == null) comparator else Comparator<T> { left, right ->
+            val result = comparator.compare(left, right)
+            if (result != 0) result else previous.compare(left, right)
+        }
+        return FusedQuery(source, predicate, merged, limit)
+    }
+
+    inline fun <R : Comparable<R>> sortedBy(crossinline selector: (T) -> R?): FusedQuery<T> =
+        sortedWith(compareBy(selector))
+
+    inline fun <R : Comparable<R>> sortedByDescending(crossinline selector: (T) -> R?): FusedQuery<T> =
+        sortedWith(compareByDescending(selector))
+
+    fun take(count: Int): FusedQuery<T> {
+        require(count >= 0) { "count не может быть отрицательным: $count" }
+        val merged = if (limit == NO_LIMIT) count else minOf(limit, count)
+        return FusedQuery(source, predicate, comparator, merged)
+    }
+
+    fun toList(): List<T> {
+        val comparator = comparator
+        return when {
+            comparator == null -> scan()
+            limit == NO_LIMIT -> scan().also { it.sortWith(comparator) }
+            else -> {
+                val top = TopK(limit, comparator, if (source is Collection<*>) source.size else TopK.UNKNOWN_SIZE)
+                forEachMatching { top.offer(it) }
+                top.toList()
+            }
+        }
+    }
+
+    fun <R> map(transform: Function<in T, out R>): List<R> = toList().map { transform.apply(it) }
+
+    fun count(): Int {
+        if (limit == 0) return 0
+        var count = 0
+        forEachMatchingWhile {
+            count++
+            limit == NO_LIMIT || count < limit
+        }
+        return count
+    }
+
+    // Без сортировки take останавливает обход сразу после набора нужного количества
+    private fun scan(): ArrayList<T> {
+        val result = ArrayList<T>()
+        if (limit == 0) return result
+        forEachMatchingWhile {
+            result.add(it)
+            limit == NO_LIMIT || result.size < limit
+        }
+        return result
+    }
+
+    private inline fun forEachMatching(action: (T) -> Unit) = forEachMatchingWhile {
+        action(it)
+        true
+    }
+
+    // action возвращает false, когда обход можно прекратить
+    private inline fun forEachMatchingWhile(action: (T) -> Boolean) {
+        val predicate = predicate
+        for (item in source) {
+            if (predicate == null || predicate.test(item)) {
+                if (!action(item)) return
+            }
+        }
+    }
+
+    companion object {
+        private const val NO_LIMIT = -1
+
+        /**
+         * Java: FusedQuery.from(users).filter(...).sortedWith(...).take(2).map(...)
+         */
+        @JvmStatic
+        fun <T> from(source: Iterable<T>): FusedQuery<T> = FusedQuery(source, null, null, NO_LIMIT)
+    }
+}
+
+fun <T> Iterable<T>.fusedQuery(): FusedQuery<T> = FusedQuery.from(this)
@@ -0,0 +1,108 @@
+package ru.vood.kotkin.rules._020_collection
+
+/**
+ * Map int -> неотрицательный int (например, id -> номер строки) без боксинга.
+ *
+ * HashMap<Int, Int> создает Entry и два Integer на каждую запись.
+ * Здесь ключи и значения лежат в двух массивах: открытая адресация с линейным
+ * пробированием, удаление - сдвигом следующих записей назад, как в ClientMap.
+ * Ключ может быть любым int, пустой слот помечается значением [NO_VALUE].
+ */
+internal class IntIntMap(expectedSize: Int = 16) {
+
+    private var keys = IntArray(tableSizeFor(expectedSize))
+    private var values = IntArray(keys.size).apply { fill(NO_VALUE) }
+
+    var size: Int = 0
+        private set
+
+    /**
+     * Значение по ключу или [NO_VALUE]
+     */
+    operator fun get(key: Int): Int = values[slotOf(key)]
+
+    operator fun contains(key: Int): Boolean = values[slotOf(key)] != NO_VALUE
+
+    /**
+     * Возвращает предыдущее значение или [NO_VALUE]
+     */
+    fun put(key: Int, value: Int): Int {
+        require(value >= 0) { "Значение не может быть отрицательным: $value" }
+        val slot = slotOf(key)
+        val previous = values[slot]
+        keys[slot] = key
+        values[slot] = value
+        if (previous == NO_VALUE && ++size * 2 > keys.size) rehash()
+        return previous
+    }
+
+    operator fun set(key: Int, value: Int) {
+        put(key, value)
+    }
+
+    /**
+     * Возвращает удаленное значение или [NO_VALUE]
+     */
+    fun remove(key: Int): Int {
+        var slot = slotOf(key)
+        val removed = values[slot]
+        if (removed == NO_VALUE) return NO_VALUE
+        // Сдвигаем назад записи, которые без освободившегося слота стали бы недостижимы
+        val mask = keys.size - 1
+        var next = slot
+        while (true) {
+            next = (next + 1) and mask
+            if (values[next] == NO_VALUE) break
+            val homeSlot = home(keys[next])
+            val reachable = if (slot <= next) homeSlot in (slot + 1)..next else homeSlot in (slot + 1)..mask || homeSlot <= next
+            if (!reachable) {
+                keys[slot] = keys[next]
+                values[slot] = values[next]
+                slot = next
+            }
+        }
+        values[slot] = NO_VALUE
+        size--
+        return removed
+    }
+
+    private fun home(key: Int): Int {
+        val spread = key * -0x61c88647 // 0x9E3779B9
+        return (spread xor (spread ushr 16)) and (keys.size - 1)
+    }
+
+    private fun slotOf(key: Int): Int {
+        val mask = keys.size - 1
+        var slot = home(key)
+        while (values[slot] != NO_VALUE && keys[slot] != key) {
+            slot = (slot + 1) and mask
+        }
+        return slot
+    }
+
+    private fun rehash() {
+        val oldKeys = keys
+        val oldValues = values
+        keys = IntArray(oldKeys.size * 2)
+        values = IntArray(keys.size).apply { fill(NO_VALUE) }
+        for (index in oldKeys.indices) {
+            if (oldValues[index] == NO_VALUE) continue
+            val slot = slotOf(oldKeys[index])
+            keys[slot] = oldKeys[index]
+            values[slot] = oldValues[index]
+        }
+    }
+
+    companion object {
+        const val NO_VALUE = -1
+
+        private const val MAX_TABLE_SIZE = 1 shl 30
+
+        // Таблица - степень двойки, заполнена не больше чем наполовину
+        private fun tableSizeFor(expectedSize: Int): Int {
+            require(expectedSize >= 0) { "expectedSize не может быть отрицательным: $expectedSize" }
+            val required = maxOf(expectedSize.toLong() * 2, 16L)
+            return if (required >= MAX_TABLE_SIZE) MAX_TABLE_SIZE else Integer.highestOneBit((required - 1).toInt()) shl 1
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ru.vood.kotkin.rules._020_collection
+
+/**
+ * Растущий список примитивных int без боксинга.
+ *
+ * В отличие от MutableList<Int> не создает Integer на каждый элемент -
+ * используется для номеров строк (row id) в колоночных структурах.
+ */
+class IntList(initialCapacity: Int = 16) {
+
+    private var values = IntArray(maxOf(initialCapacity, 1))
+
+    var size: Int = 0
+        private set
+
+    fun add(value: Int) {
+        if (size == values.size) {
+            values = values.copyOf(values.size * 2)
+        }
+        values[size++] = value
+    }
+
+    operator fun get(index: Int): Int {
+        if (index >= size) throw IndexOutOfBoundsException("index: $index, size: $size")
+        return values[index]
+    }
+
+    fun isEmpty(): Boolean = size == 0
+
+    fun clear() {
+        size = 0
+    }
+
+    fun toIntArray(): IntArray = values.copyOf(size)
+
+    override fun toString(): String = toIntArray().contentToString()
+}
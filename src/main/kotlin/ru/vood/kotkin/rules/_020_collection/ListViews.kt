@@ -0,0 +1,109 @@
+package ru.vood.kotkin.rules._020_collection
+
+import java.util.Optional
+import java.util.RandomAccess
+import java.util.function.Predicate
+
+/**
+ * ПРЕДСТАВЛЕНИЯ И ПОИСК С КОНЦА ДЛЯ RandomAccess СПИСКОВ
+ *
+ * - stream().filter(...).reduce((first, second) -> second) проверяет все элементы,
+ *   хотя последний подходящий проще искать с конца и остановиться на первом найденном
+ * - takeLast, chunked, windowed копируют элементы в новые списки
+ *
+ * Здесь поиск идет с конца, а takeLast/chunked/windowed возвращают представления
+ * (subList и списки из subList) - O(1) памяти на окно, без копирования элементов.
+ * Представления живые: отражают изменения элементов исходного списка,
+ * а после структурного изменения (add/remove) исходного списка становятся недействительными.
+ * Для списков без RandomAccess (LinkedList) доступ по индексу дорогой,
+ * поэтому chunked/windowed для них откатываются к обычным копирующим версиям.
+ *
+ * В Kotlin last { } и lastOrNull { } для List уже идут с конца, поиск здесь нужен Java-коду.
+ *
+ * Java: ListViews.findLast(users, User::isActive), ListViews.chunkedView(users, 100)
+ */
+object ListViews {
+
+    /**
+     * Последний элемент, удовлетворяющий условию - обход с конца до первого совпадения
+     */
+    @JvmStatic
+    fun <T> lastOrNull(list: List<T>, predicate: Predicate<in T>): T? {
+        if (list is RandomAccess) {
+            for (index in list.indices.reversed()) {
+                val item = list[index]
+                if (predicate.test(item)) return item
+            }
+            return null
+        }
+        val iterator = list.listIterator(list.size)
+        while (iterator.hasPrevious()) {
+            val item = iterator.previous()
+            if (predicate.test(item)) return item
+        }
+        return null
+    }
+
+    @JvmStatic
+    fun <T : Any> findLast(list: List<T>, predicate: Predicate<in T>): Optional<T> =
+        Optional.ofNullable(lastOrNull(list, predicate))
+
+    /**
+     * Последние count элементов без копирования
+     */
+    @JvmStatic
+    fun <T> takeLastView(list: List<T>, count: Int): List<T> {
+        require(count >= 0) { "count не может быть отрицательным: $count" }
+        return list.subList(maxOf(0, list.size - count), list.size)
+    }
+
+    /**
+     * Части по size элементов, последняя может быть короче
+     */
+    @JvmStatic
+    fun <T> chunkedView(list: List<T>, size: Int): List<List<T>> = windowedView(list, size, size, true)
+
+    @JvmStatic
+    @JvmOverloads
+    fun <T> windowedView(list: List<T>, size: Int, step: Int = 1, partialWindows: Boolean = false): List<List<T>> {
+        require(size > 0 && step > 0) { "size и step должны быть положительными: size=$size, step=$step" }
+        if (list !is RandomAccess) return list.windowed(size, step, partialWindows)
+        return WindowedView(list, size, step, partialWindows)
+    }
+}
+
+/**
+ * Окна как subList исходного списка: окно создается только при обращении к нему
+ */
+private class WindowedView<T>(
+    private val source: List<T>,
+    private val windowSize: Int,
+    private val step: Int,
+    partialWindows: Boolean,
+) : AbstractList<List<T>>(), RandomAccess {
+
+    override val size: Int = when {
+        partialWindows -> (source.size + step - 1) / step
+        source.size < windowSize -> 0
+        else -> (source.size - windowSize) / step + 1
+    }
+
+    override fun get(index: Int): List<T> {
+        if (index < 0 || index >= size) throw IndexOutOfBoundsException("index: $index, size: $size")
+        val from = index * step
+        return source.subList(from, minOf(source.size, from + windowSize))
+    }
+}
+
+fun <T> List<T>.takeLastView(count: Int): List<T> = ListViews.takeLastView(this, count)
+
+/**
+ * Аналог chunked(size) без копирования элементов
+ */
+fun <T> List<T>.chunkedView(size: Int): List<List<T>> = ListViews.chunkedView(this, size)
+
+/**
+ * Аналог windowed(size, step, partialWindows) без копирования элементов
+ */
+fun <T> List<T>.windowedView(size: Int, step: Int = 1, partialWindows: Boolean = false): List<List<T>> =
+    ListViews.windowedView(this, size, step, partialWindows)
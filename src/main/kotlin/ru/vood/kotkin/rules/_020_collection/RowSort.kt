@@ -0,0 +1,65 @@
+package ru.vood.kotkin.rules._020_collection
+
+/**
+ * Компаратор номеров строк.
+ *
+ * Сравнивает не объекты, а их индексы в колонках, поэтому сортировка
+ * идет по примитивным массивам без создания User и без боксинга.
+ */
+fun interface RowComparator {
+    fun compare(left: Int, right: Int): Int
+
+    fun thenComparing(other: RowComparator): RowComparator = RowComparator { left, right ->
+        val result = compare(left, right)
+        if (result != 0) result else other.compare(left, right)
+    }
+}
+
+private const val INSERTION_SORT_THRESHOLD = 24
+
+/**
+ * Стабильная сортировка массива номеров строк (merge sort).
+ *
+ * Стабильность важна: sortedBy/sortedWith в Kotlin и sorted() в Java Stream
+ * стабильны, и результат должен совпадать с ними при равных ключах.
+ */
+fun IntArray.sortRowsWith(comparator: RowComparator) {
+    if (size < 2) return
+    mergeSort(this, copyOf(), 0, size, comparator)
+}
+
+// src и dst содержат одинаковые данные на входе, результат оказывается в dst
+private fun mergeSort(dst: IntArray, src: IntArray, from: Int, to: Int, comparator: RowComparator) {
+    val length = to - from
+    if (length <= INSERTION_SORT_THRESHOLD) {
+        for (i in from + 1 until to) {
+            val row = dst[i]
+            var j = i - 1
+            while (j >= from && comparator.compare(dst[j], row) > 0) {
+                dst[j + 1] = dst[j]
+                j--
+            }
+            dst[j + 1] = row
+        }
+        return
+    }
+    val middle = (from + to) ushr 1
+    mergeSort(src, dst, from, middle, comparator)
+    mergeSort(src, dst, middle, to, comparator)
+
+    // Половины уже упорядочены друг относительно друга - слияние не нужно
+    if (comparator.compare(src[middle - 1], src[middle]) <= 0) {
+        System.arraycopy(src, from, dst, from, length)
+        return
+    }
+
+    var left = from
+    var right = middle
+    for (i in from until to) {
+        dst[i] = if (right >= to || (left < middle && comparator.compare(src[left], src[right]) <= 0)) {
+            src[left++]
+        } else {
+            src[right++]
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ru.vood.kotkin.rules._020_collection;
+
+/**
+ * Скалярная реализация ядер - запасной вариант без jdk.incubator.vector
+ * и эталон для сравнения в бенчмарке.
+ */
+final class ScalarKernels implements ColumnKernels.Kernels {
+
+    @Override
+    public double sum(double[] values, int length) {
+        double sum = 0.0;
+        for (int i = 0; i < length; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public double min(double[] values, int length) {
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < length; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    @Override
+    public double max(double[] values, int length) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < length; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    @Override
+    public long sum(int[] values, int length) {
+        long sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public int min(int[] values, int length) {
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < length; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    @Override
+    public int max(int[] values, int length) {
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < length; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    @Override
+    public int countGreaterThan(double[] values, int length, double threshold) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (values[i] > threshold) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int countLessThan(int[] values, int length, int threshold) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (values[i] < threshold) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int selectGreaterThan(double[] values, int length, double threshold, int[] selection) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (values[i] > threshold) {
+                selection[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int selectLessThan(int[] values, int length, int threshold, int[] selection) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (values[i] < threshold) {
+                selection[count++] = i;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,144 @@
+package ru.vood.kotkin.rules._020_collection
+
+import java.util.RandomAccess
+
+/**
+ * КЭШ ОТСОРТИРОВАННЫХ ПРЕДСТАВЛЕНИЙ
+ *
+ * sortedBy { it.age }, sortedByDescending { it.salary }, sortedWith(...) на каждый запрос
+ * копируют список и сортируют его заново, хотя интерфейс постоянно просит одни и те же 3-4 порядка.
+ * Здесь для каждого компаратора один раз строится перестановка - массив номеров строк
+ * в отсортированном порядке, - а наружу отдается список-представление поверх нее, без копий.
+ *
+ * Изменения идут через кэш (add / set / removeAt) и исправляют перестановки на месте:
+ * позиция ищется бинарным поиском, хвост сдвигается - O(n) сдвига вместо O(n log n) сортировки.
+ * Порядок равных элементов - как у стабильной сортировки: по номеру строки.
+ *
+ * Компаратор - ключ кэша, поэтому его нужно хранить в константе или поле, а не создавать
+ * на каждый запрос. Хранится не больше maxOrderings порядков, давно не использованные вытесняются.
+ * Класс не потокобезопасен.
+ */
+class SortedViewCache<T> @JvmOverloads constructor(
+    items: Collection<T> = emptyList(),
+    private val maxOrderings: Int = 8,
+) {
+
+    init {
+        require(maxOrderings > 0) { "maxOrderings должен быть положительным: $maxOrderings" }
+    }
+
+    private val items = ArrayList<T>(items)
+
+    private val orderings = object : LinkedHashMap<Comparator<in T>, Ordering>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Comparator<in T>, Ordering>): Boolean {
+            val evict = size > maxOrderings
+            if (evict) eldest.value.stale = true
+            return evict
+        }
+    }
+
+    val size: Int get() = items.size
+
+    operator fun get(index: Int): T = items[index]
+
+    /**
+     * Живое представление в порядке comparator: отражает последующие add / set / removeAt
+     */
+    fun sorted(comparator: Comparator<in T>): List<T> = SortedView(comparator, orderingFor(comparator))
+
+    fun add(item: T) {
+        val row = items.size
+        items.add(item)
+        orderings.values.forEach { it.insert(item, row) }
+    }
+
+    operator fun set(index: Int, item: T): T {
+        val previous = items[index]
+        // Сначала убираем строку со старым значением - поиск идет по нему
+        orderings.values.forEach { it.remove(previous, index) }
+        items[index] = item
+        orderings.values.forEach { it.insert(item, index) }
+        return previous
+    }
+
+    fun removeAt(index: Int): T {
+        val previous = items[index]
+        orderings.values.forEach { it.remove(previous, index) }
+        items.removeAt(index)
+        orderings.values.forEach { it.shiftAfterRemoval(index) }
+        return previous
+    }
+
+    /**
+     * Сбрасывает все перестановки, например после изменения элементов извне
+     */
+    fun invalidate() {
+        orderings.values.forEach { it.stale = true }
+        orderings.clear()
+    }
+
+    private fun orderingFor(comparator: Comparator<in T>): Ordering =
+        orderings.getOrPut(comparator) { Ordering(comparator) }
+
+    private inner class Ordering(private val comparator: Comparator<in T>) {
+
+        var order: IntArray = IntArray(items.size) { it }.apply {
+            sortRowsWith { left, right -> comparator.compare(items[left], items[right]) }
+        }
+            private set
+
+        var stale = false
+
+        fun insert(item: T, row: Int) {
+            val count = items.size - 1
+            if (count == order.size) order = order.copyOf(maxOf(16, count * 2))
+            val position = position(item, row, count)
+            System.arraycopy(order, position, order, position + 1, count - position)
+            order[position] = row
+        }
+
+        fun remove(item: T, row: Int) {
+            val count = items.size
+            val position = position(item, row, count)
+            check(position < count && order[position] == row) { "Строка $row не найдена в перестановке" }
+            System.arraycopy(order, position + 1, order, position, count - position - 1)
+        }
+
+        // Номера строк после удаленной сдвигаются на одну позицию, как в ArrayList
+        fun shiftAfterRemoval(removed: Int) {
+            for (position in 0 until items.size) {
+                if (order[position] > removed) order[position]--
+            }
+        }
+
+        // Первая позиция, где пара (элемент, строка) не меньше искомой
+        private fun position(item: T, row: Int, count: Int): Int {
+            var low = 0
+            var high = count
+            while (low < high) {
+                val middle = (low + high) ushr 1
+                val other = order[middle]
+                val result = comparator.compare(items[other], item).let { if (it != 0) it else other.compareTo(row) }
+                if (result < 0) low = middle + 1 else high = middle
+            }
+            return low
+        }
+    }
+
+    private inner class SortedView(
+        private val comparator: Comparator<in T>,
+        private var current: Ordering,
+    ) : AbstractList<T>(), RandomAccess {
+
+        override val size: Int get() = items.size
+
+        override fun get(index: Int): T {
+            if (index < 0 || index >= items.size) throw IndexOutOfBoundsException("index: $index, size: ${items.size}")
+            // Вытесненный порядок больше не исправляется - берем актуальный из кэша
+            if (current.stale) current = orderingFor(comparator)
+            return items[current.order[index]]
+        }
+    }
+}
+
+fun <T> Collection<T>.sortedViewCache(): SortedViewCache<T> = SortedViewCache(this)
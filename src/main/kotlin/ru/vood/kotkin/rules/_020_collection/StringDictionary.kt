@@ -0,0 +1,54 @@
+package ru.vood.kotkin.rules._020_collection
+
+/**
+ * Словарное кодирование строк (dictionary encoding).
+ *
+ * Каждой уникальной строке выдается плотный int-код в порядке первого появления.
+ * Колонки хранят только коды, строка лежит в памяти в единственном экземпляре,
+ * а группировка по коду - это индекс в массиве вместо хеширования строки.
+ */
+class StringDictionary {
+
+    private val codes = HashMap<String, Int>()
+    private val values = ArrayList<String>()
+
+    val size: Int
+        get() = values.size
+
+    /**
+     * Возвращает код строки, добавляя ее в словарь при первом обращении
+     */
+    fun encode(value: String): Int =
+        codes.getOrPut(value) {
+            values.add(value)
+            values.size - 1
+        }
+
+    /**
+     * Код уже известной строки или [NO_CODE], если строки в словаре нет
+     */
+    fun codeOf(value: String): Int = codes[value] ?: NO_CODE
+
+    fun decode(code: Int): String = values[code]
+
+    /**
+     * Все значения в порядке выдачи кодов (он же порядок первого появления)
+     */
+    fun values(): List<String> = values.toList()
+
+    /**
+     * Ранг каждого кода при лексикографической сортировке значений.
+     * Позволяет сортировать по строковой колонке, сравнивая int.
+     */
+    fun sortRanks(): IntArray {
+        val order = IntArray(size) { it }
+        order.sortRowsWith { left, right -> values[left].compareTo(values[right]) }
+        val ranks = IntArray(size)
+        order.forEachIndexed { rank, code -> ranks[code] = rank }
+        return ranks
+    }
+
+    companion object {
+        const val NO_CODE = -1
+    }
+}
@@ -0,0 +1,178 @@
+package ru.vood.kotkin.rules._020_collection
+
+import java.util.function.BiConsumer
+import java.util.function.BinaryOperator
+import java.util.function.Function
+import java.util.function.Supplier
+import java.util.stream.Collector
+
+/**
+ * ВЫБОР TOP-K БЕЗ ПОЛНОЙ СОРТИРОВКИ
+ *
+ * sortedByDescending { }.take(k) и sorted(...).limit(k) сортируют весь список
+ * ради нескольких элементов: O(n log n) и копия всего списка.
+ * TopK держит ограниченную кучу из k лучших элементов: O(n log k) и O(k) памяти.
+ *
+ * Результат совпадает с sortedWith(comparator).take(k), включая порядок равных
+ * элементов: к каждому элементу приписан порядковый номер, и при равенстве
+ * по компаратору раньше идет тот, что пришел раньше (как в стабильной сортировке).
+ * Частичные результаты можно объединять ([merge]) - коллектор работает с parallel().
+ *
+ * Куча растет по мере поступления элементов и не больше k: topK(Int.MAX_VALUE, ...)
+ * по короткому списку не выделяет массив на 2 млрд элементов.
+ * expectedSize - сколько элементов ожидается (если известно), чтобы сразу выделить min(k, expectedSize).
+ */
+class TopK<T> @JvmOverloads constructor(
+    val k: Int,
+    private val comparator: Comparator<in T>,
+    expectedSize: Int = UNKNOWN_SIZE,
+) {
+
+    init {
+        require(k >= 0) { "k не может быть отрицательным: $k" }
+    }
+
+    // Max-куча: в корне худший из отобранных элементов
+    private var items = arrayOfNulls<Any?>(minOf(k, if (expectedSize < 0) DEFAULT_CAPACITY else expectedSize))
+    private var sequences = LongArray(items.size)
+
+    var size: Int = 0
+        private set
+
+    // Сколько элементов было предложено - из этого счетчика берутся порядковые номера
+    private var seen: Long = 0
+
+    fun offer(item: T) {
+        offer(item, seen++)
+    }
+
+    private fun offer(item: T, sequence: Long) {
+        if (size < k) {
+            if (size == items.size) grow()
+            items[size] = item
+            sequences[size] = sequence
+            siftUp(size++)
+        } else if (k > 0 && compare(item, sequence, 0) < 0) {
+            items[0] = item
+            sequences[0] = sequence
+            siftDown(0)
+        }
+    }
+
+    /**
+     * Объединяет с результатом, посчитанным по СЛЕДУЮЩЕЙ части данных
+     */
+    fun merge(other: TopK<T>): TopK<T> {
+        for (slot in 0 until other.size) {
+            offer(other.item(slot), seen + other.sequences[slot])
+        }
+        seen += other.seen
+        return this
+    }
+
+    /**
+     * Отобранные элементы в порядке компаратора
+     */
+    fun toList(): List<T> {
+        val order = IntArray(size) { it }
+        order.sortRowsWith { left, right -> compare(item(left), sequences[left], right) }
+        return order.map { item(it) }
+    }
+
+    // Удвоение, но не больше k
+    private fun grow() {
+        val capacity = minOf(k.toLong(), maxOf(items.size * 2L, DEFAULT_CAPACITY.toLong())).toInt()
+        items = items.copyOf(capacity)
+        sequences = sequences.copyOf(capacity)
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun item(slot: Int): T = items[slot] as T
+
+    private fun compare(item: T, sequence: Long, slot: Int): Int {
+        val result = comparator.compare(item, item(slot))
+        return if (result != 0) result else sequence.compareTo(sequences[slot])
+    }
+
+    private fun siftUp(start: Int) {
+        var child = start
+        while (child > 0) {
+            val parent = (child - 1) ushr 1
+            if (compare(item(child), sequences[child], parent) <= 0) return
+            swap(child, parent)
+            child = parent
+        }
+    }
+
+    private fun siftDown(start: Int) {
+        var parent = start
+        while (true) {
+            val left = 2 * parent + 1
+            if (left >= size) return
+            val right = left + 1
+            val worst = if (right < size && compare(item(right), sequences[right], left) > 0) right else left
+            if (compare(item(parent), sequences[parent], worst) >= 0) return
+            swap(parent, worst)
+            parent = worst
+        }
+    }
+
+    private fun swap(first: Int, second: Int) {
+        val item = items[first]
+        items[first] = items[second]
+        items[second] = item
+        val sequence = sequences[first]
+        sequences[first] = sequences[second]
+        sequences[second] = sequence
+    }
+
+    companion object {
+
+        const val UNKNOWN_SIZE = -1
+
+        private const val DEFAULT_CAPACITY = 16
+
+        /**
+         * Java: users.stream().collect(TopK.collector(100, comparator))
+         * вместо sorted(comparator).limit(100)
+         */
+        @JvmStatic
+        fun <T> collector(k: Int, comparator: Comparator<in T>): Collector<T, *, List<T>> =
+            Collector.of(
+                Supplier { TopK<T>(k, comparator) },
+                BiConsumer<TopK<T>, T> { top, item -> top.offer(item) },
+                BinaryOperator<TopK<T>> { left, right -> left.merge(right) },
+                Function<TopK<T>, List<T>> { it.toList() },
+            )
+    }
+}
+
+/**
+ * Аналог sortedWith(comparator).take(k) за O(n log k)
+ */
+fun <T> Iterable<T>.topK(k: Int, comparator: Comparator<in T>): List<T> {
+    val top = TopK(k, comparator, if (this is Collection<*>) size else TopK.UNKNOWN_SIZE)
+    forEach { top.offer(it) }
+    return top.toList()
+}
+
+fun <T> Sequence<T>.topK(k: Int, comparator: Comparator<in T>): List<T> {
+    val top = TopK(k, comparator)
+    forEach { top.offer(it) }
+    return top.toList()
+}
+
+/**
+ * Аналог sortedBy { }.take(k)
+ */
+inline fun <T, R : Comparable<R>> Iterable<T>.topKBy(k: Int, crossinline selector: (T) -> R?): List<T> =
+    topK(k, compareBy(selector))
+
+/**
+ * Аналог sortedByDescending { }.take(k)
+ */
+inline fun <T, R : Comparable<R>> Iterable<T>.topKByDescending(k: Int, crossinline selector: (T) -> R?): List<T> =
+    topK(k, compareByDescending(selector))
+
+inline fun <T, R : Comparable<R>> Sequence<T>.topKByDescending(k: Int, crossinline selector: (T) -> R?): List<T> =
+    topK(k, compareByDescending(selector))
@@ -0,0 +1,102 @@
+package ru.vood.kotkin.rules._020_collection
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicReference
+import kotlin.math.abs
+
+/**
+ * ИНКРЕМЕНТАЛЬНЫЕ АГРЕГАТЫ ПО ОТДЕЛАМ
+ *
+ * processUsers() на каждый вызов заново делает filter { active }.groupBy { department }
+ * и считает средние - полный проход по всем пользователям ради одного изменившегося флага.
+ * UserAggregateView хранит для каждого отдела количество и сумму зарплат активных
+ * пользователей и обновляет их за O(1) на событие вставки, изменения или удаления.
+ *
+ * Итоги отдела - неизменяемый объект в AtomicReference, обновление - CAS,
+ * поэтому чтение не блокируется и всегда видит согласованную пару count/sum.
+ * Снимок по всем отделам согласован внутри каждого отдела, но не между отделами.
+ */
+class UserAggregateView {
+
+    /**
+     * Итоги по одному отделу. Сумма хранится с компенсацией (Kahan-Neumaier):
+     * зарплаты постоянно прибавляются и вычитаются, и без компенсации ошибка накапливается.
+     */
+    class DepartmentTotals internal constructor(
+        val count: Int,
+        private val sum: Double,
+        private val compensation: Double,
+    ) {
+        val salarySum: Double get() = sum + compensation
+
+        val averageSalary: Double get() = if (count == 0) 0.0 else salarySum / count
+
+        internal fun plus(countDelta: Int, salaryDelta: Double): DepartmentTotals {
+            val newSum = sum + salaryDelta
+            val lost = if (abs(sum) >= abs(salaryDelta)) (sum - newSum) + salaryDelta
+            else (salaryDelta - newSum) + sum
+            val newCount = count + countDelta
+            // Пустой отдел сбрасывает накопленную погрешность
+            return if (newCount == 0) EMPTY else DepartmentTotals(newCount, newSum, compensation + lost)
+        }
+
+        override fun toString(): String = "DepartmentTotals(count=$count, averageSalary=$averageSalary)"
+
+        companion object {
+            val EMPTY = DepartmentTotals(0, 0.0, 0.0)
+        }
+    }
+
+    private val cells = ConcurrentHashMap<String, AtomicReference<DepartmentTotals>>()
+
+    fun onInsert(user: User) {
+        if (user.active) change(user.department, 1, user.salary)
+    }
+
+    fun onDelete(user: User) {
+        if (user.active) change(user.department, -1, -user.salary)
+    }
+
+    /**
+     * Изменение в пределах одного отдела - одно атомарное обновление,
+     * так что читатель не увидит промежуточного состояния "удален, но еще не добавлен"
+     */
+    fun onUpdate(old: User, new: User) {
+        when {
+            !old.active && !new.active -> Unit
+            old.active && new.active && old.department == new.department ->
+                change(new.department, 0, new.salary - old.salary)
+            else -> {
+                onDelete(old)
+                onInsert(new)
+            }
+        }
+    }
+
+    fun totals(department: String): DepartmentTotals = cells[department]?.get() ?: DepartmentTotals.EMPTY
+
+    /**
+     * То же, что filter { active }.groupBy { department }.mapValues { average }, без прохода по данным
+     */
+    fun averageSalaryByDepartment(): Map<String, Double> = snapshot().mapValues { (_, totals) -> totals.averageSalary }
+
+    fun snapshot(): Map<String, DepartmentTotals> {
+        val result = LinkedHashMap<String, DepartmentTotals>()
+        cells.forEach { (department, cell) ->
+            val totals = cell.get()
+            if (totals.count > 0) result[department] = totals
+        }
+        return result
+    }
+
+    private fun change(department: String, countDelta: Int, salaryDelta: Double) {
+        val cell = cells.computeIfAbsent(department) { AtomicReference(DepartmentTotals.EMPTY) }
+        cell.updateAndGet { it.plus(countDelta, salaryDelta) }
+    }
+
+    companion object {
+        fun of(users: Iterable<User>): UserAggregateView = UserAggregateView().apply { users.forEach { onInsert(it) } }
+    }
+}
+
+fun Iterable<User>.toAggregateView(): UserAggregateView = UserAggregateView.of(this)
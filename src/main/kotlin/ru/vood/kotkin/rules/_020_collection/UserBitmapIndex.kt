@@ -0,0 +1,126 @@
+package ru.vood.kotkin.rules._020_collection
+
+import java.nio.ByteBuffer
+import java.util.TreeMap
+
+/**
+ * БИТОВЫЕ ИНДЕКСЫ ПО СТРОКАМ [UserTable]
+ *
+ * Для каждого отдела, каждого возраста и флага active хранится [CompressedBitmap]
+ * номеров строк. Запрос "IT ∧ active ∧ age < 30" - это два and над сжатыми множествами
+ * вместо проверки каждого пользователя, а "уникальные возраста" - множество значений
+ * возраста без HashSet<Integer>.
+ *
+ * Индекс строится один раз по неизменяемой таблице. [active], [department] и [age]
+ * отдают множества самого индекса без копирования, поэтому они только для чтения
+ * ([CompressedBitmap.isReadOnly]): add/remove бросают UnsupportedOperationException,
+ * а and/or/andNot возвращают новое изменяемое множество.
+ */
+class UserBitmapIndex private constructor(
+    val rowCount: Int,
+    active: CompressedBitmap,
+    private val departments: Map<String, CompressedBitmap>,
+    private val ages: TreeMap<Int, CompressedBitmap>,
+) {
+
+    /**
+     * Строки активных пользователей, только для чтения
+     */
+    val active: CompressedBitmap = active.asReadOnly()
+
+    init {
+        departments.values.forEach { it.asReadOnly() }
+        ages.values.forEach { it.asReadOnly() }
+    }
+
+    fun department(name: String): CompressedBitmap = departments[name] ?: EMPTY
+
+    fun age(age: Int): CompressedBitmap = ages[age] ?: EMPTY
+
+    /**
+     * Строки с возрастом из диапазона - объединение множеств по каждому возрасту,
+     * результат - новое изменяемое множество
+     */
+    fun ageIn(range: IntRange): CompressedBitmap {
+        if (range.isEmpty()) return CompressedBitmap()
+        return ages.subMap(range.first, true, range.last, true).values
+            .fold(CompressedBitmap()) { result, rows -> result.or(rows) }
+    }
+
+    fun ageBelow(limit: Int): CompressedBitmap = ageIn(Int.MIN_VALUE until limit)
+
+    /**
+     * Множество значений возраста, а не номеров строк
+     */
+    fun distinctAges(): CompressedBitmap = CompressedBitmap().apply { ages.keys.forEach { add(it) } }
+
+    fun distinctDepartments(): Set<String> = departments.keys
+
+    // ----------------------------------------------------------------------
+    // СЕРИАЛИЗАЦИЯ (секция битовых карт в UserSnapshot)
+    // ----------------------------------------------------------------------
+
+    internal fun serializedSize(): Int =
+        Int.SIZE_BYTES + active.serializedSize() +
+                Int.SIZE_BYTES + departments.values.sumOf { Int.SIZE_BYTES + it.serializedSize() } +
+                Int.SIZE_BYTES + ages.values.sumOf { Int.SIZE_BYTES + it.serializedSize() }
+
+    /**
+     * Отделы пишутся кодами из словаря снимка, а не строками
+     */
+    internal fun writeTo(buffer: ByteBuffer, departmentCode: (String) -> Int) {
+        buffer.putInt(rowCount)
+        active.writeTo(buffer)
+        buffer.putInt(departments.size)
+        departments.forEach { (name, rows) ->
+            buffer.putInt(departmentCode(name))
+            rows.writeTo(buffer)
+        }
+        buffer.putInt(ages.size)
+        ages.forEach { (age, rows) ->
+            buffer.putInt(age)
+            rows.writeTo(buffer)
+        }
+    }
+
+    companion object {
+        // Общее пустое множество безопасно: оно только для чтения
+        private val EMPTY = CompressedBitmap().asReadOnly()
+
+        fun of(table: UserTable): UserBitmapIndex {
+            val active = CompressedBitmap()
+            val byDepartmentCode = arrayOfNulls<CompressedBitmap>(table.departments.size)
+            val ages = TreeMap<Int, CompressedBitmap>()
+            for (row in 0 until table.size) {
+                if (table.isActive(row)) active.add(row)
+                val code = table.departmentCode(row)
+                val departmentRows = byDepartmentCode[code] ?: CompressedBitmap().also { byDepartmentCode[code] = it }
+                departmentRows.add(row)
+                ages.getOrPut(table.age(row)) { CompressedBitmap() }.add(row)
+            }
+            val departments = LinkedHashMap<String, CompressedBitmap>()
+            byDepartmentCode.forEachIndexed { code, rows ->
+                if (rows != null) departments[table.departments.decode(code)] = rows
+            }
+            return UserBitmapIndex(table.size, active, departments, ages)
+        }
+
+        internal fun readFrom(buffer: ByteBuffer, departmentName: (Int) -> String): UserBitmapIndex {
+            val rowCount = buffer.getInt()
+            val active = CompressedBitmap.readFrom(buffer)
+            val departments = LinkedHashMap<String, CompressedBitmap>()
+            repeat(buffer.getInt()) {
+                val name = departmentName(buffer.getInt())
+                departments[name] = CompressedBitmap.readFrom(buffer)
+            }
+            val ages = TreeMap<Int, CompressedBitmap>()
+            repeat(buffer.getInt()) {
+                val age = buffer.getInt()
+                ages[age] = CompressedBitmap.readFrom(buffer)
+            }
+            return UserBitmapIndex(rowCount, active, departments, ages)
+        }
+    }
+}
+
+fun UserTable.bitmapIndex(): UserBitmapIndex = UserBitmapIndex.of(this)
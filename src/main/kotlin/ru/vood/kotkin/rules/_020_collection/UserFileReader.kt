@@ -0,0 +1,567 @@
+package ru.vood.kotkin.rules._020_collection
+
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.util.Spliterator
+import java.util.Spliterators
+import java.util.stream.Stream
+import java.util.stream.StreamSupport
+
+/**
+ * ПОТОКОВОЕ ЧТЕНИЕ ПОЛЬЗОВАТЕЛЕЙ ИЗ ФАЙЛА
+ *
+ * Вместо listOf(User(...)) - чтение файлов любого размера без загрузки в List<User>:
+ * - файл отображается в память (FileChannel.map) кусками по [splitSize] байт,
+ *   границы кусков сдвигаются на начало строки - куски можно разбирать параллельно
+ * - разбор ручной, прямо по байтам: числа без промежуточных строк,
+ *   повторяющиеся значения отдела берутся из маленького кеша
+ * - строки отдаются в Sequence<User> / Stream<User> или сразу в колонки ([UserRowSink], [UserTable])
+ *
+ * Куча не растет с размером файла: отображенные куски живут вне кучи,
+ * а в памяти одновременно находится только текущая строка.
+ *
+ * Форматы:
+ * - CSV: id,name,age,email,department,salary,active - без кавычек и экранирования,
+ *   по умолчанию первая строка - заголовок
+ * - NDJSON: один плоский JSON-объект с теми же полями на строку
+ */
+class UserFileReader(
+    private val path: Path,
+    private val format: UserFileFormat,
+    private val hasHeader: Boolean = format == UserFileFormat.CSV,
+    private val splitSize: Long = DEFAULT_SPLIT_SIZE,
+) {
+
+    init {
+        require(splitSize in 1L..Int.MAX_VALUE) { "splitSize должен быть в диапазоне 1..${Int.MAX_VALUE}: $splitSize" }
+    }
+
+    /**
+     * Кусок файла [start, end), начинающийся с начала строки
+     */
+    data class Split(val start: Long, val end: Long) {
+        val length: Long
+            get() = end - start
+    }
+
+    fun splits(): List<Split> = FileChannel.open(path, StandardOpenOption.READ).use { channel ->
+        val size = channel.size()
+        val starts = mutableListOf(0L)
+        var nominal = splitSize
+        while (nominal < size) {
+            val start = nextLineStart(channel, nominal)
+            if (start >= size) break
+            starts.add(start)
+            nominal = start + splitSize
+        }
+        starts.mapIndexed { i, start -> Split(start, if (i + 1 < starts.size) starts[i + 1] else size) }
+    }
+
+    // Первый байт после '\n', найденного не раньше позиции from - 1
+    private fun nextLineStart(channel: FileChannel, from: Long): Long {
+        val buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE)
+        var position = from - 1
+        while (true) {
+            buffer.clear()
+            val read = channel.read(buffer, position)
+            if (read <= 0) return channel.size()
+            for (i in 0 until read) {
+                if (buffer.get(i) == NEWLINE) return position + i + 1
+            }
+            position += read
+        }
+    }
+
+    /**
+     * Разбор одного куска - можно вызывать параллельно для разных кусков со своими sink
+     */
+    fun readSplit(split: Split, sink: UserRowSink) {
+        val parser = parser(split)
+        while (parser.next(sink)) {
+            // строка уже отдана в sink
+        }
+    }
+
+    fun readInto(sink: UserRowSink) = splits().forEach { readSplit(it, sink) }
+
+    fun readInto(table: UserTable): UserTable = table.also { readInto(it.asRowSink()) }
+
+    fun asSequence(): Sequence<User> = sequence {
+        for (split in splits()) yieldAll(users(split))
+    }
+
+    /**
+     * Stream<User>; при parallel = true куски файла разбираются параллельно
+     */
+    fun asStream(parallel: Boolean = false): Stream<User> {
+        val splits = splits().stream()
+        return (if (parallel) splits.parallel() else splits).flatMap { split ->
+            val spliterator = Spliterators.spliteratorUnknownSize(
+                users(split).iterator(),
+                Spliterator.ORDERED or Spliterator.NONNULL,
+            )
+            StreamSupport.stream(spliterator, false)
+        }
+    }
+
+    private fun users(split: Split): Sequence<User> = sequence {
+        val parser = parser(split)
+        val last = LastUser()
+        while (parser.next(last)) yield(last.take())
+    }
+
+    // Канал закрывается сразу: отображение остается валидным и без него
+    private fun parser(split: Split): MappedUserParser {
+        require(split.length <= Int.MAX_VALUE) { "Строка длиннее ${Int.MAX_VALUE} байт в куске $split" }
+        val buffer = FileChannel.open(path, StandardOpenOption.READ).use {
+            it.map(FileChannel.MapMode.READ_ONLY, split.start, split.length)
+        }
+        return MappedUserParser(buffer, format, hasHeader && split.start == 0L, split.start)
+    }
+
+    private class LastUser : UserRowSink {
+        private var user: User? = null
+
+        override fun accept(
+            id: Int,
+            name: String,
+            age: Int,
+            email: String,
+            department: String,
+            salary: Double,
+            active: Boolean,
+        ) {
+            user = User(id, name, age, email, department, salary, active)
+        }
+
+        fun take(): User = checkNotNull(user) { "Парсер не отдал строку" }.also { user = null }
+    }
+
+    companion object {
+        const val DEFAULT_SPLIT_SIZE: Long = 64L * 1024 * 1024
+        private const val SCAN_BUFFER_SIZE = 8 * 1024
+        private const val NEWLINE: Byte = 10 // '\n'
+    }
+}
+
+enum class UserFileFormat {
+    CSV,
+    NDJSON,
+}
+
+/**
+ * Приемник разобранных строк: поля приходят по отдельности, без объекта User
+ */
+fun interface UserRowSink {
+    fun accept(
+        id: Int,
+        name: String,
+        age: Int,
+        email: String,
+        department: String,
+        salary: Double,
+        active: Boolean,
+    )
+}
+
+fun UserTable.asRowSink(): UserRowSink = UserRowSink { id, name, age, email, department, salary, active ->
+    add(id, name, age, email, department, salary, active)
+}
+
+/**
+ * Разбор строк прямо из отображенного в память буфера
+ */
+internal class MappedUserParser(
+    private val buffer: ByteBuffer,
+    private val format: UserFileFormat,
+    skipFirstLine: Boolean,
+    private val fileOffset: Long,
+) {
+
+    private val limit = buffer.limit()
+    private var position = 0
+
+    // Позиция, на которой остановился разбор JSON-значения
+    private var cursor = 0
+
+    private var scratch = ByteArray(256)
+
+    // Прямое отображение хеш -> строка для значений с малым числом вариантов (отделы)
+    private val cachedBytes = arrayOfNulls<ByteArray>(CACHE_SIZE)
+    private val cachedStrings = arrayOfNulls<String>(CACHE_SIZE)
+
+    init {
+        if (skipFirstLine) position = minOf(indexOfNewline(0) + 1, limit)
+    }
+
+    /**
+     * Разбирает следующую непустую строку в sink, false - если строк больше нет
+     */
+    fun next(sink: UserRowSink): Boolean {
+        while (position < limit) {
+            val start = position
+            var end = indexOfNewline(start)
+            position = end + 1
+            if (end > start && buffer.get(end - 1) == CR) end--
+            if (end == start) continue
+            when (format) {
+                UserFileFormat.CSV -> parseCsv(start, end, sink)
+                UserFileFormat.NDJSON -> parseJson(start, end, sink)
+            }
+            return true
+        }
+        return false
+    }
+
+    private fun indexOfNewline(from: Int): Int {
+        var i = from
+        while (i < limit && buffer.get(i) != NEWLINE) i++
+        return i
+    }
+
+    // ----------------------------------------------------------------------
+    // CSV
+    // ----------------------------------------------------------------------
+
+    private fun parseCsv(start: Int, end: Int, sink: UserRowSink) {
+        var from = start
+        var to = fieldEnd(from, end)
+        val id = parseInt(from, to)
+        from = to + 1
+        to = fieldEnd(from, end)
+        val name = decode(from, to)
+        from = to + 1
+        to = fieldEnd(from, end)
+        val age = parseInt(from, to)
+        from = to + 1
+        to = fieldEnd(from, end)
+        val email = decode(from, to)
+        from = to + 1
+        to = fieldEnd(from, end)
+        val department = cached(from, to)
+        from = to + 1
+        to = fieldEnd(from, end)
+        val salary = parseDouble(from, to)
+        val active = parseBoolean(to + 1, end)
+        sink.accept(id, name, age, email, department, salary, active)
+    }
+
+    private fun fieldEnd(from: Int, end: Int): Int {
+        var i = from
+        while (i < end && buffer.get(i) != COMMA) i++
+        if (i == end) fail(from, "ожидалась ','")
+        return i
+    }
+
+    // ----------------------------------------------------------------------
+    // NDJSON
+    // ----------------------------------------------------------------------
+
+    private fun parseJson(start: Int, end: Int, sink: UserRowSink) {
+        var id = 0
+        var name = ""
+        var age = 0
+        var email = ""
+        var department = ""
+        var salary = 0.0
+        var active = false
+        var seen = 0
+
+        var i = skipWhitespace(start, end)
+        expect(i, end, OPEN_BRACE)
+        i = skipWhitespace(i + 1, end)
+        if (i < end && buffer.get(i) == CLOSE_BRACE) fail(i, "пустой объект")
+        while (true) {
+            expect(i, end, QUOTE)
+            val keyStart = i + 1
+            val keyEnd = stringEnd(keyStart, end)
+            i = skipWhitespace(keyEnd + 1, end)
+            expect(i, end, COLON)
+            i = skipWhitespace(i + 1, end)
+            when {
+                keyEquals(keyStart, keyEnd, KEY_ID) -> {
+                    id = parseInt(i, numberEnd(i, end))
+                    seen = seen or 1
+                }
+                keyEquals(keyStart, keyEnd, KEY_NAME) -> {
+                    name = jsonString(i, end, cache = false)
+                    seen = seen or 2
+                }
+                keyEquals(keyStart, keyEnd, KEY_AGE) -> {
+                    age = parseInt(i, numberEnd(i, end))
+                    seen = seen or 4
+                }
+                keyEquals(keyStart, keyEnd, KEY_EMAIL) -> {
+                    email = jsonString(i, end, cache = false)
+                    seen = seen or 8
+                }
+                keyEquals(keyStart, keyEnd, KEY_DEPARTMENT) -> {
+                    department = jsonString(i, end, cache = true)
+                    seen = seen or 16
+                }
+                keyEquals(keyStart, keyEnd, KEY_SALARY) -> {
+                    salary = parseDouble(i, numberEnd(i, end))
+                    seen = seen or 32
+                }
+                keyEquals(keyStart, keyEnd, KEY_ACTIVE) -> {
+                    active = parseBoolean(i, literalEnd(i, end))
+                    seen = seen or 64
+                }
+                else -> skipValue(i, end)
+            }
+            i = skipWhitespace(cursor, end)
+            if (i >= end) fail(i, "объект не закрыт")
+            when (buffer.get(i)) {
+                COMMA -> i = skipWhitespace(i + 1, end)
+                CLOSE_BRACE -> break
+                else -> fail(i, "ожидалась ',' или '}'")
+            }
+        }
+        if (seen != ALL_FIELDS) fail(start, "не хватает полей пользователя")
+        sink.accept(id, name, age, email, department, salary, active)
+    }
+
+    private fun numberEnd(from: Int, end: Int): Int {
+        var i = from
+        while (i < end) {
+            val b = buffer.get(i)
+            if (!(b >= ZERO && b <= NINE || b == MINUS || b == PLUS || b == DOT || b == LOWER_E || b == UPPER_E)) break
+            i++
+        }
+        cursor = i
+        return i
+    }
+
+    private fun literalEnd(from: Int, end: Int): Int {
+        var i = from
+        while (i < end && buffer.get(i) >= LOWER_A && buffer.get(i) <= LOWER_Z) i++
+        cursor = i
+        return i
+    }
+
+    // Позиция закрывающей кавычки; from - первый байт после открывающей
+    private fun stringEnd(from: Int, end: Int): Int {
+        var i = from
+        while (i < end) {
+            when (buffer.get(i)) {
+                BACKSLASH -> i += 2
+                QUOTE -> return i
+                else -> i++
+            }
+        }
+        fail(from, "строка не закрыта")
+    }
+
+    private fun jsonString(from: Int, end: Int, cache: Boolean): String {
+        expect(from, end, QUOTE)
+        val contentEnd = stringEnd(from + 1, end)
+        cursor = contentEnd + 1
+        var escaped = false
+        for (i in from + 1 until contentEnd) {
+            if (buffer.get(i) == BACKSLASH) {
+                escaped = true
+                break
+            }
+        }
+        return when {
+            escaped -> unescape(decode(from + 1, contentEnd))
+            cache -> cached(from + 1, contentEnd)
+            else -> decode(from + 1, contentEnd)
+        }
+    }
+
+    // Медленный путь только для строк с экранированием
+    private fun unescape(raw: String): String {
+        val result = StringBuilder(raw.length)
+        var i = 0
+        while (i < raw.length) {
+            val c = raw[i++]
+            if (c != '\\') {
+                result.append(c)
+                continue
+            }
+            when (val escape = raw[i++]) {
+                'n' -> result.append('\n')
+                't' -> result.append('\t')
+                'r' -> result.append('\r')
+                'b' -> result.append('\b')
+                'f' -> result.append('\u000C')
+                'u' -> {
+                    result.append(raw.substring(i, i + 4).toInt(16).toChar())
+                    i += 4
+                }
+                else -> result.append(escape)
+            }
+        }
+        return result.toString()
+    }
+
+    private fun skipValue(from: Int, end: Int) {
+        var i = from
+        var depth = 0
+        while (i < end) {
+            when (buffer.get(i)) {
+                QUOTE -> i = stringEnd(i + 1, end)
+                OPEN_BRACE, OPEN_BRACKET -> depth++
+                CLOSE_BRACE, CLOSE_BRACKET -> {
+                    if (depth == 0) break
+                    depth--
+                }
+                COMMA -> if (depth == 0) break
+            }
+            i++
+        }
+        cursor = i
+    }
+
+    private fun keyEquals(from: Int, to: Int, key: ByteArray): Boolean {
+        if (to - from != key.size) return false
+        for (i in key.indices) {
+            if (buffer.get(from + i) != key[i]) return false
+        }
+        return true
+    }
+
+    private fun skipWhitespace(from: Int, end: Int): Int {
+        var i = from
+        while (i < end && buffer.get(i).let { it == SPACE || it == TAB }) i++
+        return i
+    }
+
+    private fun expect(at: Int, end: Int, expected: Byte) {
+        if (at >= end || buffer.get(at) != expected) fail(at, "ожидался '${expected.toInt().toChar()}'")
+    }
+
+    // ----------------------------------------------------------------------
+    // ЧИСЛА, ЛОГИЧЕСКИЕ ЗНАЧЕНИЯ И СТРОКИ
+    // ----------------------------------------------------------------------
+
+    private fun parseInt(from: Int, to: Int): Int {
+        var i = from
+        val negative = i < to && buffer.get(i) == MINUS
+        if (negative) i++
+        if (i == to) fail(from, "ожидалось число")
+        var result = 0L
+        while (i < to) {
+            val digit = buffer.get(i) - ZERO
+            if (digit !in 0..9) fail(i, "ожидалась цифра")
+            result = result * 10 + digit
+            if (result > Int.MAX_VALUE + 1L) fail(from, "число не помещается в Int")
+            i++
+        }
+        val value = if (negative) -result else result
+        if (value > Int.MAX_VALUE) fail(from, "число не помещается в Int")
+        return value.toInt()
+    }
+
+    /**
+     * Быстрый путь для обычной десятичной записи: мантисса до 2^53 и не больше 22 знаков
+     * после точки делятся точно (оба числа представимы в double). Все остальное
+     * (экспонента, длинная мантисса) - через стандартный разбор.
+     */
+    private fun parseDouble(from: Int, to: Int): Double {
+        var i = from
+        val negative = i < to && buffer.get(i) == MINUS
+        if (negative) i++
+        var mantissa = 0L
+        var digits = 0
+        var fractionDigits = 0
+        var dot = false
+        while (i < to) {
+            val b = buffer.get(i)
+            when {
+                b == DOT && !dot -> dot = true
+                b >= ZERO && b <= NINE -> {
+                    if (digits == MAX_FAST_DIGITS) return slowDouble(from, to)
+                    mantissa = mantissa * 10 + (b - ZERO)
+                    digits++
+                    if (dot) fractionDigits++
+                }
+                else -> return slowDouble(from, to)
+            }
+            i++
+        }
+        if (digits == 0) fail(from, "ожидалось число")
+        if (mantissa >= MAX_EXACT_MANTISSA || fractionDigits >= POWERS_OF_TEN.size) return slowDouble(from, to)
+        val value = mantissa.toDouble() / POWERS_OF_TEN[fractionDigits]
+        return if (negative) -value else value
+    }
+
+    private fun slowDouble(from: Int, to: Int): Double =
+        decode(from, to).toDoubleOrNull() ?: fail(from, "ожидалось число")
+
+    private fun parseBoolean(from: Int, to: Int): Boolean = when {
+        keyEquals(from, to, TRUE) -> true
+        keyEquals(from, to, FALSE) -> false
+        else -> fail(from, "ожидалось true или false")
+    }
+
+    private fun decode(from: Int, to: Int): String {
+        val length = to - from
+        if (scratch.size < length) scratch = ByteArray(maxOf(length, scratch.size * 2))
+        buffer.get(from, scratch, 0, length)
+        return String(scratch, 0, length, Charsets.UTF_8)
+    }
+
+    // Повторяющиеся значения (отделы) не создают новую строку на каждую запись
+    private fun cached(from: Int, to: Int): String {
+        var hash = 0
+        for (i in from until to) hash = 31 * hash + buffer.get(i)
+        val slot = (hash xor (hash ushr 16)) and (CACHE_SIZE - 1)
+        val bytes = cachedBytes[slot]
+        if (bytes != null && keyEquals(from, to, bytes)) cachedStrings[slot]?.let { return it }
+        val value = decode(from, to)
+        cachedBytes[slot] = scratch.copyOf(to - from)
+        cachedStrings[slot] = value
+        return value
+    }
+
+    private fun fail(at: Int, message: String): Nothing =
+        throw IllegalArgumentException("Ошибка разбора в позиции ${fileOffset + at}: $message")
+
+    companion object {
+        private const val CACHE_SIZE = 256
+        private const val MAX_FAST_DIGITS = 18
+        private const val MAX_EXACT_MANTISSA = 1L shl 53
+        private const val ALL_FIELDS = 127
+
+        private val POWERS_OF_TEN = DoubleArray(23).also { powers ->
+            powers[0] = 1.0
+            for (i in 1 until powers.size) powers[i] = powers[i - 1] * 10
+        }
+
+        private const val NEWLINE: Byte = 10 // '\n'
+        private const val CR: Byte = 13 // '\r'
+        private const val COMMA: Byte = 44 // ','
+        private const val COLON: Byte = 58 // ':'
+        private const val QUOTE: Byte = 34 // '"'
+        private const val BACKSLASH: Byte = 92 // '\\'
+        private const val OPEN_BRACE: Byte = 123 // '{'
+        private const val CLOSE_BRACE: Byte = 125 // '}'
+        private const val OPEN_BRACKET: Byte = 91 // '['
+        private const val CLOSE_BRACKET: Byte = 93 // ']'
+        private const val SPACE: Byte = 32 // ' '
+        private const val TAB: Byte = 9 // '\t'
+        private const val MINUS: Byte = 45 // '-'
+        private const val PLUS: Byte = 43 // '+'
+        private const val DOT: Byte = 46 // '.'
+        private const val LOWER_E: Byte = 101 // 'e'
+        private const val UPPER_E: Byte = 69 // 'E'
+        private const val LOWER_A: Byte = 97 // 'a'
+        private const val LOWER_Z: Byte = 122 // 'z'
+        private const val ZERO: Byte = 48 // '0'
+        private const val NINE: Byte = 57 // '9'
+
+        private val KEY_ID = "id".toByteArray()
+        private val KEY_NAME = "name".toByteArray()
+        private val KEY_AGE = "age".toByteArray()
+        private val KEY_EMAIL = "email".toByteArray()
+        private val KEY_DEPARTMENT = "department".toByteArray()
+        private val KEY_SALARY = "salary".toByteArray()
+        private val KEY_ACTIVE = "active".toByteArray()
+        private val TRUE = "true".toByteArray()
+        private val FALSE = "false".toByteArray()
+    }
+}
@@ -0,0 +1,342 @@
+package ru.vood.kotkin.rules._020_collection
+
+import java.util.BitSet
+
+/**
+ * ВТОРИЧНЫЕ ИНДЕКСЫ ПО ПОЛЬЗОВАТЕЛЯМ
+ *
+ * find { it.department == "IT" }, filter { it.age > 30 }, count { it.age < 30 && it.active }
+ * каждый раз проходят весь список. UserIndex хранит пользователей под номерами строк
+ * и поддерживает:
+ * - отдел -> отсортированный список номеров строк (posting list)
+ * - отсортированные примитивные индексы по возрасту и зарплате для диапазонов
+ * - битовую карту активных
+ *
+ * Равенство и диапазоны - это бинарный поиск, O(log n); подсчет - без обхода строк.
+ * Индексы обновляются при add/remove/update, поэтому всегда согласованы с данными.
+ * Порядок строк = порядок добавления, и результаты совпадают с порядком исходного списка:
+ * - [update] меняет данные на месте, как list[i] = user: строка и позиция сохраняются
+ * - [remove] оставляет пустую строку; когда пустых больше, чем живых, индекс перестраивается
+ *   по живым строкам в том же порядке - при удалениях и добавлениях память не растет.
+ *   Номер строки из [add] поэтому действителен только до следующего remove
+ *
+ * [of] строит индексы сразу по всему списку: ключи собираются в массив и сортируются
+ * один раз, O(n log n). Вставка по одному ([add]) сдвигает хвост массива - это для
+ * последующих изменений, а не для загрузки: n вставок подряд - O(n^2).
+ */
+class UserIndex private constructor(expectedSize: Int) {
+
+    constructor() : this(16)
+
+    private val rows = ArrayList<User?>(expectedSize)
+    private var rowById = IntIntMap(expectedSize)
+
+    private val departmentRows = HashMap<String, SortedLongIndex>()
+    private var ageIndex = SortedLongIndex()
+    private var salaryIndex = SortedLongIndex()
+    private val activeRows = BitSet()
+
+    var size: Int = 0
+        private set
+
+    var activeCount: Int = 0
+        private set
+
+    // Сколько строк занято в хранилище вместе с пустыми - для проверки, что память не растет
+    internal val storedRows: Int
+        get() = rows.size
+
+    /**
+     * Добавляет пользователя и возвращает номер его строки
+     */
+    fun add(user: User): Int {
+        require(user.id !in rowById) { "Пользователь с id=${user.id} уже есть в индексе" }
+        val row = rows.size
+        rows.add(user)
+        rowById[user.id] = row
+        departmentRows.getOrPut(user.department) { SortedLongIndex() }.insert(0, row)
+        ageIndex.insert(user.age.toLong(), row)
+        salaryIndex.insert(sortableKey(user.salary), row)
+        if (user.active) {
+            activeRows.set(row)
+            activeCount++
+        }
+        size++
+        return row
+    }
+
+    fun remove(userId: Int): Boolean {
+        val row = rowById.remove(userId)
+        if (row == IntIntMap.NO_VALUE) return false
+        val user = rows[row] ?: return false
+        rows[row] = null
+        departmentRows[user.department]?.let { postings ->
+            postings.remove(0, row)
+            if (postings.size == 0) departmentRows.remove(user.department)
+        }
+        ageIndex.remove(user.age.toLong(), row)
+        salaryIndex.remove(sortableKey(user.salary), row)
+        if (activeRows[row]) {
+            activeRows.clear(row)
+            activeCount--
+        }
+        size--
+        if (rows.size - size > maxOf(size, MIN_EMPTY_ROWS_TO_COMPACT)) compact()
+        return true
+    }
+
+    /**
+     * Замена данных пользователя с тем же id на месте: строка та же, меняются только
+     * затронутые индексы. Пользователя с таким id нет - добавляется, как в [add]
+     */
+    fun update(user: User) {
+        val row = rowById[user.id]
+        if (row == IntIntMap.NO_VALUE) {
+            add(user)
+            return
+        }
+        val old = userAt(row)
+        rows[row] = user
+        if (old.department != user.department) {
+            departmentRows[old.department]?.let { postings ->
+                postings.remove(0, row)
+                if (postings.size == 0) departmentRows.remove(old.department)
+            }
+            departmentRows.getOrPut(user.department) { SortedLongIndex() }.insert(0, row)
+        }
+        if (old.age != user.age) {
+            ageIndex.remove(old.age.toLong(), row)
+            ageIndex.insert(user.age.toLong(), row)
+        }
+        val oldSalary = sortableKey(old.salary)
+        val newSalary = sortableKey(user.salary)
+        if (oldSalary != newSalary) {
+            salaryIndex.remove(oldSalary, row)
+            salaryIndex.insert(newSalary, row)
+        }
+        if (old.active != user.active) {
+            activeRows[row] = user.active
+            activeCount += if (user.active) 1 else -1
+        }
+    }
+
+    fun byId(userId: Int): User? {
+        val row = rowById[userId]
+        return if (row == IntIntMap.NO_VALUE) null else rows[row]
+    }
+
+    // ----------------------------------------------------------------------
+    // ОТДЕЛ - ПОИСК ПО РАВЕНСТВУ
+    // ----------------------------------------------------------------------
+
+    fun firstInDepartment(department: String): User? {
+        val postings = departmentRows[department] ?: return null
+        return userAt(postings.rowAt(0))
+    }
+
+    fun inDepartment(department: String): List<User> {
+        val postings = departmentRows[department] ?: return emptyList()
+        return users(postings.rows(0, postings.size))
+    }
+
+    fun countInDepartment(department: String): Int = departmentRows[department]?.size ?: 0
+
+    // ----------------------------------------------------------------------
+    // ВОЗРАСТ И ЗАРПЛАТА - ДИАПАЗОНЫ
+    // ----------------------------------------------------------------------
+
+    fun withAgeIn(range: IntRange): List<User> = users(ageRows(range).apply { sort() })
+
+    fun countWithAgeIn(range: IntRange): Int {
+        if (range.isEmpty()) return 0
+        return ageIndex.upperBound(range.last.toLong()) - ageIndex.lowerBound(range.first.toLong())
+    }
+
+    fun withSalaryAbove(threshold: Double): List<User> = users(salaryRowsAbove(threshold).apply { sort() })
+
+    fun countWithSalaryAbove(threshold: Double): Int =
+        salaryIndex.size - salaryIndex.upperBound(sortableKey(threshold))
+
+    // ----------------------------------------------------------------------
+    // АКТИВНОСТЬ - БИТОВАЯ КАРТА
+    // ----------------------------------------------------------------------
+
+    fun isActive(row: Int): Boolean = activeRows[row]
+
+    /**
+     * Пересечение диапазона по возрасту с картой активных - обходятся только строки из диапазона
+     */
+    fun countActiveWithAgeIn(range: IntRange): Int {
+        if (range.isEmpty()) return 0
+        val from = ageIndex.lowerBound(range.first.toLong())
+        val to = ageIndex.upperBound(range.last.toLong())
+        var count = 0
+        for (position in from until to) {
+            if (activeRows[ageIndex.rowAt(position)]) count++
+        }
+        return count
+    }
+
+    private fun ageRows(range: IntRange): IntArray {
+        if (range.isEmpty()) return IntArray(0)
+        return ageIndex.rows(ageIndex.lowerBound(range.first.toLong()), ageIndex.upperBound(range.last.toLong()))
+    }
+
+    private fun salaryRowsAbove(threshold: Double): IntArray =
+        salaryIndex.rows(salaryIndex.upperBound(sortableKey(threshold)), salaryIndex.size)
+
+    /**
+     * Массовая загрузка в пустой индекс: строки и отделы - по порядку, индексы по возрасту
+     * и зарплате - одной сортировкой всех ключей
+     */
+    private fun load(users: Iterable<User>) {
+        check(rows.isEmpty()) { "Массовая загрузка только в пустой индекс" }
+        for (user in users) {
+            require(user.id !in rowById) { "Пользователь с id=${user.id} уже есть в индексе" }
+            val row = rows.size
+            rows.add(user)
+            rowById[user.id] = row
+            // Строки идут по возрастанию - в posting list достаточно дописать в конец
+            departmentRows.getOrPut(user.department) { SortedLongIndex() }.append(0, row)
+            if (user.active) {
+                activeRows.set(row)
+                activeCount++
+            }
+        }
+        size = rows.size
+        ageIndex = SortedLongIndex.build(LongArray(size) { userAt(it).age.toLong() })
+        salaryIndex = SortedLongIndex.build(LongArray(size) { sortableKey(userAt(it).salary) })
+    }
+
+    // Перестройка по живым строкам: порядок тот же, номера строк сдвигаются
+    private fun compact() {
+        val live = rows.filterNotNull()
+        rows.clear()
+        rowById = IntIntMap(live.size)
+        departmentRows.clear()
+        activeRows.clear()
+        activeCount = 0
+        load(live)
+    }
+
+    private fun userAt(row: Int): User = checkNotNull(rows[row]) { "Строка $row удалена, но осталась в индексе" }
+
+    private fun users(rows: IntArray): List<User> = rows.map { userAt(it) }
+
+    companion object {
+        // Небольшой индекс не перестраивается ради нескольких пустых строк
+        private const val MIN_EMPTY_ROWS_TO_COMPACT = 64
+
+        fun of(users: Iterable<User>): UserIndex =
+            UserIndex(if (users is Collection<*>) users.size else 16).apply { load(users) }
+
+        /**
+         * Double -> Long с сохранением порядка: для отрицательных чисел инвертируются
+         * все биты, кроме знакового, и сравнение long совпадает со сравнением double
+         */
+        private fun sortableKey(value: Double): Long {
+            val bits = value.toBits()
+            return bits xor ((bits shr 63) and Long.MAX_VALUE)
+        }
+    }
+}
+
+fun Iterable<User>.toUserIndex(): UserIndex = UserIndex.of(this)
+
+/**
+ * Отсортированные пары (ключ, номер строки) в двух примитивных массивах.
+ * Поиск - бинарный, вставка и удаление сдвигают хвост через System.arraycopy.
+ * Для загрузки - [build] (одна сортировка) и [append] (пары уже по порядку).
+ */
+internal class SortedLongIndex private constructor(
+    private var keys: LongArray,
+    private var rows: IntArray,
+    size: Int,
+) {
+
+    constructor(initialCapacity: Int = 16) : this(LongArray(initialCapacity), IntArray(initialCapacity), 0)
+
+    var size: Int = size
+        private set
+
+    fun insert(key: Long, row: Int) {
+        ensureCapacity()
+        val position = position(key, row)
+        System.arraycopy(keys, position, keys, position + 1, size - position)
+        System.arraycopy(rows, position, rows, position + 1, size - position)
+        keys[position] = key
+        rows[position] = row
+        size++
+    }
+
+    /**
+     * Добавление в конец без поиска и сдвига; пара не должна быть меньше последней
+     */
+    fun append(key: Long, row: Int) {
+        require(size == 0 || keys[size - 1] < key || (keys[size - 1] == key && rows[size - 1] < row)) {
+            "Пара ($key, $row) меньше последней в индексе"
+        }
+        ensureCapacity()
+        keys[size] = key
+        rows[size] = row
+        size++
+    }
+
+    fun remove(key: Long, row: Int): Boolean {
+        val position = position(key, row)
+        if (position == size || keys[position] != key || rows[position] != row) return false
+        System.arraycopy(keys, position + 1, keys, position, size - position - 1)
+        System.arraycopy(rows, position + 1, rows, position, size - position - 1)
+        size--
+        return true
+    }
+
+    fun rowAt(position: Int): Int = rows[position]
+
+    fun rows(from: Int, to: Int): IntArray = rows.copyOfRange(from, maxOf(from, to))
+
+    /**
+     * Первая позиция с ключом >= key
+     */
+    fun lowerBound(key: Long): Int = position(key, Int.MIN_VALUE)
+
+    /**
+     * Первая позиция с ключом > key
+     */
+    fun upperBound(key: Long): Int {
+        if (key == Long.MAX_VALUE) return size
+        return lowerBound(key + 1)
+    }
+
+    private fun ensureCapacity() {
+        if (size == keys.size) {
+            val capacity = maxOf(size * 2, 16)
+            keys = keys.copyOf(capacity)
+            rows = rows.copyOf(capacity)
+        }
+    }
+
+    // Первая позиция, где пара (ключ, строка) не меньше искомой
+    private fun position(key: Long, row: Int): Int {
+        var low = 0
+        var high = size
+        while (low < high) {
+            val middle = (low + high) ushr 1
+            val less = keys[middle] < key || (keys[middle] == key && rows[middle] < row)
+            if (less) low = middle + 1 else high = middle
+        }
+        return low
+    }
+
+    companion object {
+        /**
+         * Индекс по всем строкам сразу: keysByRow[row] - ключ строки row.
+         * Сортировка стабильная, поэтому при равных ключах строки остаются по возрастанию
+         */
+        fun build(keysByRow: LongArray): SortedLongIndex {
+            val order = IntArray(keysByRow.size) { it }
+            order.sortRowsWith { left, right -> keysByRow[left].compareTo(keysByRow[right]) }
+            return SortedLongIndex(LongArray(order.size) { keysByRow[order[it]] }, order, order.size)
+        }
+    }
+}
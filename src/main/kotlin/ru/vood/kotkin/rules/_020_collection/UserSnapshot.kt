@@ -0,0 +1,259 @@
+package ru.vood.kotkin.rules._020_collection
+
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.util.zip.CRC32C
+
+/**
+ * БИНАРНЫЙ СНИМОК ПОЛЬЗОВАТЕЛЕЙ
+ *
+ * Вместо повторного разбора исходных данных при каждом старте - один раз сохраняем
+ * пользователей в бинарный файл фиксированной структуры, а при старте отображаем его
+ * в память: никакой десериализации, строка читается прямо из файла по смещению.
+ *
+ * Структура файла (little-endian):
+ * - заголовок, [HEADER_SIZE] байт: magic, версия, число строк, число строк словаря,
+ *   смещение таблицы смещений словаря, смещение строк, смещение битовых карт (0 - нет секции)
+ * - словарь: (stringCount + 1) смещений long, затем байты строк в UTF-8 подряд
+ * - строки по [ROW_SIZE] байт: id, age, salary, коды department/name/email, флаги
+ * - битовые карты [UserBitmapIndex] (с версии 2, необязательная секция)
+ * - футер: CRC32C всего, что перед ним, и magic
+ *
+ * Версия 1 (заголовок 32 байта, без битовых карт) по-прежнему читается.
+ *
+ * Один файл отображается одним буфером, поэтому размер снимка ограничен 2 ГБ
+ * (около 50 млн пользователей с типичными строками).
+ */
+object UserSnapshot {
+
+    const val MAGIC = 0x53524553 // "SERS"
+    const val VERSION: Short = 2
+    const val HEADER_SIZE = 40
+    const val ROW_SIZE = 32
+    const val FOOTER_SIZE = 8
+
+    // Смещения полей в заголовке
+    internal const val HEADER_MAGIC = 0
+    internal const val HEADER_VERSION = 4
+    internal const val HEADER_ROW_COUNT = 8
+    internal const val HEADER_STRING_COUNT = 12
+    internal const val HEADER_STRINGS_OFFSET = 16
+    internal const val HEADER_ROWS_OFFSET = 24
+    internal const val HEADER_BITMAPS_OFFSET = 32
+
+    // Смещения полей внутри строки
+    internal const val ROW_ID = 0
+    internal const val ROW_AGE = 4
+    internal const val ROW_SALARY = 8
+    internal const val ROW_DEPARTMENT = 16
+    internal const val ROW_NAME = 20
+    internal const val ROW_EMAIL = 24
+    internal const val ROW_FLAGS = 28
+
+    internal const val FLAG_ACTIVE = 1
+
+    fun write(path: Path, users: Iterable<User>, withBitmaps: Boolean = true) =
+        write(path, users.toUserTable(), withBitmaps)
+
+    /**
+     * Записывает снимок через отображение файла в память.
+     * withBitmaps - сохранить битовые индексы, чтобы не строить их при каждом старте
+     */
+    fun write(path: Path, table: UserTable, withBitmaps: Boolean = true) {
+        // Один общий словарь для отделов, имен и email
+        val dictionary = StringDictionary()
+        val departments = IntArray(table.size)
+        val names = IntArray(table.size)
+        val emails = IntArray(table.size)
+        for (row in 0 until table.size) {
+            departments[row] = dictionary.encode(table.department(row))
+            names[row] = dictionary.encode(table.name(row))
+            emails[row] = dictionary.encode(table.email(row))
+        }
+        val strings = Array(dictionary.size) { dictionary.decode(it).toByteArray(Charsets.UTF_8) }
+
+        val stringsOffset = HEADER_SIZE.toLong()
+        val stringBytesOffset = stringsOffset + (strings.size + 1L) * Long.SIZE_BYTES
+        val stringBytes = strings.sumOf { it.size.toLong() }
+        val rowsOffset = align(stringBytesOffset + stringBytes)
+        val bitmaps = if (withBitmaps) UserBitmapIndex.of(table) else null
+        val rowsEnd = rowsOffset + table.size.toLong() * ROW_SIZE
+        val bitmapsOffset = if (bitmaps == null) NO_SECTION else rowsEnd
+        val footerOffset = rowsEnd + (bitmaps?.serializedSize() ?: 0)
+        val fileSize = footerOffset + FOOTER_SIZE
+        require(fileSize <= Int.MAX_VALUE) { "Снимок больше 2 ГБ не поддерживается: $fileSize байт" }
+
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE,
+        ).use { channel ->
+            val buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize)
+            buffer.order(ByteOrder.LITTLE_ENDIAN)
+
+            buffer.putInt(HEADER_MAGIC, MAGIC)
+            buffer.putShort(HEADER_VERSION, VERSION)
+            buffer.putInt(HEADER_ROW_COUNT, table.size)
+            buffer.putInt(HEADER_STRING_COUNT, strings.size)
+            buffer.putLong(HEADER_STRINGS_OFFSET, stringsOffset)
+            buffer.putLong(HEADER_ROWS_OFFSET, rowsOffset)
+            buffer.putLong(HEADER_BITMAPS_OFFSET, bitmapsOffset)
+
+            var stringOffset = stringBytesOffset
+            for (code in strings.indices) {
+                buffer.putLong((stringsOffset + code.toLong() * Long.SIZE_BYTES).toInt(), stringOffset)
+                buffer.put(stringOffset.toInt(), strings[code])
+                stringOffset += strings[code].size
+            }
+            buffer.putLong((stringsOffset + strings.size.toLong() * Long.SIZE_BYTES).toInt(), stringOffset)
+
+            for (row in 0 until table.size) {
+                val at = (rowsOffset + row.toLong() * ROW_SIZE).toInt()
+                buffer.putInt(at + ROW_ID, table.id(row))
+                buffer.putInt(at + ROW_AGE, table.age(row))
+                buffer.putDouble(at + ROW_SALARY, table.salary(row))
+                buffer.putInt(at + ROW_DEPARTMENT, departments[row])
+                buffer.putInt(at + ROW_NAME, names[row])
+                buffer.putInt(at + ROW_EMAIL, emails[row])
+                buffer.put(at + ROW_FLAGS, if (table.isActive(row)) FLAG_ACTIVE.toByte() else 0)
+            }
+
+            if (bitmaps != null) {
+                buffer.position(bitmapsOffset.toInt())
+                bitmaps.writeTo(buffer) { dictionary.codeOf(it) }
+            }
+
+            buffer.putInt(footerOffset.toInt(), checksum(buffer, footerOffset.toInt()))
+            buffer.putInt(footerOffset.toInt() + Int.SIZE_BYTES, MAGIC)
+            buffer.force()
+        }
+    }
+
+    /**
+     * Открывает снимок. Проверка CRC32C - это один последовательный проход по файлу;
+     * без нее открытие занимает время отображения файла и чтения заголовка.
+     */
+    fun open(path: Path, verifyChecksum: Boolean = true): MappedUserSnapshot {
+        val buffer = FileChannel.open(path, StandardOpenOption.READ).use { channel ->
+            require(channel.size() in (HEADER_SIZE + FOOTER_SIZE).toLong()..Int.MAX_VALUE) {
+                "Некорректный размер снимка: ${channel.size()} байт"
+            }
+            channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN)
+        return MappedUserSnapshot(buffer, verifyChecksum)
+    }
+
+    internal const val NO_SECTION = 0L
+
+    internal fun checksum(buffer: ByteBuffer, length: Int): Int {
+        val crc = CRC32C()
+        crc.update(buffer.duplicate().position(0).limit(length))
+        return crc.value.toInt()
+    }
+
+    private fun align(offset: Long): Long = (offset + Long.SIZE_BYTES - 1) and (Long.SIZE_BYTES - 1).toLong().inv()
+}
+
+/**
+ * Снимок, отображенный в память. Поля читаются прямо из файла по номеру строки,
+ * строки словаря декодируются только при обращении.
+ */
+class MappedUserSnapshot internal constructor(
+    private val buffer: MappedByteBuffer,
+    verifyChecksum: Boolean,
+) {
+
+    val size: Int
+    private val stringCount: Int
+    private val stringsOffset: Int
+    private val rowsOffset: Int
+    private val bitmapsOffset: Int
+
+    /**
+     * Битовые индексы из снимка или null, если снимок записан без них.
+     * Читаются один раз при первом обращении - это компактная секция, а не все строки.
+     */
+    val bitmapIndex: UserBitmapIndex? by lazy {
+        if (bitmapsOffset == 0) return@lazy null
+        val section = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).position(bitmapsOffset)
+        UserBitmapIndex.readFrom(section) { string(it) }
+    }
+
+    init {
+        val footerOffset = buffer.limit() - UserSnapshot.FOOTER_SIZE
+        require(buffer.getInt(UserSnapshot.HEADER_MAGIC) == UserSnapshot.MAGIC) { "Файл не является снимком пользователей" }
+        require(buffer.getInt(footerOffset + Int.SIZE_BYTES) == UserSnapshot.MAGIC) { "Снимок обрезан: нет футера" }
+        val version = buffer.getShort(UserSnapshot.HEADER_VERSION)
+        require(version in 1..UserSnapshot.VERSION) { "Неподдерживаемая версия снимка: $version" }
+        if (verifyChecksum) {
+            check(UserSnapshot.checksum(buffer, footerOffset) == buffer.getInt(footerOffset)) {
+                "Контрольная сумма снимка не совпадает"
+            }
+        }
+        size = buffer.getInt(UserSnapshot.HEADER_ROW_COUNT)
+        stringCount = buffer.getInt(UserSnapshot.HEADER_STRING_COUNT)
+        stringsOffset = buffer.getLong(UserSnapshot.HEADER_STRINGS_OFFSET).toInt()
+        rowsOffset = buffer.getLong(UserSnapshot.HEADER_ROWS_OFFSET).toInt()
+        bitmapsOffset = if (version < 2) 0 else buffer.getLong(UserSnapshot.HEADER_BITMAPS_OFFSET).toInt()
+        val rowsEnd = if (bitmapsOffset == 0) footerOffset else bitmapsOffset
+        require(rowsOffset.toLong() + size.toLong() * UserSnapshot.ROW_SIZE == rowsEnd.toLong()) {
+            "Заголовок снимка не соответствует размеру файла"
+        }
+    }
+
+    fun id(row: Int): Int = buffer.getInt(rowAt(row) + UserSnapshot.ROW_ID)
+    fun age(row: Int): Int = buffer.getInt(rowAt(row) + UserSnapshot.ROW_AGE)
+    fun salary(row: Int): Double = buffer.getDouble(rowAt(row) + UserSnapshot.ROW_SALARY)
+    fun isActive(row: Int): Boolean =
+        buffer.get(rowAt(row) + UserSnapshot.ROW_FLAGS).toInt() and UserSnapshot.FLAG_ACTIVE != 0
+
+    /**
+     * Код отдела в словаре снимка - для группировки без декодирования строк
+     */
+    fun departmentCode(row: Int): Int = buffer.getInt(rowAt(row) + UserSnapshot.ROW_DEPARTMENT)
+
+    fun department(row: Int): String = string(departmentCode(row))
+    fun name(row: Int): String = string(buffer.getInt(rowAt(row) + UserSnapshot.ROW_NAME))
+    fun email(row: Int): String = string(buffer.getInt(rowAt(row) + UserSnapshot.ROW_EMAIL))
+
+    fun string(code: Int): String {
+        if (code < 0 || code >= stringCount) throw IndexOutOfBoundsException("code: $code, strings: $stringCount")
+        val entry = stringsOffset + code * Long.SIZE_BYTES
+        val from = buffer.getLong(entry).toInt()
+        val to = buffer.getLong(entry + Long.SIZE_BYTES).toInt()
+        val bytes = ByteArray(to - from)
+        buffer.get(from, bytes)
+        return String(bytes, Charsets.UTF_8)
+    }
+
+    fun users(rows: CompressedBitmap): List<User> {
+        val result = ArrayList<User>(rows.cardinality)
+        rows.forEach { result.add(user(it)) }
+        return result
+    }
+
+    fun user(row: Int): User =
+        User(id(row), name(row), age(row), email(row), department(row), salary(row), isActive(row))
+
+    fun asSequence(): Sequence<User> = (0 until size).asSequence().map { user(it) }
+
+    fun toUserTable(): UserTable {
+        val table = UserTable(size)
+        for (row in 0 until size) {
+            table.add(id(row), name(row), age(row), email(row), department(row), salary(row), isActive(row))
+        }
+        return table
+    }
+
+    private fun rowAt(row: Int): Int {
+        if (row < 0 || row >= size) throw IndexOutOfBoundsException("row: $row, size: $size")
+        return rowsOffset + row * UserSnapshot.ROW_SIZE
+    }
+}
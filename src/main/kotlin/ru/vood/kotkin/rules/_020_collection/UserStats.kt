@@ -0,0 +1,126 @@
+package ru.vood.kotkin.rules._020_collection
+
+import java.util.function.BiConsumer
+import java.util.function.BinaryOperator
+import java.util.function.Supplier
+import java.util.function.ToDoubleFunction
+import java.util.function.ToIntFunction
+import java.util.stream.Collector
+
+/**
+ * СТАТИСТИКА ЗА ОДИН ПРОХОД
+ *
+ * Вместо отдельных sumOf / maxOf / minOf / map { }.average() - каждый из которых
+ * заново проходит по всему списку - собираем count/sum/min/max/avg возраста
+ * и зарплаты за один проход.
+ *
+ * Экземпляры можно объединять ([combine]), поэтому коллектор корректно работает
+ * и с parallel() стримами. Для пустого набора min/max ведут себя как в
+ * IntSummaryStatistics / DoubleSummaryStatistics.
+ */
+class UserStats {
+
+    var count: Long = 0
+        private set
+
+    var ageSum: Long = 0
+        private set
+    var minAge: Int = Int.MAX_VALUE
+        private set
+    var maxAge: Int = Int.MIN_VALUE
+        private set
+
+    var minSalary: Double = Double.POSITIVE_INFINITY
+        private set
+    var maxSalary: Double = Double.NEGATIVE_INFINITY
+        private set
+
+    // Суммирование с компенсацией (Кэхэн), как в Collectors.summingDouble
+    private var salarySum = 0.0
+    private var salaryCompensation = 0.0
+    private var simpleSalarySum = 0.0
+
+    val totalSalary: Double
+        get() {
+            val sum = salarySum - salaryCompensation
+            // Если компенсированная сумма ушла в NaN из-за бесконечностей - берем обычную
+            return if (sum.isNaN() && simpleSalarySum.isInfinite()) simpleSalarySum else sum
+        }
+
+    val averageAge: Double
+        get() = if (count > 0) ageSum.toDouble() / count else 0.0
+
+    val averageSalary: Double
+        get() = if (count > 0) totalSalary / count else 0.0
+
+    fun accept(age: Int, salary: Double) {
+        count++
+        ageSum += age
+        minAge = minOf(minAge, age)
+        maxAge = maxOf(maxAge, age)
+        minSalary = minOf(minSalary, salary)
+        maxSalary = maxOf(maxSalary, salary)
+        simpleSalarySum += salary
+        addSalary(salary)
+    }
+
+    fun accept(user: User) = accept(user.age, user.salary)
+
+    /**
+     * Объединяет частичную статистику (например, от другого потока) в текущую
+     */
+    fun combine(other: UserStats): UserStats {
+        count += other.count
+        ageSum += other.ageSum
+        minAge = minOf(minAge, other.minAge)
+        maxAge = maxOf(maxAge, other.maxAge)
+        minSalary = minOf(minSalary, other.minSalary)
+        maxSalary = maxOf(maxSalary, other.maxSalary)
+        simpleSalarySum += other.simpleSalarySum
+        addSalary(other.salarySum)
+        addSalary(-other.salaryCompensation)
+        return this
+    }
+
+    private fun addSalary(value: Double) {
+        val corrected = value - salaryCompensation
+        val sum = salarySum + corrected
+        salaryCompensation = (sum - salarySum) - corrected
+        salarySum = sum
+    }
+
+    override fun toString(): String =
+        "UserStats(count=$count, " +
+            "age[min=$minAge, max=$maxAge, avg=${"%.2f".format(averageAge)}], " +
+            "salary[sum=$totalSalary, min=$minSalary, max=$maxSalary, avg=${"%.2f".format(averageSalary)}])"
+
+    companion object {
+
+        /**
+         * Коллектор для Java Stream API: users.stream().collect(UserStats.collector(User::getAge, User::getSalary))
+         */
+        @JvmStatic
+        fun <T> collector(age: ToIntFunction<in T>, salary: ToDoubleFunction<in T>): Collector<T, UserStats, UserStats> =
+            Collector.of(
+                Supplier { UserStats() },
+                BiConsumer<UserStats, T> { stats, item -> stats.accept(age.applyAsInt(item), salary.applyAsDouble(item)) },
+                BinaryOperator<UserStats> { left, right -> left.combine(right) },
+                Collector.Characteristics.IDENTITY_FINISH,
+            )
+    }
+}
+
+fun Iterable<User>.userStats(): UserStats =
+    fold(UserStats()) { stats, user -> stats.apply { accept(user) } }
+
+fun Sequence<User>.userStats(): UserStats =
+    fold(UserStats()) { stats, user -> stats.apply { accept(user) } }
+
+/**
+ * Та же статистика по колонкам [UserTable] - без создания User
+ */
+fun UserTable.userStats(rows: IntArray = allRows()): UserStats {
+    val stats = UserStats()
+    for (row in rows) stats.accept(age(row), salary(row))
+    return stats
+}
@@ -0,0 +1,253 @@
+package ru.vood.kotkin.rules._020_collection
+
+import java.util.BitSet
+
+/**
+ * КОЛОНОЧНОЕ ХРАНЕНИЕ ПОЛЬЗОВАТЕЛЕЙ
+ *
+ * List<User> - это массив ссылок на объекты в куче: на каждый запрос
+ * процессор прыгает по указателям, а map { it.age } боксит каждый Int.
+ * UserTable хранит каждое поле отдельной колонкой:
+ * - id, age - IntArray
+ * - salary - DoubleArray
+ * - active - BitSet
+ * - department, name, email - коды из [StringDictionary]
+ *
+ * Строка таблицы - это просто номер (row), User создается только по явному запросу [user].
+ * Результат фильтрации - массив номеров строк (selection), а не новый список объектов.
+ */
+class UserTable(initialCapacity: Int = 16) {
+
+    private var capacity = maxOf(initialCapacity, 1)
+
+    private var ids = IntArray(capacity)
+    private var ages = IntArray(capacity)
+    private var salaries = DoubleArray(capacity)
+    private val activeFlags = BitSet(capacity)
+    private var departmentCodes = IntArray(capacity)
+    private var nameCodes = IntArray(capacity)
+    private var emailCodes = IntArray(capacity)
+
+    val departments = StringDictionary()
+    private val names = StringDictionary()
+    private val emails = StringDictionary()
+
+    var size: Int = 0
+        private set
+
+    fun add(user: User): Int =
+        add(user.id, user.name, user.age, user.email, user.department, user.salary, user.active)
+
+    /**
+     * Добавляет строку и возвращает ее номер
+     */
+    fun add(
+        id: Int,
+        name: String,
+        age: Int,
+        email: String,
+        department: String,
+        salary: Double,
+        active: Boolean,
+    ): Int {
+        if (size == capacity) grow()
+        val row = size++
+        ids[row] = id
+        ages[row] = age
+        salaries[row] = salary
+        activeFlags[row] = active
+        departmentCodes[row] = departments.encode(department)
+        nameCodes[row] = names.encode(name)
+        emailCodes[row] = emails.encode(email)
+        return row
+    }
+
+    private fun grow() {
+        capacity *= 2
+        ids = ids.copyOf(capacity)
+        ages = ages.copyOf(capacity)
+        salaries = salaries.copyOf(capacity)
+        departmentCodes = departmentCodes.copyOf(capacity)
+        nameCodes = nameCodes.copyOf(capacity)
+        emailCodes = emailCodes.copyOf(capacity)
+    }
+
+    // ----------------------------------------------------------------------
+    // ДОСТУП К КОЛОНКАМ ПО НОМЕРУ СТРОКИ
+    // ----------------------------------------------------------------------
+
+    fun id(row: Int): Int = ids[checkRow(row)]
+    fun age(row: Int): Int = ages[checkRow(row)]
+    fun salary(row: Int): Double = salaries[checkRow(row)]
+    fun isActive(row: Int): Boolean = activeFlags[checkRow(row)]
+    fun departmentCode(row: Int): Int = departmentCodes[checkRow(row)]
+    fun department(row: Int): String = departments.decode(departmentCode(row))
+    fun name(row: Int): String = names.decode(nameCodes[checkRow(row)])
+    fun email(row: Int): String = emails.decode(emailCodes[checkRow(row)])
+
+    /**
+     * Материализация строки в объект - только там, где объект действительно нужен
+     */
+    fun user(row: Int): User =
+        User(id(row), name(row), age(row), email(row), department(row), salary(row), isActive(row))
+
+    fun users(rows: IntArray): List<User> = rows.map { user(it) }
+
+    fun allRows(): IntArray = IntArray(size) { it }
+
+    private fun checkRow(row: Int): Int {
+        if (row < 0 || row >= size) throw IndexOutOfBoundsException("row: $row, size: $size")
+        return row
+    }
+
+    // ----------------------------------------------------------------------
+    // FILTER / COUNT / PARTITION - результат в виде номеров строк
+    // ----------------------------------------------------------------------
+
+    inline fun filter(predicate: UserTable.(row: Int) -> Boolean): IntArray {
+        val selection = IntList()
+        for (row in 0 until size) {
+            if (predicate(row)) selection.add(row)
+        }
+        return selection.toIntArray()
+    }
+
+    inline fun count(predicate: UserTable.(row: Int) -> Boolean): Int {
+        var count = 0
+        for (row in 0 until size) {
+            if (predicate(row)) count++
+        }
+        return count
+    }
+
+    inline fun firstOrNull(predicate: UserTable.(row: Int) -> Boolean): Int? {
+        for (row in 0 until size) {
+            if (predicate(row)) return row
+        }
+        return null
+    }
+
+    inline fun partition(predicate: UserTable.(row: Int) -> Boolean): Pair<IntArray, IntArray> {
+        val matched = IntList()
+        val rest = IntList()
+        for (row in 0 until size) {
+            if (predicate(row)) matched.add(row) else rest.add(row)
+        }
+        return matched.toIntArray() to rest.toIntArray()
+    }
+
+    fun activeRows(): IntArray {
+        val selection = IntArray(activeFlags.cardinality())
+        var row = activeFlags.nextSetBit(0)
+        var i = 0
+        while (row >= 0 && row < size) {
+            selection[i++] = row
+            row = activeFlags.nextSetBit(row + 1)
+        }
+        return selection
+    }
+
+    // ----------------------------------------------------------------------
+    // АГРЕГАЦИИ ПО ВСЕЙ КОЛОНКЕ - SIMD-ядра [ColumnKernels] вместо цикла по строкам
+    // ----------------------------------------------------------------------
+
+    fun totalSalary(): Double = ColumnKernels.sum(salaries, size)
+
+    fun minSalary(): Double? = if (size == 0) null else ColumnKernels.min(salaries, size)
+
+    fun maxSalary(): Double? = if (size == 0) null else ColumnKernels.max(salaries, size)
+
+    fun averageAge(): Double? = if (size == 0) null else ColumnKernels.sum(ages, size).toDouble() / size
+
+    fun minAge(): Int? = if (size == 0) null else ColumnKernels.min(ages, size)
+
+    fun maxAge(): Int? = if (size == 0) null else ColumnKernels.max(ages, size)
+
+    fun countSalaryAbove(threshold: Double): Int = ColumnKernels.countGreaterThan(salaries, size, threshold)
+
+    fun countAgeBelow(threshold: Int): Int = ColumnKernels.countLessThan(ages, size, threshold)
+
+    fun rowsWithSalaryAbove(threshold: Double): IntArray {
+        val selection = IntArray(size)
+        return selection.copyOf(ColumnKernels.selectGreaterThan(salaries, size, threshold, selection))
+    }
+
+    fun rowsWithAgeBelow(threshold: Int): IntArray {
+        val selection = IntArray(size)
+        return selection.copyOf(ColumnKernels.selectLessThan(ages, size, threshold, selection))
+    }
+
+    // ----------------------------------------------------------------------
+    // GROUP BY - код отдела служит индексом массива, без HashMap на каждую строку
+    // ----------------------------------------------------------------------
+
+    fun countByDepartment(rows: IntArray = allRows()): Map<String, Int> {
+        val counts = IntArray(departments.size)
+        for (row in rows) counts[departmentCodes[row]]++
+        return buildDepartmentMap(counts) { code -> counts[code] }
+    }
+
+    fun averageSalaryByDepartment(rows: IntArray = allRows()): Map<String, Double> {
+        val counts = IntArray(departments.size)
+        val sums = DoubleArray(departments.size)
+        for (row in rows) {
+            val code = departmentCodes[row]
+            counts[code]++
+            sums[code] += salaries[row]
+        }
+        return buildDepartmentMap(counts) { code -> sums[code] / counts[code] }
+    }
+
+    fun rowsByDepartment(rows: IntArray = allRows()): Map<String, IntArray> {
+        val groups = arrayOfNulls<IntList>(departments.size)
+        for (row in rows) {
+            val code = departmentCodes[row]
+            (groups[code] ?: IntList().also { groups[code] = it }).add(row)
+        }
+        val counts = IntArray(departments.size) { groups[it]?.size ?: 0 }
+        return buildDepartmentMap(counts) { code -> groups[code]?.toIntArray() ?: IntArray(0) }
+    }
+
+    // Порядок ключей - порядок первого появления отдела, как у groupBy
+    private inline fun <V> buildDepartmentMap(counts: IntArray, value: (code: Int) -> V): Map<String, V> {
+        val result = LinkedHashMap<String, V>()
+        for (code in counts.indices) {
+            if (counts[code] > 0) result[departments.decode(code)] = value(code)
+        }
+        return result
+    }
+
+    fun distinctDepartments(): List<String> = departments.values()
+
+    // ----------------------------------------------------------------------
+    // SORTED - сортируется массив номеров строк, а не объекты
+    // ----------------------------------------------------------------------
+
+    fun sortedRows(comparator: RowComparator, rows: IntArray = allRows()): IntArray =
+        rows.copyOf().apply { sortRowsWith(comparator) }
+
+    fun byAge(): RowComparator = RowComparator { left, right -> ages[left].compareTo(ages[right]) }
+
+    fun bySalaryDescending(): RowComparator =
+        RowComparator { left, right -> salaries[right].compareTo(salaries[left]) }
+
+    /**
+     * Сравнение по названию отдела через ранги словаря - строки сравниваются один раз
+     */
+    fun byDepartment(): RowComparator {
+        val ranks = departments.sortRanks()
+        return RowComparator { left, right ->
+            ranks[departmentCodes[left]].compareTo(ranks[departmentCodes[right]])
+        }
+    }
+
+    companion object {
+        fun of(users: Iterable<User>): UserTable {
+            val table = UserTable(if (users is Collection<*>) users.size else 16)
+            users.forEach { table.add(it) }
+            return table
+        }
+    }
+}
+
+fun Iterable<User>.toUserTable(): UserTable = UserTable.of(this)
@@ -102,6 +102,10 @@ fun main() {
     println("Минимальная зарплата: $minSalary")
     println("Средний возраст: ${"%.2f".format(averageAge)}")
 
+    // Все то же самое за один проход по списку
+    val stats = users.userStats()
+    println("Статистика за один проход: $stats")
+
     println("\n=== ГРУППИРОВКА И СОРТИРОВКА ===")
 
     // ----------------------------------------------------------------------
@@ -112,6 +116,11 @@ fun main() {
 
     val usersByDepartmentGood = users.groupBy { Department(it.department) }
 
+    // Канонические отделы из реестра: корзины лежат в массиве по номеру отдела
+    val departmentRegistry = DepartmentRegistry()
+    val usersByDepartmentInterned = departmentRegistry.groupBy(users) { Department(it.department) }
+    println("Отделы из реестра: ${usersByDepartmentInterned.mapValues { (_, deptUsers) -> deptUsers.map { it.name } }}")
+
     println("Пользователи по отделам:")
     usersByDepartmentBad.forEach { (department, deptUsers) ->
         println("  $department: ${deptUsers.map { it.name }}")
@@ -128,6 +137,16 @@ fun main() {
 
     println("Средняя зарплата по отделам: $avgSalaryByDept")
 
+    // То же самое параллельно и без промежуточных списков по отделам
+    val avgSalaryByDeptParallel = users.averageSalaryByDepartmentParallel()
+    println("Средняя зарплата по отделам (параллельно): $avgSalaryByDeptParallel")
+
+    // Агрегаты, которые обновляются по событиям, а не пересчитываются с нуля
+    val aggregateView = users.toAggregateView()
+    val firstUser = users.first()
+    aggregateView.onUpdate(firstUser, firstUser.copy(active = !firstUser.active))
+    println("Средняя по активным после смены флага у ${firstUser.name}: ${aggregateView.averageSalaryByDepartment()}")
+
     // ----------------------------------------------------------------------
     // SORTED - сортировка
     // ----------------------------------------------------------------------
@@ -145,6 +164,16 @@ fun main() {
     println("Сортировка по отделу и зарплате:")
     complexSorted.forEach { println("  ${it.department} - ${it.name} - ${it.salary}") }
 
+    // Одни и те же порядки по многу раз - перестановка считается один раз, дальше только представления
+    val sortedViews = users.sortedViewCache()
+    val byAgeView = sortedViews.sorted(BY_AGE)
+    sortedViews.add(User(8, "Анна", 19, "anna@mail.com", "HR", 40000.0, true))
+    println("По возрасту (кэш, после добавления): ${byAgeView.map { "${it.name}(${it.age})" }}")
+
+    // Если нужны только первые строки - не сортируем весь список
+    val topByDepartmentAndSalary = users.topK(3, compareBy<User> { it.department }.thenByDescending { it.salary })
+    println("Первые 3 по отделу и зарплате: ${topByDepartmentAndSalary.map { it.name }}")
+
     println("\n=== ПРОВЕРКИ И УСЛОВИЯ ===")
 
     // ----------------------------------------------------------------------
@@ -169,6 +198,11 @@ fun main() {
     println("Количество IT специалистов: $itCount")
     println("Молодых активных пользователей: $youngActiveCount")
 
+    // С индексами подсчет - это бинарный поиск, а не обход всего списка
+    val index = users.toUserIndex()
+    println("Количество IT специалистов (индекс): ${index.countInDepartment("IT")}")
+    println("Молодых активных пользователей (индекс): ${index.countActiveWithAgeIn(Int.MIN_VALUE..29)}")
+
     println("\n=== РАБОТА С МНОЖЕСТВАМИ ===")
 
     // ----------------------------------------------------------------------
@@ -182,6 +216,13 @@ fun main() {
     val uniqueAges = ages.distinct()
     println("Уникальные возраста: $uniqueAges")
 
+    // То же на сжатых битовых множествах номеров строк - без HashSet и упаковки Integer
+    val userTable = users.toUserTable()
+    val bitmaps = userTable.bitmapIndex()
+    println("Уникальные возраста (битовая карта): ${bitmaps.distinctAges().toIntArray().toList()}")
+    val youngActiveIT = bitmaps.department("IT").and(bitmaps.active).and(bitmaps.ageBelow(30))
+    println("IT ∧ active ∧ age < 30: ${userTable.users(youngActiveIT.toIntArray()).map { it.name }}")
+
     println("\n=== ЦЕПОЧКИ ВЫЗОВОВ (CHAINING) ===")
 
     // ----------------------------------------------------------------------
@@ -197,6 +238,16 @@ fun main() {
 
     println("Топ-2 активных IT специалистов: $result")
 
+    // Та же цепочка одним проходом: фильтры склеены, сортировка + take = куча на 2 элемента
+    val fusedResult = users.fusedQuery()
+        .filter { it.active }
+        .filter { it.department == "IT" }
+        .sortedByDescending { it.salary }
+        .take(2)
+        .map { "${it.name} - ${it.salary}" }
+
+    println("Топ-2 активных IT специалистов (одним проходом): $fusedResult")
+
     // ----------------------------------------------------------------------
     // PARTITION - разделение на две группы
     // ----------------------------------------------------------------------
@@ -249,6 +300,42 @@ fun main() {
         .toList() // Только здесь выполняются вычисления
 
     println("Ленивый результат: $lazyResult")
+
+    // chunked/windowed копируют элементы, представления - только ссылаются на исходный список
+    println("Пачки по 2: ${users.chunkedView(2).map { chunk -> chunk.map { it.name } }}")
+    println("Последние 2: ${users.takeLastView(2).map { it.name }}")
+
+    println("\n=== КОЛОНОЧНОЕ ХРАНЕНИЕ (UserTable) ===")
+
+    // ----------------------------------------------------------------------
+    // ТЕ ЖЕ ЗАПРОСЫ БЕЗ ОБЪЕКТА User НА КАЖДУЮ СТРОКУ
+    // ----------------------------------------------------------------------
+
+    val table = users.toUserTable()
+
+    val tableOver30 = table.filter { age(it) > 30 }
+    println("Пользователи старше 30: ${tableOver30.map { table.name(it) }}")
+
+    println("Средняя зарплата по отделам: ${table.averageSalaryByDepartment()}")
+
+    val tableByAge = table.sortedRows(table.byAge())
+    println("Пользователи по возрасту: ${tableByAge.map { "${table.name(it)}(${table.age(it)})" }}")
+
+    val (tableHighSalary, tableLowSalary) = table.partition { salary(it) > 52000 }
+    println("Высокооплачиваемые: ${tableHighSalary.map { table.name(it) }}")
+    println("Остальные: ${tableLowSalary.map { table.name(it) }}")
+
+    // Агрегации по целой колонке идут через SIMD-ядра (если модуль jdk.incubator.vector подключен)
+    println("Векторные ядра: ${ColumnKernels.isVectorized()}")
+    println("Фонд зарплат: ${table.totalSalary()}, максимум: ${table.maxSalary()}, средний возраст: ${table.averageAge()}")
+    println("Зарплата > 52000: ${table.rowsWithSalaryAbove(52000.0).map { table.name(it) }}")
+
+    // Бинарный снимок: при следующем старте файл отображается в память без разбора
+    val snapshotFile = kotlin.io.path.createTempFile("users", ".snapshot")
+    UserSnapshot.write(snapshotFile, table)
+    val snapshot = UserSnapshot.open(snapshotFile)
+    println("Из снимка: ${(0 until snapshot.size).map { "${snapshot.name(it)}(${snapshot.department(it)})" }}")
+    java.nio.file.Files.deleteIfExists(snapshotFile)
 }
 
 /**
@@ -276,6 +363,9 @@ fun main() {
 
 // ДОПОЛНИТЕЛЬНЫЕ ПРИМЕРЫ:
 
+// Компаратор - ключ SortedViewCache, поэтому создается один раз
+private val BY_AGE: Comparator<User> = compareBy { it.age }
+
 /**
  * Создание своих функций-расширений для коллекций
  */
@@ -284,9 +374,9 @@ fun List<User>.getActiveNames(): List<String> =
         .map { it.name }
 
 fun List<User>.getTopSalaries(count: Int): List<Double> =
-    this.map { it.salary }
-        .sortedDescending()
-        .take(count)
+    this.asSequence()
+        .map { it.salary }
+        .topK(count, reverseOrder())  // Куча на count элементов вместо сортировки всего списка
 
 /**
  * Использование scope функций для более сложной логики
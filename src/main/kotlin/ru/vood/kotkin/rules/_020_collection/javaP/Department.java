@@ -12,27 +12,41 @@ import java.util.*;
 // В Java нет value классов, используем обычный класс
 class Department {
     private final String value;
+    // Хеш считается один раз: Objects.hash(value) на каждый вызов создает массив varargs
+    private final int hash;
+    // Плотный номер отдела из DepartmentRegistry, NO_ORDINAL для экземпляров вне реестра
+    private final int ordinal;
 
     public Department(String value) {
+        this(value, DepartmentRegistry.NO_ORDINAL);
+    }
+
+    Department(String value, int ordinal) {
         this.value = value;
+        this.hash = Objects.hashCode(value);
+        this.ordinal = ordinal;
     }
 
     public String getValue() {
         return value;
     }
 
+    public int getOrdinal() {
+        return ordinal;
+    }
+
     // Должны реализовать equals/hashCode для корректной работы в коллекциях
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Department that = (Department) o;
-        return Objects.equals(value, that.value);
+        return hash == that.hash && Objects.equals(value, that.value);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(value);
+        return hash;
     }
 
     @Override
@@ -0,0 +1,117 @@
+package ru.vood.kotkin.rules._020_collection.javaP;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Реестр отделов: каждому названию соответствует ОДИН канонический экземпляр Department
+ * с заранее посчитанным хешем и плотным номером (ordinal = 0, 1, 2, ...).
+ *
+ * groupingBy(user -> new Department(...)) создает объект на каждую строку и хеширует его.
+ * С реестром объект создается один раз на отдел, а группировка - это индекс в массиве.
+ * Строки хранят название отдела, а не номер, поэтому groupingBy и averaging находят номер
+ * через intern - один поиск в ConcurrentHashMap на строку остается (хеш String закеширован).
+ * Выигрыш - нет Department и HashMap.Node на строку, корзины и суммы - массивы по номеру.
+ *
+ * Чтение потокобезопасно и без блокировок, регистрация нового отдела синхронизирована.
+ */
+class DepartmentRegistry {
+
+    static final int NO_ORDINAL = -1;
+
+    private final Map<String, Department> byValue = new ConcurrentHashMap<>();
+    private volatile Department[] byOrdinal = new Department[0];
+
+    /**
+     * Канонический экземпляр отдела, регистрирует новый при первом обращении
+     */
+    public Department intern(@NotNull String value) {
+        Department department = byValue.get(value);
+        return department != null ? department : register(value);
+    }
+
+    private synchronized Department register(String value) {
+        Department department = byValue.get(value);
+        if (department != null) {
+            return department;
+        }
+        Department[] current = byOrdinal;
+        department = new Department(value, current.length);
+        Department[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = department;
+        // Сначала публикуем массив, чтобы ordinal из map всегда был валиден
+        byOrdinal = next;
+        byValue.put(value, department);
+        return department;
+    }
+
+    public int ordinal(@NotNull String value) {
+        return intern(value).getOrdinal();
+    }
+
+    public Department byOrdinal(int ordinal) {
+        return byOrdinal[ordinal];
+    }
+
+    public int size() {
+        return byOrdinal.length;
+    }
+
+    /**
+     * Аналог groupingBy(user -> new Department(...)): корзины лежат в массиве по ordinal
+     */
+    public <T> Map<Department, List<T>> groupingBy(@NotNull Collection<T> items,
+                                                   @NotNull Function<? super T, String> department) {
+        List<List<T>> buckets = new ArrayList<>(size());
+        for (T item : items) {
+            int ordinal = ordinal(department.apply(item));
+            while (buckets.size() <= ordinal) {
+                buckets.add(null);
+            }
+            List<T> bucket = buckets.get(ordinal);
+            if (bucket == null) {
+                bucket = new ArrayList<>();
+                buckets.set(ordinal, bucket);
+            }
+            bucket.add(item);
+        }
+        Map<Department, List<T>> result = new LinkedHashMap<>();
+        for (int ordinal = 0; ordinal < buckets.size(); ordinal++) {
+            if (buckets.get(ordinal) != null) {
+                result.put(byOrdinal(ordinal), buckets.get(ordinal));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Аналог groupingBy(..., averagingDouble(...)): суммы и счетчики - примитивные массивы по ordinal
+     */
+    public <T> Map<Department, Double> averaging(@NotNull Collection<T> items,
+                                                 @NotNull Function<? super T, String> department,
+                                                 @NotNull ToDoubleFunction<? super T> value) {
+        long[] counts = new long[Math.max(size(), 1)];
+        double[] sums = new double[counts.length];
+        for (T item : items) {
+            int ordinal = ordinal(department.apply(item));
+            if (ordinal >= counts.length) {
+                int length = Math.max(ordinal + 1, counts.length * 2);
+                counts = Arrays.copyOf(counts, length);
+                sums = Arrays.copyOf(sums, length);
+            }
+            counts[ordinal]++;
+            sums[ordinal] += value.applyAsDouble(item);
+        }
+        Map<Department, Double> result = new LinkedHashMap<>();
+        for (int ordinal = 0; ordinal < counts.length; ordinal++) {
+            if (counts[ordinal] > 0) {
+                result.put(byOrdinal(ordinal), sums[ordinal] / counts[ordinal]);
+            }
+        }
+        return result;
+    }
+}
@@ -1,11 +1,20 @@
 package ru.vood.kotkin.rules._020_collection.javaP;
 
 import org.jetbrains.annotations.NotNull;
+import ru.vood.kotkin.rules._020_collection.DepartmentAggregator;
+import ru.vood.kotkin.rules._020_collection.FusedQuery;
+import ru.vood.kotkin.rules._020_collection.ListViews;
+import ru.vood.kotkin.rules._020_collection.SortedViewCache;
+import ru.vood.kotkin.rules._020_collection.TopK;
+import ru.vood.kotkin.rules._020_collection.UserStats;
 
 import java.util.*;
 import java.util.stream.Collectors;
 
 public class JavaCollectionsDemo {
+    // Компаратор - ключ SortedViewCache, поэтому создается один раз
+    private static final Comparator<User> BY_SALARY_DESC = Comparator.comparingDouble(User::getSalary).reversed();
+
     public static void main(String[] args) {
         // Создаем тестовые данные
         List<User> users = Arrays.asList(
@@ -68,10 +77,9 @@ public class JavaCollectionsDemo {
         System.out.println("Первый IT пользователь: " +
                 firstITUser.map(User::getName).orElse("Не найден"));
 
-        // last требует больше кода - нужно развернуть список или использовать reduce
-        User lastActiveUser = users.stream()
-                .filter(User::isActive)
-                .reduce((first, second) -> second) // Берем последний элемент
+        // last требует больше кода - в стандартной библиотеке нет поиска с конца,
+        // а reduce((first, second) -> second) проверяет каждый элемент списка
+        User lastActiveUser = ListViews.findLast(users, User::isActive)
                 .orElseThrow(() -> new NoSuchElementException("No active users found"));
         System.out.println("Последний активный пользователь: " + lastActiveUser.getName());
 
@@ -120,6 +128,11 @@ public class JavaCollectionsDemo {
         System.out.println("Минимальная зарплата: " + minSalary);
         System.out.println("Средний возраст: " + String.format("%.2f", averageAge));
 
+        // Все то же самое за один проход по списку (пять проходов выше - это пять обходов памяти)
+        UserStats stats = users.stream()
+                .collect(UserStats.collector(User::getAge, User::getSalary));
+        System.out.println("Статистика за один проход: " + stats);
+
         System.out.println("\n=== ГРУППИРОВКА И СОРТИРОВКА ===");
 
         // ----------------------------------------------------------------------
@@ -133,6 +146,14 @@ public class JavaCollectionsDemo {
         Map<Department, List<User>> usersByDepartmentGood = users.stream()
                 .collect(Collectors.groupingBy(user -> new Department(user.getDepartment())));
 
+        // Канонические отделы из реестра: один объект на отдел, корзины - по индексу в массиве
+        DepartmentRegistry departmentRegistry = new DepartmentRegistry();
+        Map<Department, List<User>> usersByDepartmentInterned =
+                departmentRegistry.groupingBy(users, User::getDepartment);
+        System.out.println("Отделы из реестра: " + usersByDepartmentInterned.keySet().stream()
+                .map(department -> department + "#" + department.getOrdinal() + "=" + usersByDepartmentInterned.get(department).size())
+                .collect(Collectors.toList()));
+
         System.out.println("Пользователи по отделам:");
         usersByDepartmentBad.forEach((department, deptUsers) -> {
             List<String> deptUserNames = deptUsers.stream()
@@ -149,6 +170,11 @@ public class JavaCollectionsDemo {
                 ));
         System.out.println("Средняя зарплата по отделам: " + avgSalaryByDept);
 
+        // То же самое параллельно и без промежуточных списков по отделам
+        Map<String, Double> avgSalaryByDeptParallel =
+                DepartmentAggregator.averaging(users, User::getDepartment, User::getSalary);
+        System.out.println("Средняя зарплата по отделам (параллельно): " + avgSalaryByDeptParallel);
+
         // ----------------------------------------------------------------------
         // SORTED - сортировка
         // ----------------------------------------------------------------------
@@ -179,6 +205,21 @@ public class JavaCollectionsDemo {
         complexSorted.forEach(user ->
                 System.out.println("  " + user.getDepartment() + " - " + user.getName() + " - " + user.getSalary()));
 
+        // Одни и те же порядки по многу раз - перестановка считается один раз, дальше только представления
+        SortedViewCache<User> sortedViews = new SortedViewCache<>(users);
+        List<User> bySalaryView = sortedViews.sorted(BY_SALARY_DESC);
+        sortedViews.set(0, new User(1, "Алексей", 25, "alex@mail.com", "IT", 70000.0, true));
+        System.out.println("По зарплате (кэш, после изменения): " + bySalaryView.stream()
+                .map(user -> user.getName() + "(" + user.getSalary() + ")")
+                .collect(Collectors.toList()));
+
+        // Если нужны только первые строки - не сортируем весь список
+        List<User> topByDepartmentAndSalary = users.stream()
+                .collect(TopK.collector(3, Comparator
+                        .comparing(User::getDepartment)
+                        .thenComparing(Comparator.comparingDouble(User::getSalary).reversed())));
+        System.out.println("Первые 3 по отделу и зарплате: " + topByDepartmentAndSalary);
+
         System.out.println("\n=== ПРОВЕРКИ И УСЛОВИЯ ===");
 
         // ----------------------------------------------------------------------
@@ -239,6 +280,16 @@ public class JavaCollectionsDemo {
 
         System.out.println("Топ-2 активных IT специалистов: " + result);
 
+        // Та же цепочка одним проходом: фильтры склеены, сортировка + limit = куча на 2 элемента
+        List<String> fusedResult = FusedQuery.from(users)
+                .filter(User::isActive)
+                .filter(user -> "IT".equals(user.getDepartment()))
+                .sortedWith(Comparator.comparingDouble(User::getSalary).reversed())
+                .take(2)
+                .map(user -> user.getName() + " - " + user.getSalary());
+
+        System.out.println("Топ-2 активных IT специалистов (одним проходом): " + fusedResult);
+
         // ----------------------------------------------------------------------
         // PARTITION - разделение на две группы
         // ----------------------------------------------------------------------
@@ -312,6 +363,16 @@ public class JavaCollectionsDemo {
                 .collect(Collectors.toList());
 
         System.out.println("Ленивый результат: " + lazyResult);
+
+        System.out.println("\n=== ХРАНЕНИЕ ВНЕ КУЧИ (UserStore) ===");
+
+        // Тот же пайплайн, но пользователи лежат в direct ByteBuffer, а не объектами в куче
+        UserStore store = UserStore.of(users);
+        Map<String, Double> offHeapAvgSalary = store.stream()
+                .filter(UserRecord::isActive)
+                .collect(Collectors.groupingBy(UserRecord::getDepartment,
+                        Collectors.averagingDouble(UserRecord::getSalary)));
+        System.out.println("Средняя зарплата по отделам (вне кучи): " + offHeapAvgSalary);
     }
 
     // ----------------------------------------------------------------------
@@ -331,9 +392,7 @@ public class JavaCollectionsDemo {
     public static List<Double> getTopSalaries(@NotNull List<User> users, int count) {
         return users.stream()
                 .map(User::getSalary)
-                .sorted(Comparator.reverseOrder())
-                .limit(count)
-                .collect(Collectors.toList());
+                .collect(TopK.collector(count, Comparator.reverseOrder())); // Куча на count элементов вместо sorted().limit()
     }
 
     /**
@@ -2,7 +2,7 @@ package ru.vood.kotkin.rules._020_collection.javaP;
 
 import java.util.Objects;
 
-class User {
+class User implements UserRecord {
     private final int id;
     private final String name;
     private final int age;
@@ -0,0 +1,22 @@
+package ru.vood.kotkin.rules._020_collection.javaP;
+
+/**
+ * Геттеры пользователя без привязки к хранению: их реализует и обычный User в куче,
+ * и представление строки off-heap хранилища (UserStore).
+ * Пайплайны, написанные против UserRecord, работают с обоими.
+ */
+interface UserRecord {
+    int getId();
+
+    String getName();
+
+    int getAge();
+
+    String getEmail();
+
+    String getDepartment();
+
+    double getSalary();
+
+    boolean isActive();
+}
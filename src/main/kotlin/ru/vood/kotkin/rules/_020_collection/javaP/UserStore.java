@@ -0,0 +1,261 @@
+package ru.vood.kotkin.rules._020_collection.javaP;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище пользователей вне кучи.
+ *
+ * 100 млн объектов User в куче - это сотни миллионов ссылок, которые сборщик мусора
+ * обходит при каждой старой сборке. Здесь пользователь - слот фиксированной ширины
+ * в direct ByteBuffer, а имена и email - в отдельной off-heap "арене" строк.
+ * В куче остаются только несколько буферов, словарь отделов и короткоживущие представления.
+ *
+ * Слот, SLOT_SIZE байт: id, age, salary, ссылка на имя, ссылка на email, номер отдела, флаги.
+ * Буферы выделяются кусками, поэтому объем не ограничен 2 ГБ одного ByteBuffer
+ * (нужен -XX:MaxDirectMemorySize с запасом под данные).
+ *
+ * Запись не потокобезопасна; читать (в том числе parallel stream) можно из любых потоков
+ * после того, как все записи завершены и хранилище безопасно опубликовано.
+ */
+class UserStore {
+
+    static final int SLOT_SIZE = 40;
+
+    private static final int ID = 0;
+    private static final int AGE = 4;
+    private static final int SALARY = 8;
+    private static final int NAME = 16;
+    private static final int EMAIL = 24;
+    private static final int DEPARTMENT = 32;
+    private static final int FLAGS = 36;
+
+    private static final byte ACTIVE = 1;
+
+    private static final int SLOTS_PER_CHUNK_SHIFT = 20;
+    private static final int SLOTS_PER_CHUNK = 1 << SLOTS_PER_CHUNK_SHIFT;
+    private static final int ARENA_CHUNK_SHIFT = 26;
+    private static final int ARENA_CHUNK_SIZE = 1 << ARENA_CHUNK_SHIFT;
+
+    private final List<ByteBuffer> slots = new ArrayList<>();
+    private final List<ByteBuffer> arena = new ArrayList<>();
+    private final DepartmentRegistry departments = new DepartmentRegistry();
+
+    private int size;
+    private int arenaPosition = ARENA_CHUNK_SIZE; // Первая строка выделит первый кусок арены
+
+    public static UserStore of(@NotNull Collection<? extends UserRecord> users) {
+        UserStore store = new UserStore();
+        users.forEach(store::add);
+        return store;
+    }
+
+    public int add(@NotNull UserRecord user) {
+        return add(user.getId(), user.getName(), user.getAge(), user.getEmail(),
+                user.getDepartment(), user.getSalary(), user.isActive());
+    }
+
+    /**
+     * Добавляет пользователя и возвращает номер строки
+     */
+    public int add(int id, @NotNull String name, int age, @NotNull String email,
+                   @NotNull String department, double salary, boolean active) {
+        int row = size;
+        if ((row & (SLOTS_PER_CHUNK - 1)) == 0) {
+            slots.add(ByteBuffer.allocateDirect(SLOTS_PER_CHUNK * SLOT_SIZE).order(ByteOrder.nativeOrder()));
+        }
+        ByteBuffer chunk = slots.get(row >>> SLOTS_PER_CHUNK_SHIFT);
+        int at = slotOffset(row);
+        chunk.putInt(at + ID, id);
+        chunk.putInt(at + AGE, age);
+        chunk.putDouble(at + SALARY, salary);
+        chunk.putLong(at + NAME, putString(name));
+        chunk.putLong(at + EMAIL, putString(email));
+        chunk.putInt(at + DEPARTMENT, departments.ordinal(department));
+        chunk.put(at + FLAGS, active ? ACTIVE : 0);
+        size++;
+        return row;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // ----------------------------------------------------------------------
+    // ЧТЕНИЕ ПО НОМЕРУ СТРОКИ - без создания объектов (кроме строк имени и email)
+    // ----------------------------------------------------------------------
+
+    public int id(int row) {
+        return slot(row).getInt(slotOffset(row) + ID);
+    }
+
+    public int age(int row) {
+        return slot(row).getInt(slotOffset(row) + AGE);
+    }
+
+    public double salary(int row) {
+        return slot(row).getDouble(slotOffset(row) + SALARY);
+    }
+
+    public boolean isActive(int row) {
+        return (slot(row).get(slotOffset(row) + FLAGS) & ACTIVE) != 0;
+    }
+
+    public int departmentOrdinal(int row) {
+        return slot(row).getInt(slotOffset(row) + DEPARTMENT);
+    }
+
+    /**
+     * Канонический экземпляр из словаря - без декодирования и аллокаций
+     */
+    public String department(int row) {
+        return departments.byOrdinal(departmentOrdinal(row)).getValue();
+    }
+
+    public String name(int row) {
+        return getString(slot(row).getLong(slotOffset(row) + NAME));
+    }
+
+    public String email(int row) {
+        return getString(slot(row).getLong(slotOffset(row) + EMAIL));
+    }
+
+    // ----------------------------------------------------------------------
+    // ПРЕДСТАВЛЕНИЯ ДЛЯ STREAM-ПАЙПЛАЙНОВ
+    // ----------------------------------------------------------------------
+
+    /**
+     * Легкое представление строки: только ссылка на хранилище и номер строки.
+     * Такие объекты живут недолго и умирают в молодом поколении.
+     */
+    public UserRecord get(int row) {
+        checkRow(row);
+        return new Row(row);
+    }
+
+    public IntStream rows() {
+        return IntStream.range(0, size);
+    }
+
+    /**
+     * Те же пайплайны, что и над List<User>: store.stream().filter(UserRecord::isActive)...
+     */
+    public Stream<UserRecord> stream() {
+        return rows().mapToObj(Row::new);
+    }
+
+    /**
+     * Обход с одним переиспользуемым представлением - ноль аллокаций на строку.
+     * Ссылку на переданный объект нельзя сохранять: на следующем шаге он указывает на другую строку.
+     */
+    public void forEach(@NotNull Consumer<? super UserRecord> action) {
+        Row cursor = new Row(0);
+        for (int row = 0; row < size; row++) {
+            cursor.row = row;
+            action.accept(cursor);
+        }
+    }
+
+    private final class Row implements UserRecord {
+        private int row;
+
+        private Row(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public int getId() {
+            return id(row);
+        }
+
+        @Override
+        public String getName() {
+            return name(row);
+        }
+
+        @Override
+        public int getAge() {
+            return age(row);
+        }
+
+        @Override
+        public String getEmail() {
+            return email(row);
+        }
+
+        @Override
+        public String getDepartment() {
+            return department(row);
+        }
+
+        @Override
+        public double getSalary() {
+            return salary(row);
+        }
+
+        @Override
+        public boolean isActive() {
+            return UserStore.this.isActive(row);
+        }
+
+        @Override
+        public String toString() {
+            return "User{id=" + getId() + ", name='" + getName() + "'}";
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // АРЕНА СТРОК: [длина int][байты UTF-8], строка не пересекает границу куска
+    // ----------------------------------------------------------------------
+
+    private long putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int required = Integer.BYTES + bytes.length;
+        if (required > ARENA_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Строка слишком длинная для арены: " + bytes.length + " байт");
+        }
+        if (arenaPosition + required > ARENA_CHUNK_SIZE) {
+            arena.add(ByteBuffer.allocateDirect(ARENA_CHUNK_SIZE).order(ByteOrder.nativeOrder()));
+            arenaPosition = 0;
+        }
+        int chunkIndex = arena.size() - 1;
+        ByteBuffer chunk = arena.get(chunkIndex);
+        chunk.putInt(arenaPosition, bytes.length);
+        chunk.put(arenaPosition + Integer.BYTES, bytes);
+        long reference = ((long) chunkIndex << ARENA_CHUNK_SHIFT) | arenaPosition;
+        arenaPosition += required;
+        return reference;
+    }
+
+    private String getString(long reference) {
+        ByteBuffer chunk = arena.get((int) (reference >>> ARENA_CHUNK_SHIFT));
+        int offset = (int) (reference & (ARENA_CHUNK_SIZE - 1));
+        byte[] bytes = new byte[chunk.getInt(offset)];
+        chunk.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private ByteBuffer slot(int row) {
+        checkRow(row);
+        return slots.get(row >>> SLOTS_PER_CHUNK_SHIFT);
+    }
+
+    private static int slotOffset(int row) {
+        return (row & (SLOTS_PER_CHUNK - 1)) * SLOT_SIZE;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row: " + row + ", size: " + size);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_expression
+
+import java.util.function.Function
+import java.util.function.Supplier
+
+/**
+ * РЕЗУЛЬТАТ ВЫЧИСЛЕНИЯ БЕЗ ИСКЛЮЧЕНИЙ (аналог Try из Scala / Vavr)
+ *
+ * try { 10 / x } catch (e: ArithmeticException) { ... } - ошибка летит исключением,
+ * а new Exception() каждый раз вызывает fillInStackTrace: обход всего стека.
+ * Когда доля ошибок растет, этот обход становится главной статьей расходов.
+ *
+ * [Attempt] - ошибка как значение: [Success] или [Failure], без throw/catch.
+ * Частые ошибки - заранее созданные [StacklessFailure] без стека ([Failures]),
+ * поэтому неудачный путь не создает ни исключения, ни даже объекта Failure.
+ *
+ * Java: SafeMath.divide(10, x).map(v -> v * 2).getOrElse(0)
+ * (в Java имя Try уже занято демо-классом javaP.Try, поэтому тип называется Attempt)
+ */
+sealed class Attempt<out T> {
+
+    data class Success<out T>(val value: T) : Attempt<T>()
+
+    data class Failure(val error: Throwable) : Attempt<Nothing>()
+
+    val isSuccess: Boolean get() = this is Success
+
+    val isFailure: Boolean get() = this is Failure
+
+    /**
+     * Исключение внутри transform превращается в Failure, как и в [of]
+     */
+    fun <R> map(transform: Function<in T, out R>): Attempt<R> = when (this) {
+        is Success -> of { transform.apply(value) }
+        is Failure -> this
+    }
+
+    fun <R> flatMap(transform: Function<in T, out Attempt<R>>): Attempt<R> = when (this) {
+        is Success -> try {
+            transform.apply(value)
+        } catch (e: RuntimeException) {
+            Failure(e)
+        }
+        is Failure -> this
+    }
+
+    fun recover(fallback: Function<in Throwable, out @UnsafeVariance T>): Attempt<T> = when (this) {
+        is Success -> this
+        is Failure -> of { fallback.apply(error) }
+    }
+
+    fun <R> fold(onSuccess: Function<in T, out R>, onFailure: Function<in Throwable, out R>): R = when (this) {
+        is Success -> onSuccess.apply(value)
+        is Failure -> onFailure.apply(error)
+    }
+
+    fun getOrElse(defaultValue: @UnsafeVariance T): T = when (this) {
+        is Success -> value
+        is Failure -> defaultValue
+    }
+
+    fun getOrNull(): T? = (this as? Success)?.value
+
+    /**
+     * Выход обратно в мир исключений - на границе со старым кодом
+     */
+    fun getOrThrow(): T = when (this) {
+        is Success -> value
+        is Failure -> throw error
+    }
+
+    companion object {
+        @JvmStatic
+        fun <T> success(value: T): Attempt<T> = Success(value)
+
+        @JvmStatic
+        fun failure(error: Throwable): Attempt<Nothing> = Failure(error)
+
+        /**
+         * Граница с кодом, который бросает исключения: RuntimeException становится Failure
+         */
+        @JvmStatic
+        fun <T> of(block: Supplier<out T>): Attempt<T> = try {
+            Success(block.get())
+        } catch (e: RuntimeException) {
+            Failure(e)
+        }
+    }
+}
+
+/**
+ * Исключение без стека: writableStackTrace = false отключает fillInStackTrace,
+ * enableSuppression = false - список подавленных исключений.
+ * Создается один раз и переиспользуется - сообщение должно быть постоянным.
+ */
+open class StacklessFailure(message: String) : RuntimeException(message, null, false, false)
+
+/**
+ * Заранее созданные ошибки и готовые Failure для них: неудачный путь без аллокаций
+ */
+object Failures {
+    @JvmField
+    val DIVISION_BY_ZERO = StacklessFailure("Деление на ноль")
+
+    @JvmField
+    val EMPTY_INPUT = StacklessFailure("Пустая строка")
+
+    @JvmField
+    val NOT_A_NUMBER = StacklessFailure("Не число")
+
+    @JvmField
+    val NUMBER_OUT_OF_RANGE = StacklessFailure("Число вне диапазона Int")
+
+    internal val divisionByZero = Attempt.Failure(DIVISION_BY_ZERO)
+    internal val emptyInput = Attempt.Failure(EMPTY_INPUT)
+    internal val notANumber = Attempt.Failure(NOT_A_NUMBER)
+    internal val numberOutOfRange = Attempt.Failure(NUMBER_OUT_OF_RANGE)
+}
+
+/**
+ * Арифметика и разбор чисел, которые возвращают [Attempt] вместо throw
+ */
+object SafeMath {
+
+    /**
+     * Аналог a / b без ArithmeticException
+     */
+    @JvmStatic
+    fun divide(dividend: Int, divisor: Int): Attempt<Int> =
+        if (divisor == 0) Failures.divisionByZero else Attempt.Success(dividend / divisor)
+
+    /**
+     * Аналог Integer.parseInt без NumberFormatException (со стеком и новой строкой сообщения на каждую ошибку)
+     */
+    @JvmStatic
+    fun parseInt(text: CharSequence): Attempt<Int> {
+        if (text.isEmpty()) return Failures.emptyInput
+        val negative = text[0] == '-'
+        var index = if (negative || text[0] == '+') 1 else 0
+        if (index == text.length) return Failures.notANumber
+        // Накапливаем отрицательное значение: у Int.MIN_VALUE нет положительной пары
+        val limit = if (negative) Int.MIN_VALUE else -Int.MAX_VALUE
+        var result = 0
+        while (index < text.length) {
+            val digit = text[index++] - '0'
+            if (digit !in 0..9) return Failures.notANumber
+            if (result < limit / 10) return Failures.numberOutOfRange
+            result *= 10
+            if (result < limit + digit) return Failures.numberOutOfRange
+            result -= digit
+        }
+        return Attempt.Success(if (negative) result else -result)
+    }
+}
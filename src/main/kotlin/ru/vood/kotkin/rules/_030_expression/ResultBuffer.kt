@@ -0,0 +1,166 @@
+package ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen
+
+/**
+ * ПАЧКА РЕЗУЛЬТАТОВ БЕЗ ОБЪЕКТА НА КАЖДЫЙ РЕЗУЛЬТАТ
+ *
+ * listOf(Ok("..."), Error("...")) - это объект Ok/Error на каждый результат,
+ * а map { when (it) { ... } } создает еще по строке. При миллионах результатов
+ * это сплошной мусор для GC.
+ *
+ * Здесь пачка - два массива:
+ * - tags: ByteArray, [OK_TAG] или [ERROR_TAG] - какая ветка sealed interface
+ * - payloads: текст результата, повторяющиеся сообщения берутся из [MessageCache]
+ *
+ * Обход - посетитель в стиле when: ветка для Ok, ветка для Error.
+ * Объекты [IResult] создаются только на границе: [get], [toResults]. Пачку можно
+ * переиспользовать через [clear] - массивы остаются, новые не выделяются.
+ */
+class ResultBuffer @JvmOverloads constructor(
+    initialCapacity: Int = 64,
+    private val messages: MessageCache = MessageCache(),
+) {
+
+    /**
+     * Посетитель для Java: аналог switch (result) { case Ok ok -> ...; case Error error -> ... }
+     */
+    interface Visitor<R> {
+        fun ok(index: Int, value: String): R
+        fun error(index: Int, value: String): R
+    }
+
+    private var tags = ByteArray(maxOf(initialCapacity, 1))
+    private var payloads = arrayOfNulls<String>(tags.size)
+
+    var size: Int = 0
+        private set
+
+    var okCount: Int = 0
+        private set
+
+    val errorCount: Int get() = size - okCount
+
+    // Размер массивов: растет при переполнении, clear() его не сбрасывает
+    internal val capacity: Int get() = tags.size
+
+    /**
+     * Текст может быть любой CharSequence (например, StringBuilder парсера) -
+     * при попадании в кеш новая строка не создается
+     */
+    fun addOk(value: CharSequence) {
+        append(OK_TAG, value)
+        okCount++
+    }
+
+    fun addError(value: CharSequence) = append(ERROR_TAG, value)
+
+    /**
+     * Граница с IResult: результат раскладывается на тег и текст
+     */
+    fun add(result: IResult) = when (result) {
+        is Ok -> addOk(result.value)
+        is Error -> addError(result.value)
+    }
+
+    fun addAll(results: Iterable<IResult>) = results.forEach { add(it) }
+
+    fun isOk(index: Int): Boolean = tags[checkIndex(index)] == OK_TAG
+
+    fun payload(index: Int): String = checkNotNull(payloads[checkIndex(index)])
+
+    /**
+     * Аналог when (result) { is Ok -> onOk(value); is Error -> onError(value) } без объекта результата
+     */
+    inline fun <R> fold(index: Int, onOk: (String) -> R, onError: (String) -> R): R =
+        if (isOk(index)) onOk(payload(index)) else onError(payload(index))
+
+    inline fun forEach(onOk: (String) -> Unit, onError: (String) -> Unit) {
+        for (index in 0 until size) fold(index, onOk, onError)
+    }
+
+    fun <R> visit(index: Int, visitor: Visitor<R>): R =
+        if (isOk(index)) visitor.ok(index, payload(index)) else visitor.error(index, payload(index))
+
+    fun forEach(visitor: Visitor<*>) {
+        for (index in 0 until size) visit(index, visitor)
+    }
+
+    /**
+     * Граница с IResult: объект создается здесь, а не при хранении
+     */
+    operator fun get(index: Int): IResult = if (isOk(index)) Ok(payload(index)) else Error(payload(index))
+
+    fun toResults(): List<IResult> = List(size) { get(it) }
+
+    /**
+     * Пачка пуста, массивы и кеш сообщений сохраняются для следующей пачки
+     */
+    fun clear() {
+        payloads.fill(null, 0, size)
+        size = 0
+        okCount = 0
+    }
+
+    private fun append(tag: Byte, value: CharSequence) {
+        if (size == tags.size) {
+            tags = tags.copyOf(size * 2)
+            payloads = payloads.copyOf(tags.size)
+        }
+        tags[size] = tag
+        payloads[size] = messages.canonical(value)
+        size++
+    }
+
+    private fun checkIndex(index: Int): Int {
+        if (index < 0 || index >= size) throw IndexOutOfBoundsException("index: $index, size: $size")
+        return index
+    }
+
+    companion object {
+        const val OK_TAG: Byte = 0
+        const val ERROR_TAG: Byte = 1
+
+        @JvmStatic
+        fun of(results: Iterable<IResult>): ResultBuffer =
+            ResultBuffer(if (results is Collection) results.size else 64).apply { addAll(results) }
+    }
+}
+
+/**
+ * Кеш канонических сообщений: одинаковый текст - один экземпляр String.
+ *
+ * "Сеть недоступна" приходит миллион раз - в пачке хранится одна строка.
+ * Поиск идет по содержимому CharSequence, поэтому при попадании строка не создается вовсе.
+ * Кеш прямого отображения фиксированного размера: слот выбирается по хешу текста,
+ * при коллизии старое сообщение вытесняется. Память ограничена, редкие сообщения
+ * просто не задерживаются. Не потокобезопасен - один кеш на поток или на пачку.
+ */
+class MessageCache @JvmOverloads constructor(capacity: Int = 1024) {
+
+    private val slots: Array<String?>
+
+    init {
+        // Размер округляется вверх до степени двойки - больше 2^30 он бы переполнил Int
+        require(capacity in 1..MAX_CAPACITY) { "Размер кеша должен быть в диапазоне 1..$MAX_CAPACITY: $capacity" }
+        slots = arrayOfNulls(Integer.highestOneBit(capacity - 1).coerceAtLeast(1) shl 1)
+    }
+
+    fun canonical(text: CharSequence): String {
+        val hash = hashOf(text)
+        val slot = (hash xor (hash ushr 16)) and (slots.size - 1)
+        val cached = slots[slot]
+        if (cached != null && cached.contentEquals(text)) return cached
+        return text.toString().also { slots[slot] = it }
+    }
+
+    // Та же формула, что у String.hashCode - для String берется уже посчитанный хеш
+    private fun hashOf(text: CharSequence): Int {
+        if (text is String) return text.hashCode()
+        var hash = 0
+        for (index in text.indices) hash = 31 * hash + text[index].code
+        return hash
+    }
+
+    companion object {
+        const val MAX_CAPACITY = 1 shl 30
+    }
+}
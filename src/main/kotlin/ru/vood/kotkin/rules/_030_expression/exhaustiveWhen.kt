@@ -76,6 +76,16 @@ fun demonstrateResultHandling() {
         }
     }
     println("Обработанные результаты: $processedResults")
+
+    // Те же результаты пачкой: теги в ByteArray, тексты без объекта Ok/Error на каждый
+    val buffer = ResultBuffer.of(results)
+    buffer.add(Error("Сеть недоступна")) // повтор - в пачке та же строка из кеша сообщений
+    val report = StringBuilder()
+    buffer.forEach(
+        onOk = { report.append("✅ ").append(it).append("; ") },
+        onError = { report.append("❌ ").append(it).append("; ") },
+    )
+    println("Пачка (${buffer.okCount} ok, ${buffer.errorCount} ошибок): $report")
 }
 
 fun processResult(result: IResult) {
@@ -6,6 +6,7 @@ import ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.IResult;
 import ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.Ok;
 import ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.Error;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 
@@ -14,6 +15,11 @@ import static ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.Exhaust
 
 public class ExhaustiveWhen {
 
+    // Таблица обработчиков по классу варианта - строится один раз, полнота проверяется в build()
+    private static final SealedDispatcher<IResult, String> RENDER = SealedDispatcher.<IResult, String>builder(IResult.class)
+            .on(Ok.class, ok -> "✅ " + ok.getValue())
+            .on(Error.class, error -> "❌ " + error.getValue())
+            .build();
 
     public static void main(String[] args) {
         // ДЕМО 1: Работа с sealed interface и switch expressions
@@ -51,6 +57,12 @@ public class ExhaustiveWhen {
 
         // ДЕМО 3: Практический пример использования
         demonstrateResultHandling();
+
+        // Метрики обработчиков: то же самое видно в JMX (jconsole -> ru.vood.kotkin.rules)
+        System.out.print(HandlerMetrics.dumpAll());
+        if (HandlerMetrics.PERFORM_ACTION.registrationError() != null) {
+            System.out.println("Метрики не попали в JMX: " + HandlerMetrics.PERFORM_ACTION.registrationError());
+        }
     }
 
     // Практический пример обработки результатов
@@ -78,17 +90,39 @@ public class ExhaustiveWhen {
                 .toList();
 
         System.out.println("Обработанные результаты: " + processedResults);
+        System.out.println("Через SealedDispatcher: " + results.stream().map(RENDER::dispatch).toList());
+
+        // Тот же поток результатов пачками: Ok и Error разбираются независимо на виртуальных потоках
+        ResultDispatcher.Settings settings =
+                new ResultDispatcher.Settings(16, 2, Duration.ofMillis(10), ResultDispatcher.Backpressure.BLOCK);
+        ResultDispatcher dispatcher = ResultDispatcher.withDefaultHandlers(settings);
+        // close() в конце блока дожидается обработки всего принятого, статистика читается после него
+        try (dispatcher) {
+            dispatcher.submitAll(results);
+        }
+        System.out.println("Статистика диспетчера: " + dispatcher.stats());
     }
 
     public static void processResult(@NotNull IResult result) {
         // Switch expression с pattern matching
         String action = switch (result) {
             case Ok ok -> {
-                performAction(ok.getValue());
+                // Вызов считается всегда, задержка замеряется выборочно; finally учитывает и упавший обработчик
+                long start = HandlerMetrics.PERFORM_ACTION.start();
+                try {
+                    performAction(ok.getValue());
+                } finally {
+                    HandlerMetrics.PERFORM_ACTION.stop(start);
+                }
                 yield "Действие выполнено";
             }
             case Error error -> {
-                handleError(error.getValue());
+                long start = HandlerMetrics.HANDLE_ERROR.start();
+                try {
+                    handleError(error.getValue());
+                } finally {
+                    HandlerMetrics.HANDLE_ERROR.stop(start);
+                }
                 yield "Ошибка обработана";
             }
         };
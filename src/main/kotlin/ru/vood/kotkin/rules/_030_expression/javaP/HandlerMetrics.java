@@ -0,0 +1,210 @@
+package ru.vood.kotkin.rules._030_expression.javaP;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики обработчика результатов: сколько вызовов, с какой частотой и за сколько.
+ *
+ * - счетчик вызовов - LongAdder (потоки не спорят за одну ячейку)
+ * - гистограмма задержек - LatencyHistogram, p50/p90/p99 с точностью ~6%
+ * - частота - RollingRate, скользящее окно в секундах
+ *
+ * Замер вызова - start() / stop(start): счетчик увеличивается на каждом вызове, а задержка
+ * и частота замеряются у одного вызова из sampleEvery (по умолчанию 16, выбор случайный).
+ * Пара System.nanoTime() стоит десятки наносекунд и была бы главной ценой метрик, поэтому
+ * в среднем вызов платит инкремент LongAdder, ThreadLocalRandom и 1/16 замера -
+ * без блокировок и аллокаций, см. HandlerMetricsBenchmark. Поэтому метрики можно не выключать в проде.
+ * Гистограмма и частота строятся по выборке: перцентили от нее почти не зависят,
+ * а getSampledCount() показывает, сколько вызовов замерено.
+ *
+ * Метрики performAction и handleError из exhaustiveWhen.kt - PERFORM_ACTION и HANDLE_ERROR;
+ * они регистрируются в платформенном MBeanServer при первом обращении к классу,
+ * результат регистрации - isRegistered() / registrationError().
+ */
+public final class HandlerMetrics implements HandlerMetricsMXBean {
+
+    private static final int DEFAULT_WINDOW_SECONDS = 60;
+
+    public static final int DEFAULT_SAMPLE_EVERY = 16;
+
+    /**
+     * start() для вызова, задержка которого не замеряется
+     */
+    public static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    public static final HandlerMetrics PERFORM_ACTION = register(new HandlerMetrics("performAction"));
+    public static final HandlerMetrics HANDLE_ERROR = register(new HandlerMetrics("handleError"));
+
+    private final String handler;
+    private final LongAdder count = new LongAdder();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final RollingRate rate;
+    private final int sampleMask;
+    // Обычное поле: гонка лишь добавит пару замеров в начале
+    private boolean timedOnce;
+    private volatile boolean registered;
+    private volatile JMException registrationError;
+
+    public HandlerMetrics(@NotNull String handler) {
+        this(handler, DEFAULT_WINDOW_SECONDS);
+    }
+
+    public HandlerMetrics(@NotNull String handler, int windowSeconds) {
+        this(handler, windowSeconds, DEFAULT_SAMPLE_EVERY);
+    }
+
+    /**
+     * sampleEvery - степень двойки: 1 - замерять каждый вызов
+     */
+    public HandlerMetrics(@NotNull String handler, int windowSeconds, int sampleEvery) {
+        if (sampleEvery <= 0 || Integer.bitCount(sampleEvery) != 1) {
+            throw new IllegalArgumentException("sampleEvery должен быть степенью двойки: " + sampleEvery);
+        }
+        this.handler = Objects.requireNonNull(handler, "handler");
+        this.rate = new RollingRate(windowSeconds);
+        this.sampleMask = sampleEvery - 1;
+    }
+
+    /**
+     * Начало вызова: System.nanoTime() для замеряемого вызова, NOT_SAMPLED для остальных.
+     * Первый вызов замеряется всегда - иначе при нескольких вызовах сводка была бы пустой
+     */
+    public long start() {
+        return !timedOnce || (ThreadLocalRandom.current().nextInt() & sampleMask) == 0 ? System.nanoTime() : NOT_SAMPLED;
+    }
+
+    /**
+     * Конец вызова (в finally - чтобы учесть и упавший): счетчик - всегда,
+     * задержка и частота - если start() выбрал этот вызов для замера
+     */
+    public void stop(long start) {
+        count.increment();
+        if (start != NOT_SAMPLED) {
+            long end = System.nanoTime();
+            latencies.record(end - start);
+            rate.record(end, count);
+            timedOnce = true;
+        }
+    }
+
+    /**
+     * Один вызов с уже измеренным интервалом: startNanos и endNanos - значения System.nanoTime() до и после
+     */
+    public void record(long startNanos, long endNanos) {
+        count.increment();
+        latencies.record(endNanos - startNanos);
+        rate.record(endNanos, count);
+    }
+
+    /**
+     * Регистрация в платформенном MBeanServer. Ошибка JMX не бросается и не печатается -
+     * метрики собираются и без JMX, а ошибку можно получить через registrationError()
+     */
+    public static HandlerMetrics register(@NotNull HandlerMetrics metrics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("ru.vood.kotkin.rules:type=HandlerMetrics,name=" + metrics.handler);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(metrics, name);
+                metrics.registered = true;
+            }
+        } catch (JMException e) {
+            metrics.registrationError = e;
+        }
+        return metrics;
+    }
+
+    /**
+     * Зарегистрированы ли именно эти метрики; false и при ошибке, и если имя уже занято
+     */
+    public boolean isRegistered() {
+        return registered;
+    }
+
+    @Nullable
+    public JMException registrationError() {
+        return registrationError;
+    }
+
+    /**
+     * Текстовая сводка по обработчикам - для логов и консоли
+     */
+    public static String dumpAll() {
+        StringBuilder result = new StringBuilder();
+        for (HandlerMetrics metrics : List.of(PERFORM_ACTION, HANDLE_ERROR)) {
+            result.append(metrics.dump()).append('\n');
+        }
+        return result.toString();
+    }
+
+    @Override
+    public String getHandler() {
+        return handler;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getSampledCount() {
+        return latencies.count();
+    }
+
+    @Override
+    public double getRatePerSecond() {
+        return rate.perSecond(System.nanoTime(), count.sum());
+    }
+
+    @Override
+    public double getMeanNanos() {
+        return latencies.mean();
+    }
+
+    @Override
+    public long getP50Nanos() {
+        return latencies.percentile(0.5);
+    }
+
+    @Override
+    public long getP90Nanos() {
+        return latencies.percentile(0.9);
+    }
+
+    @Override
+    public long getP99Nanos() {
+        return latencies.percentile(0.99);
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return latencies.max();
+    }
+
+    @Override
+    public void reset() {
+        count.reset();
+        latencies.reset();
+        rate.reset();
+    }
+
+    @Override
+    public String dump() {
+        return String.format(Locale.ROOT,
+                "%s: count=%d sampled=%d rate=%.1f/s (окно %d с) mean=%.0fns p50=%dns p90=%dns p99=%dns max=%dns",
+                handler, getCount(), getSampledCount(), getRatePerSecond(), rate.windowSeconds(), getMeanNanos(),
+                getP50Nanos(), getP90Nanos(), getP99Nanos(), getMaxNanos());
+    }
+}
@@ -0,0 +1,33 @@
+package ru.vood.kotkin.rules._030_expression.javaP;
+
+/**
+ * Метрики одного обработчика в JMX (jconsole / VisualVM: ru.vood.kotkin.rules -> HandlerMetrics).
+ * Задержки - в наносекундах, верхние границы корзин гистограммы.
+ */
+public interface HandlerMetricsMXBean {
+
+    String getHandler();
+
+    long getCount();
+
+    /**
+     * Сколько вызовов попало в выборку замеров задержки
+     */
+    long getSampledCount();
+
+    double getRatePerSecond();
+
+    double getMeanNanos();
+
+    long getP50Nanos();
+
+    long getP90Nanos();
+
+    long getP99Nanos();
+
+    long getMaxNanos();
+
+    void reset();
+
+    String dump();
+}
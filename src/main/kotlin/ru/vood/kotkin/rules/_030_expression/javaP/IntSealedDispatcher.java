@@ -0,0 +1,81 @@
+package ru.vood.kotkin.rules._030_expression.javaP;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+/**
+ * SealedDispatcher для обработчиков, возвращающих int.
+ *
+ * SealedDispatcher<T, Integer> упаковывает каждый результат в Integer (кеш Integer
+ * покрывает только -128..127), а switch возвращает int как есть. Здесь обработчики -
+ * ToIntFunction, и dispatch возвращает int без упаковки. Поиск обработчика, сборка invoker
+ * и проверка полноты - те же, что у SealedDispatcher.
+ *
+ * static final IntSealedDispatcher<IResult> CODE = IntSealedDispatcher.builder(IResult.class)
+ *         .on(Ok.class, ok -> ok.getValue().length())
+ *         .on(Error.class, error -> -error.getValue().length())
+ *         .build();
+ */
+public record IntSealedDispatcher<T>(@NotNull MethodHandle invoker) {
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(int.class, Object.class);
+
+    private static final MethodHandle APPLY_AS_INT;
+
+    static {
+        try {
+            APPLY_AS_INT = MethodHandles.lookup().findVirtual(ToIntFunction.class, "applyAsInt", INVOKER_TYPE);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    public IntSealedDispatcher {
+        SealedDispatcher.checkType(invoker, INVOKER_TYPE);
+    }
+
+    public static <T> Builder<T> builder(@NotNull Class<T> root) {
+        return new Builder<>(Objects.requireNonNull(root, "root"));
+    }
+
+    /**
+     * Как и в SealedDispatcher.dispatch, обработчики встраиваются, только если диспетчер в static final поле
+     */
+    public int dispatch(@NotNull T value) {
+        try {
+            return (int) invoker.invokeExact((Object) value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static final class Builder<T> {
+
+        private final Class<T> root;
+        private final Map<Class<?>, ToIntFunction<Object>> handlers = new LinkedHashMap<>();
+
+        private Builder(Class<T> root) {
+            this.root = root;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <S extends T> Builder<T> on(@NotNull Class<S> type, @NotNull ToIntFunction<? super S> handler) {
+            SealedDispatcher.register(handlers, type, (ToIntFunction<Object>) handler);
+            return this;
+        }
+
+        public IntSealedDispatcher<T> build() {
+            SealedDispatcher.checkExhaustive(root, handlers.keySet());
+            return new IntSealedDispatcher<>(SealedDispatcher.invoker(handlers, APPLY_AS_INT));
+        }
+    }
+}
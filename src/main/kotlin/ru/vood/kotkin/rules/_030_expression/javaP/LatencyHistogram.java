@@ -0,0 +1,126 @@
+package ru.vood.kotkin.rules._030_expression.javaP;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Лог-линейная гистограмма задержек в наносекундах (как в HdrHistogram).
+ *
+ * Каждая степень двойки делится на SUB_BUCKETS равных корзин: значения до 32 нс
+ * хранятся точно, дальше погрешность не больше 1/16 (~6%) при любом порядке величины.
+ * Запись - вычисление номера корзины сдвигами и инкремент LongAdder этой корзины, без блокировок.
+ * Задержки обычно попадают в несколько соседних корзин, поэтому общий AtomicLongArray
+ * превращался бы в точку спора потоков (одна ячейка и одна кеш-линия на всех); LongAdder
+ * при конфликте CAS раскладывает инкременты по ячейкам своих потоков.
+ * Количество и среднее считаются по корзинам при чтении, а не отдельными счетчиками при записи.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // Значения больше 2^40 нс (~18 минут) попадают в последнюю корзину
+    private static final int MAX_EXPONENT = 40;
+    private static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+
+    static final int BUCKETS = bucketOf(MAX_VALUE) + 1;
+
+    // Пока потоки не спорят, LongAdder - одно поле base; ячейки создаются только при конфликтах
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts[bucket] = new LongAdder();
+        }
+    }
+
+    void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts[bucketOf(value)].increment();
+        // Без CAS, если значение не больше текущего максимума - обычный случай
+        max.accumulate(value);
+    }
+
+    /**
+     * Среднее по серединам корзин - с той же точностью ~6%
+     */
+    double mean() {
+        long count = 0;
+        double sum = 0.0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            long bucketCount = counts[bucket].sum();
+            if (bucketCount != 0) {
+                long lower = bucket == 0 ? 0 : upperBoundOf(bucket - 1) + 1;
+                sum += bucketCount * (lower + upperBoundOf(bucket)) / 2.0;
+                count += bucketCount;
+            }
+        }
+        return count == 0 ? 0.0 : sum / count;
+    }
+
+    long count() {
+        long count = 0;
+        for (LongAdder bucketCount : counts) {
+            count += bucketCount.sum();
+        }
+        return count;
+    }
+
+    long max() {
+        return max.get();
+    }
+
+    /**
+     * Верхняя граница корзины, в которую попадает квантиль q (0..1); 0 - если записей нет
+     */
+    long percentile(double q) {
+        if (q < 0.0 || q > 1.0) {
+            throw new IllegalArgumentException("Квантиль должен быть в диапазоне 0..1: " + q);
+        }
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            snapshot[bucket] = counts[bucket].sum();
+            count += snapshot[bucket];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < snapshot.length; bucket++) {
+            seen += snapshot[bucket];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(bucket), max());
+            }
+        }
+        return max();
+    }
+
+    void reset() {
+        for (LongAdder bucketCount : counts) {
+            bucketCount.reset();
+        }
+        max.reset();
+    }
+
+    // Первые SUB_BUCKETS корзин - значения 0..15 точно, далее по SUB_BUCKETS корзин на степень двойки
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BITS;
+        int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+}
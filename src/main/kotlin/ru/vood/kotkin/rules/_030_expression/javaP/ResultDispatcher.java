@@ -0,0 +1,310 @@
+package ru.vood.kotkin.rules._030_expression.javaP;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.Error;
+import ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.IResult;
+import ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.Ok;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.ExhaustiveWhenKt.handleError;
+import static ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.ExhaustiveWhenKt.performAction;
+
+/**
+ * Пакетная обработка потока IResult.
+ *
+ * processResult разбирает результаты по одному и синхронно: поток, который их получает,
+ * ждет каждого performAction / handleError. Диспетчер только раскладывает результаты
+ * switch-ем по двум ограниченным очередям (Ok и Error), а каждую очередь разбирает
+ * свой виртуальный поток пачками:
+ * - пачка уходит обработчику, когда набралось batchSize элементов
+ *   или прошло flushInterval с первого элемента пачки
+ * - при переполнении очереди действует Backpressure: ждать, отбросить или отказать
+ *
+ * Ошибки медленно обрабатываются? Это не задерживает Ok - очереди независимы.
+ *
+ * try (ResultDispatcher dispatcher = ResultDispatcher.withDefaultHandlers(ResultDispatcher.Settings.defaults())) {
+ *     dispatcher.submitAll(results);
+ * } // close() дожидается обработки всего принятого
+ */
+public final class ResultDispatcher implements AutoCloseable {
+
+    // Как часто пустая очередь проверяет closed: close() не ждет целый flushInterval
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * Что делать, если очередь заполнена
+     */
+    public enum Backpressure {
+        /**
+         * Отправитель ждет свободного места - ничего не теряется, источник замедляется
+         */
+        BLOCK,
+        /**
+         * Результат отбрасывается и учитывается в Stats.dropped
+         */
+        DROP,
+        /**
+         * submit бросает IllegalStateException
+         */
+        REJECT
+    }
+
+    public record Settings(int queueCapacity, int batchSize, @NotNull Duration flushInterval,
+                           @NotNull Backpressure backpressure) {
+
+        public Settings {
+            if (queueCapacity <= 0) {
+                throw new IllegalArgumentException("queueCapacity должен быть больше 0: " + queueCapacity);
+            }
+            if (batchSize <= 0 || batchSize > queueCapacity) {
+                throw new IllegalArgumentException("batchSize должен быть в диапазоне 1.." + queueCapacity + ": " + batchSize);
+            }
+            Objects.requireNonNull(flushInterval, "flushInterval");
+            Objects.requireNonNull(backpressure, "backpressure");
+            if (flushInterval.isNegative() || flushInterval.isZero()) {
+                throw new IllegalArgumentException("flushInterval должен быть положительным: " + flushInterval);
+            }
+        }
+
+        public static Settings defaults() {
+            return new Settings(8192, 256, Duration.ofMillis(50), Backpressure.BLOCK);
+        }
+    }
+
+    /**
+     * failedBatches / failedItems - пачки, на которых обработчик бросил исключение или Error;
+     * interrupted - отправки BLOCK, прерванные во время ожидания места в очереди
+     */
+    public record Stats(long okProcessed, long errorsProcessed, long okBatches, long errorBatches,
+                        long dropped, long interrupted, long failedBatches, long failedItems) {
+    }
+
+    private final Settings settings;
+    private final Lane<Ok> okLane;
+    private final Lane<Error> errorLane;
+    private volatile boolean closed;
+    // Отправки, которые прошли проверку closed и еще кладут результат в очередь (в том числе ждут в put)
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile Throwable lastFailure;
+
+    /**
+     * Обработчик получает список, который после возврата переиспользуется для следующей пачки -
+     * не сохраняйте ссылку на него
+     */
+    public ResultDispatcher(@NotNull Settings settings,
+                            @NotNull Consumer<? super List<Ok>> okHandler,
+                            @NotNull Consumer<? super List<Error>> errorHandler) {
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.okLane = new Lane<>("ok", Objects.requireNonNull(okHandler, "okHandler"));
+        this.errorLane = new Lane<>("error", Objects.requireNonNull(errorHandler, "errorHandler"));
+        okLane.start();
+        errorLane.start();
+    }
+
+    /**
+     * Диспетчер с обработчиками из exhaustiveWhen.kt: performAction для Ok, handleError для Error
+     */
+    public static ResultDispatcher withDefaultHandlers(@NotNull Settings settings) {
+        return new ResultDispatcher(settings,
+                batch -> batch.forEach(ok -> performAction(ok.getValue())),
+                batch -> batch.forEach(error -> handleError(error.getValue())));
+    }
+
+    /**
+     * Кладет результат в его очередь; false - результат отброшен (DROP) или поток прерван во время ожидания (BLOCK),
+     * оба случая учитываются в Stats. После close() бросает IllegalStateException
+     */
+    public boolean submit(@NotNull IResult result) {
+        // Сначала счетчик, потом проверка closed, а очередь завершается только при closed и inFlight == 0:
+        // либо отправка видит закрытие и ничего не кладет, либо очередь дожидается ее результата
+        inFlight.incrementAndGet();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Диспетчер закрыт");
+            }
+            return switch (result) {
+                case Ok ok -> okLane.offer(ok);
+                case Error error -> errorLane.offer(error);
+            };
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Количество принятых результатов
+     */
+    public long submitAll(@NotNull Stream<? extends IResult> results) {
+        return results.filter(this::submit).count();
+    }
+
+    public long submitAll(@NotNull Iterable<? extends IResult> results) {
+        long accepted = 0;
+        for (IResult result : results) {
+            if (submit(result)) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    public Stats stats() {
+        return new Stats(okLane.processed.sum(), errorLane.processed.sum(),
+                okLane.batches.sum(), errorLane.batches.sum(),
+                okLane.dropped.sum() + errorLane.dropped.sum(),
+                okLane.interrupted.sum() + errorLane.interrupted.sum(),
+                okLane.failedBatches.sum() + errorLane.failedBatches.sum(),
+                okLane.failedItems.sum() + errorLane.failedItems.sum());
+    }
+
+    /**
+     * Последняя ошибка обработчика (любой очереди) или null, если пачки не падали
+     */
+    @Nullable
+    public Throwable lastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Перестает принимать результаты и ждет, пока обе очереди будут разобраны.
+     * Отправки, начатые до закрытия, дорабатывают, и их результаты тоже обрабатываются;
+     * более поздние submit бросают IllegalStateException - принятое не теряется.
+     * Если ожидание прервано, close() возвращается сразу с восстановленным флагом прерывания,
+     * а очереди дорабатывают принятое в фоне.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            okLane.join();
+            errorLane.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Очередь одного типа результатов и виртуальный поток, который разбирает ее пачками
+     */
+    private final class Lane<T> {
+
+        private final String name;
+        private final Consumer<? super List<T>> handler;
+        private final BlockingQueue<T> queue = new ArrayBlockingQueue<>(settings.queueCapacity());
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder interrupted = new LongAdder();
+        private final LongAdder failedBatches = new LongAdder();
+        private final LongAdder failedItems = new LongAdder();
+        private Thread worker;
+
+        private Lane(String name, Consumer<? super List<T>> handler) {
+            this.name = name;
+            this.handler = handler;
+        }
+
+        private void start() {
+            worker = Thread.ofVirtual().name("result-dispatcher-" + name).start(this::drain);
+        }
+
+        private void join() throws InterruptedException {
+            worker.join();
+        }
+
+        private boolean offer(T item) {
+            return switch (settings.backpressure()) {
+                case BLOCK -> {
+                    try {
+                        queue.put(item);
+                        yield true;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        interrupted.increment();
+                        yield false;
+                    }
+                }
+                case DROP -> {
+                    boolean accepted = queue.offer(item);
+                    if (!accepted) {
+                        dropped.increment();
+                    }
+                    yield accepted;
+                }
+                case REJECT -> {
+                    if (!queue.offer(item)) {
+                        throw new IllegalStateException("Очередь " + name + " переполнена: " + settings.queueCapacity());
+                    }
+                    yield true;
+                }
+            };
+        }
+
+        private void drain() {
+            long flushNanos = settings.flushInterval().toNanos();
+            int batchSize = settings.batchSize();
+            List<T> batch = new ArrayList<>(batchSize);
+            try {
+                while (true) {
+                    T first = queue.poll(Math.min(flushNanos, IDLE_POLL_NANOS), TimeUnit.NANOSECONDS);
+                    if (first == null) {
+                        // Пустая очередь после закрытия и без незавершенных отправок - все принятое обработано.
+                        // Порядок проверок важен: closed, затем inFlight, затем очередь
+                        if (closed && inFlight.get() == 0 && queue.isEmpty()) {
+                            return;
+                        }
+                        continue;
+                    }
+                    batch.add(first);
+                    long deadline = System.nanoTime() + flushNanos;
+                    while (batch.size() < batchSize) {
+                        queue.drainTo(batch, batchSize - batch.size());
+                        long remaining = deadline - System.nanoTime();
+                        if (batch.size() == batchSize || remaining <= 0) {
+                            break;
+                        }
+                        T next = queue.poll(Math.min(remaining, IDLE_POLL_NANOS), TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            // После закрытия неполная пачка уходит сразу, не дожидаясь flushInterval
+                            if (closed) {
+                                break;
+                            }
+                            continue;
+                        }
+                        batch.add(next);
+                    }
+                    deliver(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Любая ошибка обработчика, включая Error (например, AssertionError), не останавливает очередь:
+        // пачка учитывается как неудачная, ошибка доступна через lastFailure()
+        private void deliver(List<T> batch) {
+            try {
+                handler.accept(batch);
+                processed.add(batch.size());
+                batches.increment();
+            } catch (Throwable e) {
+                failedBatches.increment();
+                failedItems.add(batch.size());
+                lastFailure = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ru.vood.kotkin.rules._030_expression.javaP;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Скользящее окно частоты событий: кольцо из секундных слотов.
+ *
+ * Слот хранит номер секунды и значение общего счетчика событий в ее начале.
+ * Первое событие новой секунды забирает слот через CAS и запоминает счетчик -
+ * отдельного потока-таймера нет, а остальные события секунды только читают номер слота.
+ * Частота = (счетчик сейчас - счетчик в начале окна) / прошедшее время.
+ * Значение приблизительное: снимок счетчика берется не строго на границе секунды.
+ */
+final class RollingRate {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final int slots;
+    private final AtomicLongArray seconds;
+    private final AtomicLongArray starts;
+
+    RollingRate(int windowSeconds) {
+        if (windowSeconds <= 0) {
+            throw new IllegalArgumentException("Окно должно быть больше 0 секунд: " + windowSeconds);
+        }
+        // Лишний слот - текущая, еще не закончившаяся секунда
+        this.slots = windowSeconds + 1;
+        this.seconds = new AtomicLongArray(slots);
+        this.starts = new AtomicLongArray(slots);
+        for (int slot = 0; slot < slots; slot++) {
+            seconds.set(slot, Long.MIN_VALUE);
+        }
+    }
+
+    int windowSeconds() {
+        return slots - 1;
+    }
+
+    /**
+     * events - общий счетчик событий; sum() вызывается только при смене секунды
+     */
+    void record(long nowNanos, LongAdder events) {
+        long second = Math.floorDiv(nowNanos, NANOS_PER_SECOND);
+        int slot = (int) Math.floorMod(second, (long) slots);
+        long stamp = seconds.get(slot);
+        if (stamp < second && seconds.compareAndSet(slot, stamp, second)) {
+            starts.set(slot, events.sum());
+        }
+    }
+
+    /**
+     * Средняя частота от начала самой старой секунды окна до текущего момента
+     */
+    double perSecond(long nowNanos, long events) {
+        long current = Math.floorDiv(nowNanos, NANOS_PER_SECOND);
+        int oldest = -1;
+        for (int slot = 0; slot < slots; slot++) {
+            long second = seconds.get(slot);
+            if (second >= current - windowSeconds() && (oldest < 0 || second < seconds.get(oldest))) {
+                oldest = slot;
+            }
+        }
+        if (oldest < 0) {
+            return 0.0;
+        }
+        double elapsedSeconds = (double) (nowNanos - seconds.get(oldest) * NANOS_PER_SECOND) / NANOS_PER_SECOND;
+        return elapsedSeconds <= 0.0 ? 0.0 : (events - starts.get(oldest)) / elapsedSeconds;
+    }
+
+    void reset() {
+        for (int slot = 0; slot < slots; slot++) {
+            seconds.set(slot, Long.MIN_VALUE);
+            starts.set(slot, 0);
+        }
+    }
+}
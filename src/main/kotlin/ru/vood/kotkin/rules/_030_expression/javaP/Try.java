@@ -1,5 +1,7 @@
 package ru.vood.kotkin.rules._030_expression.javaP;
 
+import ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_expression.SafeMath;
+
 public class Try {
     public static void main(String[] args) {
         System.out.println("=== ДЕМО TRY ВЫРАЖЕНИЙ В JAVA ===\n");
@@ -19,5 +21,19 @@ public class Try {
             // result1 = null;
         }
         System.out.println("Результат: " + result1);
+
+        // ----------------------------------------------------------------------
+        // 2. ОШИБКА КАК ЗНАЧЕНИЕ - БЕЗ TRY-CATCH И БЕЗ СТЕКА ИСКЛЮЧЕНИЯ
+        // ----------------------------------------------------------------------
+        System.out.println("\n2. ОШИБКА КАК ЗНАЧЕНИЕ (Attempt):");
+
+        // Неизменяемая переменная, ветки ошибки и успеха - обе выражения
+        final String result2 = SafeMath.divide(10, 0).fold(
+                value -> "Успешный результат: " + value,
+                error -> "Ошибка вычисления: " + error.getMessage());
+        System.out.println("Результат: " + result2);
+
+        int parsed = SafeMath.parseInt("abc").flatMap(value -> SafeMath.divide(100, value)).getOrElse(-1);
+        System.out.println("100 / parseInt(\"abc\"): " + parsed);
     }
 }
@@ -16,4 +16,20 @@ fun main() {
 //        null
     }
     println("Результат: $result1")
-}
\ No newline at end of file
+
+    // ----------------------------------------------------------------------
+    // 2. ОШИБКА КАК ЗНАЧЕНИЕ - БЕЗ TRY-CATCH И БЕЗ СТЕКА ИСКЛЮЧЕНИЯ
+    // ----------------------------------------------------------------------
+    println("\n2. ОШИБКА КАК ЗНАЧЕНИЕ (Attempt):")
+
+    val result2: String = SafeMath.divide(10, 0).fold(
+        { "Успешный результат: $it" },
+        { "Ошибка вычисления: ${it.message}" },
+    )
+    println("Результат: $result2")
+
+    val parsed = listOf("42", "abc", "-7", "99999999999").map { text ->
+        SafeMath.parseInt(text).flatMap { SafeMath.divide(100, it) }.getOrElse(-1)
+    }
+    println("100 / parseInt(...): $parsed")
+}
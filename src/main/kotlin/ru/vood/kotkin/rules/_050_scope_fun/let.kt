@@ -1,7 +1,9 @@
 package ru.vood.kotkin.rules.ru.vood.kotkin.rules._scope_fun
 
 import ru.vood.kotkin.rules._010_nulluble.Car
+import ru.vood.kotkin.rules._010_nulluble.ClientBatch
 import ru.vood.kotkin.rules._010_nulluble.ClientWithNullableField
+import ru.vood.kotkin.rules._010_nulluble.toClientBatch
 
 // мат часть https://www.youtube.com/watch?v=U1N60QTjAeo
 
@@ -14,6 +16,15 @@ fun `перекраска фаркопа`(client: ClientWithNullableField) {
         ?: println("НЕ Перекрасили фаркоп в красный")
 }
 
+/**
+ * То же для миллионов клиентов: вместо проверки на null у каждого объекта -
+ * подсчет по битовым картам заполненности, 64 клиента за одну операцию
+ */
+fun `перекраска фаркопа`(clients: ClientBatch) {
+    val repainted = clients.countWithTowBarMaker()
+    println("Перекрасили фаркоп в красный: $repainted, НЕ перекрасили: ${clients.size - repainted}")
+}
+
 fun comprehensiveLetDemo() {
     println("=== ДЕМОНСТРАЦИЯ LET ===")
 
@@ -48,6 +59,7 @@ fun main() {
 
     `перекраска фаркопа`(clientNullable)
     `перекраска фаркопа`(clientNotNull)
+    `перекраска фаркопа`(listOf(clientNullable, clientNotNull, ClientWithNullableField(null)).toClientBatch())
 
     comprehensiveLetDemo()
 }
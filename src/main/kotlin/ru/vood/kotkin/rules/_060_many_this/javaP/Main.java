@@ -2,7 +2,12 @@ package ru.vood.kotkin.rules._060_many_this.javaP;
 
 import ru.vood.kotkin.rules.ru.vood.kotkin.rules._005_class.Person;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 class Main {
 
@@ -38,7 +43,27 @@ class Main {
         });
     }
 
+    // Та же лямбда для миллиона людей: без последовательного ожидания каждого вызова
+    public void runBulk() {
+        SomeService service = new SomeService();
+        String[] cities = {"Москва", "Казань", "Самара", "Омск"};
+        Map<String, LongAdder> agesByCity = new ConcurrentHashMap<>();
+
+        Stream<Person> people = IntStream.range(0, 1_000_000)
+                .mapToObj(i -> new Person("Человек " + i, 18 + i % 60, cities[i % cities.length]));
+
+        // Люди одного города - строго по очереди, разные города - параллельно
+        SomeService.BatchStats stats = service.doSomethingAll(people,
+                        p -> agesByCity.computeIfAbsent(p.getCity(), city -> new LongAdder()).add(p.getAge()),
+                        SomeService.BulkOptions.orderedBy(Person::getCity, 256))
+                .join();
+
+        System.out.println("Пакетная обработка: " + stats);
+        System.out.println("Сумма возрастов по городам: " + agesByCity);
+    }
+
     public static void main(String[] args) {
         new Main().run();
+        new Main().runBulk();
     }
 }
@@ -1,14 +1,178 @@
 package ru.vood.kotkin.rules._060_many_this.javaP;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import ru.vood.kotkin.rules.ru.vood.kotkin.rules._005_class.Person;
 
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
 // Сервисный класс
 class SomeService {
 
+    /**
+     * Параметры пакетного запуска.
+     * maxConcurrency - сколько sideEffect выполняется одновременно;
+     * orderingKey - если задан, люди с одинаковым ключом (например, городом) обрабатываются
+     * строго по очереди в порядке поступления, разные ключи - параллельно
+     */
+    record BulkOptions(int maxConcurrency, @Nullable Function<? super Person, ?> orderingKey) {
+
+        BulkOptions {
+            if (maxConcurrency <= 0) {
+                throw new IllegalArgumentException("maxConcurrency должен быть больше 0: " + maxConcurrency);
+            }
+        }
+
+        static BulkOptions unordered(int maxConcurrency) {
+            return new BulkOptions(maxConcurrency, null);
+        }
+
+        static BulkOptions orderedBy(@NotNull Function<? super Person, ?> key, int maxConcurrency) {
+            return new BulkOptions(maxConcurrency, Objects.requireNonNull(key, "key"));
+        }
+    }
+
+    /**
+     * Итог пакетного запуска: failed - вызовы sideEffect, бросившие исключение
+     */
+    record BatchStats(long submitted, long succeeded, long failed, Duration elapsed) {
+    }
+
     // Функция, принимающая Person и Consumer (аналог sideEffect функции)
     public void doSomething(Person person, @NotNull java.util.function.Consumer<Person> sideEffect) {
         System.out.println("person: " + person);
         sideEffect.accept(person); // Вызов переданной функции
     }
-}
\ No newline at end of file
+
+    /**
+     * Пакетный вариант doSomething: sideEffect для каждого человека на виртуальных потоках.
+     *
+     * Метод сразу возвращает CompletableFuture, люди читаются из источника в отдельном
+     * виртуальном потоке. Semaphore ограничивает число одновременных вызовов: когда все
+     * разрешения заняты, чтение источника ждет, поэтому миллион людей не превращается
+     * в миллион ожидающих задач. Ошибка одного sideEffect (в том числе Error) не останавливает
+     * остальных - она учитывается в BatchStats.failed; ошибка самого источника завершает future с этой ошибкой.
+     * Печати на каждого человека, как в doSomething, здесь нет.
+     */
+    public CompletableFuture<BatchStats> doSomethingAll(@NotNull Iterable<? extends Person> people,
+                                                        @NotNull Consumer<? super Person> sideEffect,
+                                                        @NotNull BulkOptions options) {
+        Objects.requireNonNull(people, "people");
+        return new BulkRun(sideEffect, options).start(people.iterator(), () -> {
+        });
+    }
+
+    /**
+     * Stream закрывается, как только чтение из него закончено или прервано ошибкой
+     */
+    public CompletableFuture<BatchStats> doSomethingAll(@NotNull Stream<? extends Person> people,
+                                                        @NotNull Consumer<? super Person> sideEffect,
+                                                        @NotNull BulkOptions options) {
+        Objects.requireNonNull(people, "people");
+        return new BulkRun(sideEffect, options).start(people.iterator(), people::close);
+    }
+
+    /**
+     * Состояние одного пакетного запуска
+     */
+    private static final class BulkRun {
+
+        // ConcurrentHashMap не принимает null, а ключ упорядочивания может им быть
+        private static final Object NULL_KEY = new Object();
+
+        private final Consumer<? super Person> sideEffect;
+        private final BulkOptions options;
+        private final Semaphore permits;
+        private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        private final CompletableFuture<BatchStats> result = new CompletableFuture<>();
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        // Единица за сам процесс чтения источника: future завершается, когда счетчик дойдет до 0
+        private final AtomicLong pending = new AtomicLong(1);
+        // Последняя задача по каждому ключу; завершившаяся задача удаляет себя, если за ней
+        // никого не поставили, - карта не растет на каждый встреченный ключ
+        private final ConcurrentHashMap<Object, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+        private final long startNanos = System.nanoTime();
+        private long submitted;
+
+        private BulkRun(Consumer<? super Person> sideEffect, BulkOptions options) {
+            this.sideEffect = Objects.requireNonNull(sideEffect, "sideEffect");
+            this.options = Objects.requireNonNull(options, "options");
+            this.permits = new Semaphore(options.maxConcurrency());
+        }
+
+        private CompletableFuture<BatchStats> start(Iterator<? extends Person> people, Runnable closeSource) {
+            result.whenComplete((stats, error) -> executor.shutdown());
+            executor.execute(() -> feed(people, closeSource));
+            return result;
+        }
+
+        private void feed(Iterator<? extends Person> people, Runnable closeSource) {
+            try {
+                try {
+                    while (people.hasNext() && !result.isDone()) {
+                        Person person = people.next();
+                        permits.acquire();
+                        pending.incrementAndGet();
+                        submitted++;
+                        schedule(person);
+                    }
+                } finally {
+                    closeSource.run();
+                }
+                finishOne();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        private void schedule(Person person) {
+            Function<? super Person, ?> orderingKey = options.orderingKey();
+            if (orderingKey == null) {
+                executor.execute(() -> process(person));
+                return;
+            }
+            // Задача по ключу стартует после предыдущей с тем же ключом; process не бросает исключений
+            // (даже Error), поэтому цепочка не обрывается
+            Object key = Objects.requireNonNullElse(orderingKey.apply(person), NULL_KEY);
+            CompletableFuture<Void> next = tails.compute(key, (k, previous) -> previous == null
+                    ? CompletableFuture.runAsync(() -> process(person), executor)
+                    : previous.thenRunAsync(() -> process(person), executor));
+            next.whenComplete((ignored, error) -> tails.remove(key, next));
+        }
+
+        private void process(Person person) {
+            try {
+                sideEffect.accept(person);
+                succeeded.increment();
+            } catch (Throwable e) {
+                failed.increment();
+            } finally {
+                permits.release();
+                finishOne();
+            }
+        }
+
+        private void finishOne() {
+            if (pending.decrementAndGet() == 0) {
+                result.complete(new BatchStats(submitted, succeeded.sum(), failed.sum(),
+                        Duration.ofNanos(System.nanoTime() - startNanos)));
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ru.vood.kotkin.rules._010_nulluble
+
+import org.junit.jupiter.api.Test
+import kotlin.random.Random
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class ClientMapTest {
+
+    // Таблица ClientMap(8) - 16 слотов; ключи с заданным домашним слотом
+    private fun keysWithHome(home: Int, count: Int, tableSize: Int = 16): List<Int> =
+        generateSequence(0) { it + 1 }.filter { ClientIdRegistry.mix(it) and (tableSize - 1) == home }.take(count).toList()
+
+    private fun assertMatches(expected: Map<Int, String>, map: ClientMap<String>, keys: IntRange) {
+        assertEquals(expected.size, map.size)
+        for (key in keys) {
+            assertEquals(expected[key], map[key], "key $key")
+            assertEquals(expected.containsKey(key), map.containsKey(key))
+        }
+    }
+
+    @Test
+    fun `removing head of a cluster that wraps around keeps the rest reachable`() {
+        // Три ключа с домашним слотом 15 занимают слоты 15, 0, 1; ключ с домом 0 сдвигается в слот 2
+        val last = keysWithHome(15, 3)
+        val first = keysWithHome(0, 1)
+        val map = ClientMap<String>(8)
+        val expected = HashMap<Int, String>()
+        (last + first).forEach { map[it] = "v$it"; expected[it] = "v$it" }
+
+        assertEquals("v${last[0]}", map.remove(last[0]))
+        expected.remove(last[0])
+        assertMatches(expected, map, 0..(last + first).max())
+
+        // После сдвига повторная вставка не создает дубликат
+        map[first[0]] = "new"
+        expected[first[0]] = "new"
+        assertMatches(expected, map, 0..(last + first).max())
+    }
+
+    @Test
+    fun `entry already at home slot is not moved`() {
+        val cluster = keysWithHome(3, 2)
+        val own = keysWithHome(5, 1)
+        val map = ClientMap<String>(8)
+        (cluster + own).forEach { map[it] = "v$it" }
+
+        map.remove(cluster[0])
+        assertEquals("v${cluster[1]}", map[cluster[1]])
+        assertEquals("v${own[0]}", map[own[0]])
+        assertNull(map[cluster[0]])
+        assertNull(map.remove(cluster[0]))
+    }
+
+    @Test
+    fun `random operations match HashMap`() {
+        val random = Random(21)
+        val map = ClientMap<String>(4)
+        val expected = HashMap<Int, String>()
+        // Узкий диапазон ключей - длинные кластеры, рост таблицы и много удалений
+        repeat(50_000) { step ->
+            val key = random.nextInt(0, 200)
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key), "step $step")
+            } else {
+                assertEquals(expected.put(key, "v$step"), map.put(key, "v$step"), "step $step")
+            }
+        }
+        assertMatches(expected, map, 0 until 200)
+
+        val visited = HashMap<Int, String>()
+        map.forEach { value, key -> visited[key] = value }
+        assertEquals(expected, visited)
+    }
+
+    @Test
+    fun `registry handles are dense and stable`() {
+        val registry = ClientIdRegistry(2)
+        val ids = List(1000) { "client-$it" }
+        val handles = ids.map { registry.register(it) }
+
+        assertEquals((0 until 1000).toList(), handles)
+        assertEquals(handles, ids.map { registry.register(it) })
+        assertEquals(ids, handles.map { registry.idOf(it) })
+        assertEquals(ClientIdRegistry.NO_HANDLE, registry.handleOf("unknown"))
+        assertTrue(registry.handleOf(ClientId("client-7")) == 7)
+        assertFalse(ClientMap<String>().containsKey(0))
+    }
+}
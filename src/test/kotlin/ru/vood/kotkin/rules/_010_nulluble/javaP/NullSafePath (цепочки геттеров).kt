@@ -0,0 +1,66 @@
+package ru.vood.kotkin.rules._010_nulluble.javaP
+
+import org.junit.jupiter.api.Test
+import java.lang.invoke.MethodHandles
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertNull
+
+class NullSafePathTest {
+
+    private val clientId = NullSafePath.path(ClientNullable::getId, ClientIdNullable::getValue)
+
+    private val clients = listOf(
+        ClientNullable(ClientIdNullable("123")),
+        ClientNullable(ClientIdNullable(null)),
+        ClientNullable(null),
+    )
+
+    @Test
+    fun `stops on first null`() {
+        assertEquals(listOf("123", null, null), clientId.applyAll(clients))
+        assertNull(clientId.get(null))
+        assertEquals(1, clientId.countPresent(clients + listOf(null)))
+    }
+
+    @Test
+    fun `orElse replaces null result`() {
+        val withDefault = clientId.orElse("default")
+        assertEquals(listOf("123", "default", "default"), withDefault.applyAll(clients))
+        assertEquals("default", withDefault.get(null))
+        // countPresent считает только настоящие значения
+        assertEquals(1, withDefault.countPresent(clients))
+    }
+
+    @Test
+    fun `then after orElse continues from default`() {
+        // (client.id ?: fallbackId)?.value
+        val path = NullSafePath.path(ClientNullable::getId)
+            .orElse(ClientIdNullable("fallback"))
+            .then(ClientIdNullable::getValue)
+        assertEquals(listOf("123", null, "fallback"), path.applyAll(clients))
+        assertEquals("fallback", path.get(null))
+    }
+
+    @Test
+    fun `each getter is called once`() {
+        var calls = 0
+        val path = NullSafePath.path<ClientNullable, ClientIdNullable> { calls++; it.id }
+            .then { it.value }
+        assertEquals("123", path.get(clients[0]))
+        assertEquals(1, calls)
+    }
+
+    @Test
+    fun `getter exceptions pass through`() {
+        val path = NullSafePath.path<String, Int> { it.toInt() }
+        assertFailsWith<NumberFormatException> { path.get("x") }
+    }
+
+    @Test
+    fun `chain of wrong type is rejected`() {
+        assertFailsWith<IllegalArgumentException> {
+            NullSafePath<String, String>(MethodHandles.identity(String::class.java), null)
+        }
+    }
+}
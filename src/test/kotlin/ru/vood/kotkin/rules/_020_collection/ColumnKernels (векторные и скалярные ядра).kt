@@ -0,0 +1,115 @@
+package ru.vood.kotkin.rules._020_collection
+
+import org.junit.jupiter.api.Test
+import kotlin.random.Random
+import kotlin.test.assertContentEquals
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+/**
+ * ColumnKernels сравниваются со ScalarKernels. Без модуля обе стороны скалярные;
+ * с ./gradlew test -Pvector проверяется векторная реализация
+ */
+class ColumnKernelsTest {
+
+    private val scalar = ScalarKernels()
+
+    // Длины не кратные ширине вектора (хвосты), пустой вход и длины меньше размера массива
+    private val lengths = listOf(0, 1, 2, 3, 4, 5, 7, 8, 9, 15, 16, 17, 31, 32, 33, 63, 64, 65, 100, 1000, 1023)
+
+    private val random = Random(19)
+
+    @Test
+    fun `vector kernels are used when module is present`() {
+        val moduleLoaded = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent
+        val disabled = System.getProperty("ru.vood.kotkin.rules.vector") == "false"
+        assertEquals(moduleLoaded && !disabled, ColumnKernels.isVectorized())
+    }
+
+    @Test
+    fun `int kernels agree with scalar`() {
+        for (length in lengths) {
+            // Хвост массива после length заполнен мусором - его ядра трогать не должны
+            val values = IntArray(length + 5) { random.nextInt(-50, 100) }
+            values.fill(Int.MIN_VALUE, length, values.size)
+            for (threshold in listOf(Int.MIN_VALUE, -10, 0, 30, 99, Int.MAX_VALUE)) {
+                assertIntKernels(values, length, threshold)
+            }
+        }
+    }
+
+    @Test
+    fun `int sum does not overflow`() {
+        for (length in lengths) {
+            val big = IntArray(length) { if (it % 3 == 0) Int.MIN_VALUE else Int.MAX_VALUE - it }
+            assertEquals(big.sumOf { it.toLong() }, ColumnKernels.sum(big, length), "length $length")
+            assertIntKernels(big, length, 0)
+
+            val max = IntArray(length) { Int.MAX_VALUE }
+            assertEquals(length.toLong() * Int.MAX_VALUE, ColumnKernels.sum(max, length))
+        }
+    }
+
+    @Test
+    fun `double kernels agree with scalar`() {
+        for (length in lengths) {
+            // Целые значения складываются точно в любом порядке - сумму можно сравнивать без допуска
+            val salaries = DoubleArray(length + 5) { random.nextInt(-5, 200) * 1000.0 }
+            salaries.fill(Double.MAX_VALUE, length, salaries.size)
+            assertEquals(scalar.sum(salaries, length), ColumnKernels.sum(salaries, length), "length $length")
+            for (threshold in listOf(Double.NEGATIVE_INFINITY, -1.0, 0.0, 50_000.0, 199_000.0, Double.POSITIVE_INFINITY)) {
+                assertDoubleKernels(salaries, length, threshold)
+            }
+
+            // Дробные значения: векторная сумма может отличаться порядком сложения
+            val fractions = DoubleArray(length) { random.nextDouble(-1.0, 1.0) }
+            assertEquals(scalar.sum(fractions, length), ColumnKernels.sum(fractions, length), 1e-9, "length $length")
+            assertDoubleKernels(fractions, length, 0.25)
+        }
+    }
+
+    @Test
+    fun `empty input gives identities`() {
+        assertEquals(0.0, ColumnKernels.sum(DoubleArray(0), 0))
+        assertEquals(Double.POSITIVE_INFINITY, ColumnKernels.min(DoubleArray(4), 0))
+        assertEquals(Double.NEGATIVE_INFINITY, ColumnKernels.max(DoubleArray(4), 0))
+        assertEquals(0L, ColumnKernels.sum(IntArray(4) { 1 }, 0))
+        assertEquals(Int.MAX_VALUE, ColumnKernels.min(IntArray(0), 0))
+        assertEquals(Int.MIN_VALUE, ColumnKernels.max(IntArray(0), 0))
+        assertEquals(0, ColumnKernels.selectLessThan(IntArray(0), 0, 10, IntArray(0)))
+    }
+
+    private fun assertIntKernels(values: IntArray, length: Int, threshold: Int) {
+        val message = "length $length, threshold $threshold"
+        assertEquals(scalar.sum(values, length), ColumnKernels.sum(values, length), message)
+        assertEquals(scalar.min(values, length), ColumnKernels.min(values, length), message)
+        assertEquals(scalar.max(values, length), ColumnKernels.max(values, length), message)
+        assertEquals(scalar.countLessThan(values, length, threshold), ColumnKernels.countLessThan(values, length, threshold), message)
+
+        val expected = IntArray(length)
+        val expectedCount = scalar.selectLessThan(values, length, threshold, expected)
+        val actual = IntArray(length)
+        val actualCount = ColumnKernels.selectLessThan(values, length, threshold, actual)
+        assertEquals(expectedCount, actualCount, message)
+        assertContentEquals(expected.copyOf(expectedCount), actual.copyOf(actualCount), message)
+        assertTrue(actual.copyOf(actualCount).all { values[it] < threshold }, message)
+    }
+
+    private fun assertDoubleKernels(values: DoubleArray, length: Int, threshold: Double) {
+        val message = "length $length, threshold $threshold"
+        assertEquals(scalar.min(values, length), ColumnKernels.min(values, length), message)
+        assertEquals(scalar.max(values, length), ColumnKernels.max(values, length), message)
+        assertEquals(
+            scalar.countGreaterThan(values, length, threshold),
+            ColumnKernels.countGreaterThan(values, length, threshold),
+            message,
+        )
+
+        val expected = IntArray(length)
+        val expectedCount = scalar.selectGreaterThan(values, length, threshold, expected)
+        val actual = IntArray(length)
+        val actualCount = ColumnKernels.selectGreaterThan(values, length, threshold, actual)
+        assertEquals(expectedCount, actualCount, message)
+        assertContentEquals(expected.copyOf(expectedCount), actual.copyOf(actualCount), message)
+    }
+}
@@ -0,0 +1,110 @@
+package ru.vood.kotkin.rules._020_collection
+
+import org.junit.jupiter.api.Test
+import java.nio.ByteBuffer
+import kotlin.random.Random
+import kotlin.test.assertContentEquals
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class CompressedBitmapTest {
+
+    private fun bitmapOf(values: Collection<Int>) = CompressedBitmap().apply { values.forEach { add(it) } }
+
+    private fun assertSame(expected: Set<Int>, actual: CompressedBitmap) {
+        assertContentEquals(expected.sorted().toIntArray(), actual.toIntArray())
+        assertEquals(expected.size, actual.cardinality)
+        assertEquals(expected.isEmpty(), actual.isEmpty())
+    }
+
+    @Test
+    fun `array container turns into bitmap and back`() {
+        val bitmap = CompressedBitmap()
+        // 4096 значений - еще массив, 4097-е переводит блок в карту
+        for (value in 0 until 4097 * 2 step 2) bitmap.add(value)
+        val expected = (0 until 4097 * 2 step 2).toMutableSet()
+        assertSame(expected, bitmap)
+        assertEquals(Int.SIZE_BYTES + 7 + 8192, bitmap.serializedSize(), "блок должен стать картой")
+
+        for (value in 0 until 100 step 2) {
+            bitmap.remove(value)
+            expected.remove(value)
+        }
+        assertSame(expected, bitmap)
+        assertEquals(Int.SIZE_BYTES + 7 + expected.size * 2, bitmap.serializedSize(), "блок должен снова стать массивом")
+    }
+
+    @Test
+    fun `set operations match java sets across containers`() {
+        val random = Random(13)
+        // Разреженные и плотные блоки, в том числе блоки только с одной стороны
+        val left = (List(3000) { random.nextInt(0, 200_000) } + (65_536 until 75_000)).toSet()
+        val right = (List(3000) { random.nextInt(50_000, 300_000) } + (70_000 until 80_000 step 3)).toSet()
+        val a = bitmapOf(left)
+        val b = bitmapOf(right)
+
+        assertSame(left intersect right, a.and(b))
+        assertSame(left union right, a.or(b))
+        assertSame(left subtract right, a.andNot(b))
+        assertSame(right subtract left, b.andNot(a))
+        // Операции не меняют исходные множества
+        assertSame(left, a)
+        assertSame(right, b)
+    }
+
+    @Test
+    fun `contains, duplicates and bounds`() {
+        val bitmap = CompressedBitmap.of(0, 65_535, 65_536, Int.MAX_VALUE, 65_536)
+        assertEquals(4, bitmap.cardinality)
+        assertTrue(Int.MAX_VALUE in bitmap)
+        assertFalse(-1 in bitmap)
+        assertFalse(1 in bitmap)
+        assertFailsWith<IllegalArgumentException> { bitmap.add(-1) }
+        bitmap.remove(123) // отсутствующее значение - без ошибки
+        assertEquals(4, bitmap.cardinality)
+    }
+
+    @Test
+    fun `serialization round trip`() {
+        val values = ((0 until 5000) + (200_000 until 200_010) + (1 shl 30)).toSet()
+        val bitmap = bitmapOf(values)
+        val buffer = ByteBuffer.allocate(bitmap.serializedSize())
+        bitmap.writeTo(buffer)
+        assertEquals(buffer.capacity(), buffer.position())
+
+        val restored = CompressedBitmap.readFrom(buffer.flip())
+        assertEquals(bitmap, restored)
+        assertSame(values, restored)
+    }
+
+    @Test
+    fun `index bitmaps are read only`() {
+        val table = listOf(
+            User(1, "a", 25, "a@x", "IT", 1.0, true),
+            User(2, "b", 35, "b@x", "HR", 2.0, false),
+            User(3, "c", 25, "c@x", "IT", 3.0, true),
+        ).toUserTable()
+        val index = table.bitmapIndex()
+
+        for (shared in listOf(index.active, index.department("IT"), index.age(25), index.department("нет такого"), index.age(99))) {
+            assertTrue(shared.isReadOnly)
+            assertFailsWith<UnsupportedOperationException> { shared.add(100) }
+            assertFailsWith<UnsupportedOperationException> { shared.remove(0) }
+        }
+        // Пустой результат запроса не должен протекать в следующие запросы
+        assertTrue(index.department("нет такого").isEmpty())
+
+        val combined = index.department("IT").and(index.active)
+        assertFalse(combined.isReadOnly)
+        combined.add(1)
+        assertContentEquals(intArrayOf(0, 2), index.department("IT").toIntArray())
+        assertContentEquals(intArrayOf(0, 1, 2), combined.toIntArray())
+
+        val ages = index.ageIn(20..30)
+        assertFalse(ages.isReadOnly)
+        assertContentEquals(intArrayOf(0, 2), ages.toIntArray())
+        assertTrue(index.ageIn(40..30).isEmpty())
+    }
+}
@@ -0,0 +1,73 @@
+package ru.vood.kotkin.rules._020_collection
+
+import org.junit.jupiter.api.Test
+import java.util.LinkedList
+import java.util.concurrent.ForkJoinPool
+import kotlin.random.Random
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertTrue
+
+class DepartmentAggregatorTest {
+
+    private val departments = listOf("IT", "HR", "Sales", "Finance", "Legal")
+
+    // Зарплаты - целые тысячи: суммы точны в Double при любом порядке сложения,
+    // поэтому параллельный результат можно сравнивать с последовательным через equals
+    private fun users(count: Int, seed: Int = 5): List<User> {
+        val random = Random(seed)
+        return List(count) {
+            User(it, "user$it", 20 + random.nextInt(40), "user$it@mail.ru",
+                departments[random.nextInt(departments.size)], random.nextInt(10, 200) * 1000.0, random.nextBoolean())
+        }
+    }
+
+    private fun sequential(users: List<User>): Map<String, Double> =
+        users.groupBy { it.department }.mapValues { (_, group) -> group.map { it.salary }.average() }
+
+    private fun aggregator(leafSize: Int, pool: ForkJoinPool = ForkJoinPool.commonPool()) =
+        DepartmentAggregator<User, String>({ it.department }, { it.salary }, pool, leafSize)
+
+    @Test
+    fun `matches sequential groupBy below and above the split threshold`() {
+        for (size in listOf(0, 1, 10, 63, 64, 65, 10_000)) {
+            val users = users(size)
+            val expected = sequential(users)
+            // leafSize 64: малые входы целиком в одной задаче, 10 000 - дерево из сотен задач
+            assertEquals(expected, aggregator(64).averages(users), "size = $size")
+            assertEquals(expected, aggregator(1).averages(users), "size = $size, leafSize = 1")
+            assertEquals(expected, users.averageSalaryByDepartmentParallel(), "size = $size, по умолчанию")
+        }
+    }
+
+    @Test
+    fun `non random access collections and streams give the same result`() {
+        val users = users(5_000)
+        val expected = sequential(users)
+        val aggregator = aggregator(100)
+
+        assertEquals(expected, aggregator.averages(LinkedList(users)))
+        assertEquals(expected, aggregator.averages(users.toSet()))
+        assertEquals(expected, aggregator.averages(users.stream()))
+        assertEquals(expected, users.parallelStream().collect(aggregator.collector()))
+        assertEquals(expected, DepartmentAggregator.averaging(users, { it.department }, { it.salary }))
+    }
+
+    @Test
+    fun `own pool and value class keys`() {
+        val users = users(3_000)
+        val pool = ForkJoinPool(3)
+        try {
+            assertEquals(sequential(users), aggregator(50, pool).averages(users))
+        } finally {
+            pool.shutdown()
+        }
+        assertEquals(sequential(users).mapKeys { Department(it.key) }, users.averageSalaryByDepartmentKeyParallel())
+        assertTrue(aggregator(10).averages(emptyList()).isEmpty())
+    }
+
+    @Test
+    fun `leaf size must be positive`() {
+        assertFailsWith<IllegalArgumentException> { aggregator(0) }
+    }
+}
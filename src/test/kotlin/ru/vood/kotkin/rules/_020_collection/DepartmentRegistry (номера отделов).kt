@@ -0,0 +1,53 @@
+package ru.vood.kotkin.rules._020_collection
+
+import org.junit.jupiter.api.Test
+import kotlin.random.Random
+import kotlin.test.assertEquals
+
+class DepartmentRegistryTest {
+
+    private val departments = listOf("IT", "HR", "Sales", "Finance")
+
+    private fun users(count: Int): List<User> {
+        val random = Random(11)
+        return List(count) {
+            User(it, "user$it", 30, "user$it@mail.ru", departments[random.nextInt(departments.size)],
+                random.nextInt(1, 100) * 1000.0, true)
+        }
+    }
+
+    @Test
+    fun `ordinals are dense in order of first appearance`() {
+        val registry = DepartmentRegistry()
+        assertEquals(0, registry.ordinal(Department("HR")))
+        assertEquals(1, registry.ordinal(Department("IT")))
+        assertEquals(0, registry.ordinal(registry.intern("HR")))
+        assertEquals(2, registry.size)
+        assertEquals(Department("IT"), registry.department(1))
+    }
+
+    @Test
+    fun `groupBy and averageBy match the collection functions`() {
+        val users = users(2_000)
+        val registry = DepartmentRegistry()
+
+        val grouped = registry.groupBy(users) { Department(it.department) }
+        assertEquals(users.groupBy { Department(it.department) }, grouped)
+        // Порядок ключей - порядок первого появления, как у groupBy
+        assertEquals(users.map { it.department }.distinct(), grouped.keys.map { it.value })
+
+        val expected = users.groupBy { Department(it.department) }.mapValues { (_, group) -> group.map { it.salary }.average() }
+        assertEquals(expected, users.averageSalaryByDepartment(registry))
+    }
+
+    @Test
+    fun `averageBy grows past departments registered before the call`() {
+        val registry = DepartmentRegistry()
+        registry.intern("IT")
+        // Массивы сумм созданы под один отдел, остальные регистрируются по ходу
+        val users = users(500)
+        val expected = users.groupBy { it.department }.mapValues { (_, group) -> group.map { it.salary }.average() }
+        assertEquals(expected, users.averageSalaryByDepartment(registry).mapKeys { it.key.value })
+        assertEquals(departments.size, registry.size)
+    }
+}
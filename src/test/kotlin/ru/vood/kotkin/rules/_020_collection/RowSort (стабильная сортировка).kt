@@ -0,0 +1,64 @@
+package ru.vood.kotkin.rules._020_collection
+
+import org.junit.jupiter.api.Test
+import kotlin.random.Random
+import kotlin.test.assertContentEquals
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class RowSortTest {
+
+    private fun user(id: Int, age: Int, department: String = "IT", salary: Double = 1000.0) =
+        User(id, "user$id", age, "user$id@mail.ru", department, salary, id % 2 == 0)
+
+    @Test
+    fun `sorts like sortedBy on small and large arrays`() {
+        val random = Random(42)
+        // И ветка вставками (до 24 элементов), и слияния
+        for (size in listOf(0, 1, 2, 23, 24, 25, 100, 1000)) {
+            val keys = IntArray(size) { random.nextInt(10) }
+            val rows = IntArray(size) { it }
+            rows.sortRowsWith { left, right -> keys[left].compareTo(keys[right]) }
+
+            val expected = (0 until size).sortedBy { keys[it] }
+            assertContentEquals(expected.toIntArray(), rows, "size $size")
+        }
+    }
+
+    @Test
+    fun `equal keys keep original order`() {
+        // Много одинаковых ключей: стабильная сортировка не меняет порядок строк внутри группы
+        val keys = IntArray(500) { it % 3 }
+        val rows = IntArray(keys.size) { keys.size - 1 - it }
+        rows.sortRowsWith { left, right -> keys[left].compareTo(keys[right]) }
+
+        for (i in 1 until rows.size) {
+            val previous = rows[i - 1]
+            val current = rows[i]
+            if (keys[previous] == keys[current]) {
+                assertTrue(previous > current, "порядок внутри группы нарушен на позиции $i")
+            }
+        }
+    }
+
+    @Test
+    fun `already sorted halves are copied without merge`() {
+        val rows = IntArray(200) { it }
+        rows.sortRowsWith { left, right -> left.compareTo(right) }
+        assertContentEquals(IntArray(200) { it }, rows)
+    }
+
+    @Test
+    fun `table sort matches sortedWith for composite comparator`() {
+        val random = Random(7)
+        val users = (0 until 300).map {
+            user(it, 20 + random.nextInt(5), listOf("IT", "HR", "Sales")[random.nextInt(3)], random.nextInt(3) * 1000.0)
+        }
+        val table = users.toUserTable()
+
+        val rows = table.sortedRows(table.byDepartment().thenComparing(table.bySalaryDescending()))
+        val expected = users.sortedWith(compareBy<User> { it.department }.thenByDescending { it.salary })
+
+        assertEquals(expected, table.users(rows))
+    }
+}
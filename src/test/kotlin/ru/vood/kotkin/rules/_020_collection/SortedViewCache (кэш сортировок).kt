@@ -0,0 +1,105 @@
+package ru.vood.kotkin.rules._020_collection
+
+import org.junit.jupiter.api.Test
+import kotlin.random.Random
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+
+class SortedViewCacheTest {
+
+    private data class Item(val id: Int, val key: Int, val name: String)
+
+    // Узкий диапазон ключей - много равных, проверяется стабильность
+    private val byKey: Comparator<Item> = compareBy { it.key }
+    private val byKeyDesc: Comparator<Item> = compareByDescending { it.key }
+    private val byNameThenKey: Comparator<Item> = compareBy<Item> { it.name }.thenBy { it.key }
+    private val comparators = listOf(byKey, byKeyDesc, byNameThenKey)
+
+    private fun item(random: Random, id: Int) = Item(id, random.nextInt(10), "n" + random.nextInt(5))
+
+    // Одни и те же случайные add / set / removeAt над кэшем и обычным списком
+    private fun churn(cache: SortedViewCache<Item>, expected: MutableList<Item>, random: Random, steps: Int, check: () -> Unit) {
+        var nextId = expected.size
+        repeat(steps) {
+            when {
+                expected.isEmpty() || random.nextInt(3) == 0 -> item(random, nextId++).also {
+                    cache.add(it)
+                    expected.add(it)
+                }
+
+                random.nextBoolean() -> {
+                    val index = random.nextInt(expected.size)
+                    val replacement = item(random, nextId++)
+                    assertEquals(expected.set(index, replacement), cache.set(index, replacement))
+                }
+
+                else -> {
+                    val index = random.nextInt(expected.size)
+                    assertEquals(expected.removeAt(index), cache.removeAt(index))
+                }
+            }
+            check()
+        }
+    }
+
+    @Test
+    fun `views match fresh sortedWith after random changes`() {
+        for (seed in 1..20) {
+            val random = Random(seed)
+            val expected = MutableList(random.nextInt(0, 30)) { item(random, it) }
+            val cache = SortedViewCache(expected)
+            // Представления берутся до изменений и должны оставаться живыми
+            val views = comparators.associateWith { cache.sorted(it) }
+
+            churn(cache, expected, random, steps = 300) {
+                assertEquals(expected.size, cache.size)
+                for ((comparator, view) in views) {
+                    assertEquals(expected.sortedWith(comparator), view, "seed $seed")
+                }
+            }
+            for (comparator in comparators) {
+                assertEquals(expected.sortedWith(comparator), cache.sorted(comparator), "seed $seed")
+            }
+        }
+    }
+
+    @Test
+    fun `evicted orderings are rebuilt on access`() {
+        val random = Random(7)
+        val expected = MutableList(50) { item(random, it) }
+        // Места только на два порядка из трех - они вытесняют друг друга
+        val cache = SortedViewCache(expected, maxOrderings = 2)
+        val views = comparators.associateWith { cache.sorted(it) }
+
+        churn(cache, expected, random, steps = 200) {
+            val comparator = comparators[random.nextInt(comparators.size)]
+            assertEquals(expected.sortedWith(comparator), views.getValue(comparator))
+        }
+        for ((comparator, view) in views) {
+            assertEquals(expected.sortedWith(comparator), view)
+        }
+    }
+
+    @Test
+    fun `invalidate picks up changes made outside`() {
+        val names = mutableListOf("в", "а", "б")
+        val cache = SortedViewCache(names)
+        val view = cache.sorted(naturalOrder())
+        assertEquals(listOf("а", "б", "в"), view)
+
+        cache.add("г")
+        cache.invalidate()
+        cache.add("аа")
+        assertEquals(listOf("а", "аа", "б", "в", "г"), view)
+    }
+
+    @Test
+    fun `view rejects out of range index`() {
+        val cache = SortedViewCache(listOf(3, 1, 2))
+        val view = cache.sorted(naturalOrder())
+        cache.removeAt(0)
+        assertEquals(listOf(1, 2), view)
+        assertFailsWith<IndexOutOfBoundsException> { view[2] }
+        assertFailsWith<IndexOutOfBoundsException> { view[-1] }
+    }
+}
@@ -0,0 +1,66 @@
+package ru.vood.kotkin.rules._020_collection
+
+import org.junit.jupiter.api.Test
+import kotlin.random.Random
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertTrue
+
+class TopKTest {
+
+    // Пара "ключ - порядковый номер": по номеру видно, сохранился ли порядок равных
+    private data class Item(val key: Int, val order: Int)
+
+    private val byKey = compareBy<Item> { it.key }
+
+    @Test
+    fun `matches sortedWith take including ties`() {
+        val random = Random(1)
+        val items = List(1000) { Item(random.nextInt(20), it) }
+        for (k in listOf(0, 1, 5, 64, 999, 1000, 5000)) {
+            assertEquals(items.sortedWith(byKey).take(k), items.topK(k, byKey), "k = $k")
+        }
+    }
+
+    @Test
+    fun `sequence and descending variants`() {
+        val values = listOf(5, 1, 9, 3, 9, 7)
+        assertEquals(listOf(9, 9, 7), values.asSequence().topKByDescending(3) { it })
+        assertEquals(listOf(1, 3), values.topKBy(2) { it })
+    }
+
+    @Test
+    fun `huge k does not preallocate`() {
+        // Раньше куча сразу выделяла массив на k элементов - здесь был бы OutOfMemoryError
+        assertEquals(listOf(1, 2, 3), listOf(3, 1, 2).topK(Int.MAX_VALUE, naturalOrder()))
+        assertEquals(listOf(3, 2, 1), sequenceOf(1, 2, 3).topK(Int.MAX_VALUE, reverseOrder()))
+
+        val top = TopK<Int>(Int.MAX_VALUE, naturalOrder())
+        repeat(100) { top.offer(99 - it) }
+        assertEquals((0 until 100).toList(), top.toList())
+    }
+
+    @Test
+    fun `merge keeps order of equal elements across parts`() {
+        val items = List(300) { Item(it % 7, it) }
+        val left = TopK(10, byKey)
+        val right = TopK(10, byKey)
+        items.subList(0, 150).forEach { left.offer(it) }
+        items.subList(150, 300).forEach { right.offer(it) }
+
+        assertEquals(items.sortedWith(byKey).take(10), left.merge(right).toList())
+    }
+
+    @Test
+    fun `collector works with parallel stream`() {
+        val items = List(10_000) { Item(it % 100, it) }
+        val top = items.parallelStream().collect(TopK.collector(50, byKey))
+        assertEquals(items.sortedWith(byKey).take(50), top)
+    }
+
+    @Test
+    fun `negative k is rejected`() {
+        assertFailsWith<IllegalArgumentException> { TopK<Int>(-1, naturalOrder()) }
+        assertTrue(emptyList<Int>().topK(3, naturalOrder()).isEmpty())
+    }
+}
@@ -0,0 +1,138 @@
+package ru.vood.kotkin.rules._020_collection
+
+import org.junit.jupiter.api.Test
+import java.nio.file.Files
+import java.nio.file.Path
+import kotlin.random.Random
+import kotlin.streams.toList
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertTrue
+
+class UserFileReaderTest {
+
+    private val departments = listOf("IT", "HR", "Sales", "Отдел кадров")
+
+    private fun users(count: Int): List<User> {
+        val random = Random(11)
+        return List(count) {
+            User(
+                id = it - 5,
+                name = "Имя $it",
+                age = random.nextInt(18, 70),
+                email = "user$it@mail.ru",
+                department = departments[random.nextInt(departments.size)],
+                salary = random.nextInt(0, 10_000_000) / 100.0,
+                active = random.nextBoolean(),
+            )
+        }
+    }
+
+    private fun csv(users: List<User>): String = buildString {
+        append("id,name,age,email,department,salary,active\n")
+        users.forEach { append("${it.id},${it.name},${it.age},${it.email},${it.department},${it.salary},${it.active}\n") }
+    }
+
+    private fun ndjson(users: List<User>): String = buildString {
+        users.forEach {
+            append("""{"id":${it.id},"name":"${it.name}","age":${it.age},"email":"${it.email}",""")
+            append(""""department":"${it.department}","salary":${it.salary},"active":${it.active}}""").append('\n')
+        }
+    }
+
+    // Временный файл удаляется после проверки
+    private fun <R> withFile(content: String, block: (Path) -> R): R {
+        val file = Files.createTempFile("users", ".txt")
+        try {
+            Files.writeString(file, content)
+            return block(file)
+        } finally {
+            Files.deleteIfExists(file)
+        }
+    }
+
+    @Test
+    fun `csv and ndjson read back the same users`() {
+        val users = users(300)
+        withFile(csv(users)) { assertEquals(users, UserFileReader(it, UserFileFormat.CSV).asSequence().toList()) }
+        withFile(ndjson(users)) { assertEquals(users, UserFileReader(it, UserFileFormat.NDJSON).asSequence().toList()) }
+    }
+
+    @Test
+    fun `small splits start at line boundaries and lose no rows`() {
+        val users = users(500)
+        withFile(csv(users)) { file ->
+            val bytes = Files.readAllBytes(file)
+            // Кусок меньше строки: граница почти всегда попадает в середину строки
+            for (splitSize in listOf(1L, 7L, 64L, 1000L, bytes.size.toLong())) {
+                val reader = UserFileReader(file, UserFileFormat.CSV, splitSize = splitSize)
+                val splits = reader.splits()
+
+                assertEquals(0L, splits.first().start)
+                assertEquals(bytes.size.toLong(), splits.last().end)
+                splits.zipWithNext { left, right -> assertEquals(left.end, right.start) }
+                splits.drop(1).forEach { assertEquals('\n'.code.toByte(), bytes[(it.start - 1).toInt()], "split $it") }
+
+                assertEquals(users, reader.asSequence().toList(), "splitSize $splitSize")
+                assertEquals(users, reader.asStream(parallel = true).toList(), "parallel, splitSize $splitSize")
+            }
+        }
+    }
+
+    @Test
+    fun `splits can be parsed into separate sinks`() {
+        val users = users(200)
+        withFile(ndjson(users)) { file ->
+            val reader = UserFileReader(file, UserFileFormat.NDJSON, splitSize = 256)
+            val tables = reader.splits().parallelStream().map { split ->
+                UserTable().also { reader.readSplit(split, it.asRowSink()) }
+            }.toList()
+
+            assertTrue(tables.size > 1)
+            assertEquals(users, tables.flatMap { table -> table.users(table.allRows()) })
+        }
+    }
+
+    @Test
+    fun `doubles match String toDouble`() {
+        val random = Random(5)
+        val values = listOf(
+            "0", "-0.5", "1.1", "0.1", "0.3", "123456.789", "9007199254740991", "9007199254740993",
+            "0.0000000000000000000001", "123456789012345678901234567890", "1e3", "-2.5E-3", "1.7976931348623157E308",
+            "4.9E-324", "12345678901234567.89",
+        ) + List(2000) { "${random.nextLong(-1_000_000_000_000L, 1_000_000_000_000L)}.${random.nextInt(0, 1_000_000)}" }
+
+        val content = values.joinToString("\n", postfix = "\n") { "1,n,30,e,IT,$it,true" }
+        withFile(content) { file ->
+            val parsed = UserFileReader(file, UserFileFormat.CSV, hasHeader = false).asSequence().map { it.salary }.toList()
+            values.zip(parsed).forEach { (text, value) -> assertEquals(text.toDouble(), value, text) }
+        }
+    }
+
+    @Test
+    fun `ndjson escapes, spaces, unknown fields and crlf`() {
+        val content = "{ \"extra\": {\"nested\": [1, \"}\"]}, \"id\": 1, \"name\": \"Ann \\\"A\\\" \\u0416\", " +
+            "\"age\": 30, \"email\": \"a@b\", \"department\": \"IT\", \"salary\": 1.5e2, \"active\": false }\r\n\r\n"
+        withFile(content) { file ->
+            val user = UserFileReader(file, UserFileFormat.NDJSON).asSequence().single()
+            assertEquals(User(1, "Ann \"A\" Ж", 30, "a@b", "IT", 150.0, false), user)
+        }
+    }
+
+    @Test
+    fun `malformed rows fail with file position`() {
+        withFile("{\"id\":1,\"name\":\"x\"}\n") { file ->
+            assertFailsWith<IllegalArgumentException> { UserFileReader(file, UserFileFormat.NDJSON).asSequence().toList() }
+        }
+        withFile("h\n1,n,thirty,e,IT,1.0,true\n") { file ->
+            val error = assertFailsWith<IllegalArgumentException> { UserFileReader(file, UserFileFormat.CSV).asSequence().toList() }
+            assertTrue(error.message.orEmpty().contains("позиции 6"), error.message)
+        }
+        withFile("1,n,30,e,IT,1.0,yes\n") { file ->
+            assertFailsWith<IllegalArgumentException> { UserFileReader(file, UserFileFormat.CSV, hasHeader = false).asSequence().toList() }
+        }
+        withFile("3000000000,n,30,e,IT,1.0,true\n") { file ->
+            assertFailsWith<IllegalArgumentException> { UserFileReader(file, UserFileFormat.CSV, hasHeader = false).asSequence().toList() }
+        }
+    }
+}
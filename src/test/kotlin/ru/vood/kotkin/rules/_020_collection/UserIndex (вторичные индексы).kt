@@ -0,0 +1,152 @@
+package ru.vood.kotkin.rules._020_collection
+
+import org.junit.jupiter.api.Test
+import kotlin.random.Random
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertFalse
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class UserIndexTest {
+
+    private val departments = listOf("IT", "HR", "Sales")
+
+    private fun users(count: Int, seed: Int = 3): List<User> {
+        val random = Random(seed)
+        return List(count) {
+            User(
+                id = it * 7 - 100, // есть и отрицательные id
+                name = "user$it",
+                age = 20 + random.nextInt(30),
+                email = "user$it@mail.ru",
+                department = departments[random.nextInt(departments.size)],
+                salary = random.nextInt(-5, 100) * 1000.0,
+                active = random.nextBoolean(),
+            )
+        }
+    }
+
+    // Индекс должен отвечать так же, как прямой обход списка
+    private fun assertMatches(expected: List<User>, index: UserIndex) {
+        assertEquals(expected.size, index.size)
+        assertEquals(expected.count { it.active }, index.activeCount)
+        for (department in departments) {
+            assertEquals(expected.filter { it.department == department }, index.inDepartment(department))
+            assertEquals(expected.firstOrNull { it.department == department }, index.firstInDepartment(department))
+            assertEquals(expected.count { it.department == department }, index.countInDepartment(department))
+        }
+        for (range in listOf(25..35, 30..30, 40..20, 0..100)) {
+            assertEquals(expected.filter { it.age in range }, index.withAgeIn(range), "age in $range")
+            assertEquals(expected.count { it.age in range }, index.countWithAgeIn(range))
+            assertEquals(expected.count { it.age in range && it.active }, index.countActiveWithAgeIn(range))
+        }
+        for (threshold in listOf(-3000.0, 0.0, 50_000.0)) {
+            assertEquals(expected.filter { it.salary > threshold }, index.withSalaryAbove(threshold))
+            assertEquals(expected.count { it.salary > threshold }, index.countWithSalaryAbove(threshold))
+        }
+    }
+
+    @Test
+    fun `bulk build matches one by one adds`() {
+        val users = users(2000)
+        val bulk = users.toUserIndex()
+        val incremental = UserIndex().apply { users.forEach { add(it) } }
+
+        assertMatches(users, bulk)
+        assertMatches(users, incremental)
+    }
+
+    @Test
+    fun `remove drops user from every index`() {
+        val users = users(500)
+        val index = users.toUserIndex()
+        val removed = users.filterIndexed { position, _ -> position % 3 == 0 }
+
+        for (user in removed) assertTrue(index.remove(user.id))
+        assertFalse(index.remove(removed.first().id), "повторное удаление")
+        assertFalse(index.remove(Int.MAX_VALUE), "неизвестный id")
+
+        assertNull(index.byId(removed.first().id))
+        assertMatches(users - removed.toSet(), index)
+    }
+
+    @Test
+    fun `removing whole department forgets it`() {
+        val users = users(100)
+        val index = users.toUserIndex()
+        users.filter { it.department == "HR" }.forEach { index.remove(it.id) }
+
+        assertEquals(emptyList(), index.inDepartment("HR"))
+        assertNull(index.firstInDepartment("HR"))
+        assertMatches(users.filter { it.department != "HR" }, index)
+    }
+
+    @Test
+    fun `update changes user in place`() {
+        val users = users(50)
+        val index = users.toUserIndex()
+        val changed = users[10].copy(age = 99, department = "Finance", salary = 1e9, active = !users[10].active)
+        index.update(changed)
+
+        assertEquals(changed, index.byId(changed.id))
+        assertMatches(users.map { if (it.id == changed.id) changed else it }, index)
+        assertEquals(listOf(changed), index.inDepartment("Finance"))
+        assertEquals(50, index.storedRows)
+
+        // Неизвестный id - обычное добавление
+        val added = changed.copy(id = 10_000)
+        index.update(added)
+        assertEquals(added, index.byId(added.id))
+        assertEquals(51, index.size)
+    }
+
+    @Test
+    fun `ten thousand updates keep storage flat`() {
+        val random = Random(21)
+        val expected = users(300).toMutableList()
+        val index = expected.toUserIndex()
+
+        repeat(10_000) {
+            val position = random.nextInt(expected.size)
+            val changed = expected[position].copy(
+                age = 20 + random.nextInt(30),
+                department = departments[random.nextInt(departments.size)],
+                salary = random.nextInt(-5, 100) * 1000.0,
+                active = random.nextBoolean(),
+            )
+            index.update(changed)
+            expected[position] = changed
+        }
+
+        assertEquals(300, index.storedRows)
+        assertMatches(expected, index)
+    }
+
+    @Test
+    fun `remove and add churn compacts empty rows and keeps order`() {
+        val random = Random(22)
+        val expected = users(300).toMutableList()
+        val index = expected.toUserIndex()
+        var nextId = 1_000_000
+
+        repeat(10_000) {
+            val removed = expected.removeAt(random.nextInt(expected.size))
+            assertTrue(index.remove(removed.id))
+            val added = removed.copy(id = nextId++, age = 20 + random.nextInt(30))
+            index.add(added)
+            expected.add(added)
+            assertTrue(index.storedRows <= 2 * index.size + 64, "строк в хранилище: ${index.storedRows}")
+        }
+
+        assertMatches(expected, index)
+        for (user in expected.take(20)) assertEquals(user, index.byId(user.id))
+    }
+
+    @Test
+    fun `duplicate id is rejected`() {
+        val users = users(10)
+        assertFailsWith<IllegalArgumentException> { (users + users[3]).toUserIndex() }
+        assertFailsWith<IllegalArgumentException> { users.toUserIndex().add(users[3]) }
+    }
+}
@@ -0,0 +1,105 @@
+package ru.vood.kotkin.rules._020_collection
+
+import org.junit.jupiter.api.Test
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import kotlin.random.Random
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class UserSnapshotTest {
+
+    private fun users(count: Int): List<User> {
+        val random = Random(9)
+        val departments = listOf("IT", "HR", "Продажи")
+        return List(count) {
+            User(it * 3, "Пользователь $it", random.nextInt(18, 65), "u$it@mail.ru",
+                departments[random.nextInt(departments.size)], random.nextDouble(-1000.0, 1e6), random.nextBoolean())
+        }
+    }
+
+    // Временный файл снимка удаляется после проверки
+    private fun <R> withFile(block: (Path) -> R): R {
+        val file = Files.createTempFile("users", ".snapshot")
+        try {
+            return block(file)
+        } finally {
+            Files.deleteIfExists(file)
+        }
+    }
+
+    @Test
+    fun `round trip keeps every field`() = withFile { file ->
+        val users = users(1000)
+        UserSnapshot.write(file, users)
+        val snapshot = UserSnapshot.open(file)
+
+        assertEquals(users.size, snapshot.size)
+        assertEquals(users, snapshot.asSequence().toList())
+        val table = snapshot.toUserTable()
+        assertEquals(users, table.users(table.allRows()))
+        // Одинаковые отделы - один код в словаре
+        assertEquals(snapshot.departmentCode(users.indexOfFirst { it.department == "HR" }),
+            snapshot.departmentCode(users.indexOfLast { it.department == "HR" }))
+    }
+
+    @Test
+    fun `empty snapshot`() = withFile { file ->
+        UserSnapshot.write(file, emptyList<User>())
+        val snapshot = UserSnapshot.open(file)
+        assertEquals(0, snapshot.size)
+        assertFailsWith<IndexOutOfBoundsException> { snapshot.user(0) }
+    }
+
+    @Test
+    fun `bitmap section is optional`() {
+        val users = users(300)
+        withFile { file ->
+            UserSnapshot.write(file, users, withBitmaps = true)
+            val bitmaps = assertNotNull(UserSnapshot.open(file).bitmapIndex)
+            val expected = users.indices.filter { users[it].department == "Продажи" }
+            assertEquals(expected, bitmaps.department("Продажи").toIntArray().toList())
+            assertEquals(users.indices.filter { users[it].active }, bitmaps.active.toIntArray().toList())
+        }
+        withFile { file ->
+            UserSnapshot.write(file, users, withBitmaps = false)
+            val snapshot = UserSnapshot.open(file)
+            assertNull(snapshot.bitmapIndex)
+            assertEquals(users, snapshot.asSequence().toList())
+        }
+    }
+
+    @Test
+    fun `checksum detects a corrupted byte`() = withFile { file ->
+        UserSnapshot.write(file, users(100))
+        val bytes = Files.readAllBytes(file)
+        // Байт в середине строк - заголовок и футер остаются корректными
+        val position = bytes.size / 2
+        bytes[position] = (bytes[position].toInt() xor 0x40).toByte()
+        Files.write(file, bytes, StandardOpenOption.TRUNCATE_EXISTING)
+
+        assertFailsWith<IllegalStateException> { UserSnapshot.open(file) }
+        // Без проверки файл открывается - это осознанный выбор вызывающего
+        assertEquals(100, UserSnapshot.open(file, verifyChecksum = false).size)
+    }
+
+    @Test
+    fun `truncated or foreign files are rejected`() = withFile { file ->
+        UserSnapshot.write(file, users(10))
+        val bytes = Files.readAllBytes(file)
+
+        Files.write(file, bytes.copyOf(bytes.size - 4), StandardOpenOption.TRUNCATE_EXISTING)
+        assertFailsWith<IllegalArgumentException> { UserSnapshot.open(file) }
+
+        Files.write(file, ByteArray(4), StandardOpenOption.TRUNCATE_EXISTING)
+        assertFailsWith<IllegalArgumentException> { UserSnapshot.open(file) }
+
+        Files.write(file, ByteArray(bytes.size), StandardOpenOption.TRUNCATE_EXISTING)
+        val error = assertFailsWith<IllegalArgumentException> { UserSnapshot.open(file) }
+        assertTrue(error.message.orEmpty().contains("не является снимком"))
+    }
+}
@@ -0,0 +1,84 @@
+package ru.vood.kotkin.rules._020_collection.javaP
+
+import org.junit.jupiter.api.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.stream.Collectors
+import kotlin.random.Random
+import kotlin.test.assertEquals
+import kotlin.test.assertNotSame
+import kotlin.test.assertSame
+
+class JavaDepartmentRegistryTest {
+
+    private val departments = listOf("IT", "HR", "Sales", "Finance", "Legal")
+
+    private fun users(count: Int): List<User> {
+        val random = Random(17)
+        return List(count) {
+            User(it, "user$it", 30, "user$it@mail.ru", departments[random.nextInt(departments.size)],
+                random.nextInt(1, 100) * 1000.0, true)
+        }
+    }
+
+    @Test
+    fun `intern returns one canonical instance with a dense ordinal`() {
+        val registry = DepartmentRegistry()
+        val it = registry.intern("IT")
+        assertSame(it, registry.intern(String(charArrayOf('I', 'T'))))
+        assertEquals(0, it.ordinal)
+        assertEquals(1, registry.ordinal("HR"))
+        assertSame(it, registry.byOrdinal(0))
+        assertEquals(2, registry.size())
+
+        // Экземпляр вне реестра равен каноническому, но номера у него нет
+        val outside = Department("IT")
+        assertNotSame(it, outside)
+        assertEquals(it, outside)
+        assertEquals(it.hashCode(), outside.hashCode())
+        assertEquals(DepartmentRegistry.NO_ORDINAL, outside.ordinal)
+    }
+
+    @Test
+    fun `groupingBy and averaging match Collectors`() {
+        val users = users(3_000)
+        val registry = DepartmentRegistry()
+
+        val expectedGroups = users.stream().collect(Collectors.groupingBy { user: User -> Department(user.department) })
+        assertEquals(expectedGroups, registry.groupingBy(users) { it.department })
+
+        val expectedAverages = users.stream().collect(
+            Collectors.groupingBy({ user: User -> Department(user.department) }, Collectors.averagingDouble { it.salary }))
+        assertEquals(expectedAverages, registry.averaging(users, { it.department }, { it.salary }))
+    }
+
+    @Test
+    fun `concurrent registration gives each department one instance and ordinal`() {
+        val registry = DepartmentRegistry()
+        val names = List(200) { "dept-$it" }
+        val threads = 8
+        val start = CountDownLatch(1)
+        val pool = Executors.newFixedThreadPool(threads)
+        try {
+            val results = List(threads) { thread ->
+                pool.submit<List<Department>> {
+                    start.await()
+                    // Потоки регистрируют одни и те же отделы в разном порядке
+                    names.shuffled(Random(thread)).map { registry.intern(it) }.sortedBy { it.value }
+                }
+            }
+            start.countDown()
+            val first = results[0].get(10, TimeUnit.SECONDS)
+            for (result in results) {
+                val departments = result.get(10, TimeUnit.SECONDS)
+                for (index in departments.indices) assertSame(first[index], departments[index])
+            }
+        } finally {
+            pool.shutdown()
+        }
+        assertEquals(names.size, registry.size())
+        assertEquals((0 until names.size).toSet(), names.map { registry.intern(it).ordinal }.toSet())
+        for (ordinal in 0 until registry.size()) assertEquals(ordinal, registry.byOrdinal(ordinal).ordinal)
+    }
+}
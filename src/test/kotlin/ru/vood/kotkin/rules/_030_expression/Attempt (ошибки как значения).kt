@@ -0,0 +1,104 @@
+package ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_expression
+
+import org.junit.jupiter.api.Test
+import kotlin.random.Random
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertIs
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class AttemptTest {
+
+    @Test
+    fun `parseInt accepts int range bounds`() {
+        assertEquals(Attempt.Success(Int.MAX_VALUE), SafeMath.parseInt("2147483647"))
+        assertEquals(Attempt.Success(Int.MIN_VALUE), SafeMath.parseInt("-2147483648"))
+        assertEquals(Attempt.Success(Int.MAX_VALUE), SafeMath.parseInt("+2147483647"))
+        assertEquals(Attempt.Success(0), SafeMath.parseInt("-0"))
+        assertEquals(Attempt.Success(7), SafeMath.parseInt("007"))
+        assertEquals(Attempt.Success(-42), SafeMath.parseInt(StringBuilder("-42")))
+    }
+
+    @Test
+    fun `parseInt rejects values just outside int range`() {
+        assertSame(Failures.numberOutOfRange, SafeMath.parseInt("2147483648"))
+        assertSame(Failures.numberOutOfRange, SafeMath.parseInt("-2147483649"))
+        assertSame(Failures.numberOutOfRange, SafeMath.parseInt("99999999999"))
+        assertSame(Failures.numberOutOfRange, SafeMath.parseInt("-99999999999"))
+    }
+
+    @Test
+    fun `parseInt rejects empty, bare signs and non digits`() {
+        assertSame(Failures.emptyInput, SafeMath.parseInt(""))
+        // "٣" - арабская цифра 3: Integer.parseInt ее принимает, SafeMath - только ASCII-цифры
+        for (text in listOf("+", "-", "a12", "12a", "1 2", " 12", "12 ", "--1", "+-1", "1_000", "٣")) {
+            assertSame(Failures.notANumber, SafeMath.parseInt(text), "'$text'")
+        }
+    }
+
+    @Test
+    fun `parseInt agrees with Integer parseInt`() {
+        val random = Random(23)
+        val samples = List(2_000) { random.nextInt().toString() } +
+            List(200) { random.nextLong().toString() } +
+            listOf("0", "-1", "+1", "1", "10", "-10", "2147483646", "-2147483647")
+        for (text in samples) {
+            val expected = text.toIntOrNull()
+            val actual = SafeMath.parseInt(text)
+            if (expected != null) {
+                assertEquals(Attempt.Success(expected), actual, text)
+            } else {
+                assertFailsWith<NumberFormatException>(text) { Integer.parseInt(text) }
+                assertTrue(actual.isFailure, text)
+            }
+        }
+    }
+
+    @Test
+    fun `failure singletons are reused`() {
+        assertSame(SafeMath.divide(1, 0), SafeMath.divide(2, 0))
+        assertSame(Failures.DIVISION_BY_ZERO, (SafeMath.divide(1, 0) as Attempt.Failure).error)
+        assertSame(SafeMath.parseInt("x"), SafeMath.parseInt("y"))
+        assertSame(SafeMath.parseInt(""), SafeMath.parseInt(StringBuilder()))
+        assertSame(SafeMath.parseInt("3000000000"), SafeMath.parseInt("-3000000000"))
+        // Failure не пересоздается и при map / flatMap
+        val failure = SafeMath.divide(1, 0)
+        assertSame(failure, failure.map { it + 1 })
+        assertSame(failure, failure.flatMap { Attempt.success(it) })
+        // Без стека - fillInStackTrace не вызывается
+        assertEquals(0, Failures.NOT_A_NUMBER.stackTrace.size)
+    }
+
+    @Test
+    fun `map flatMap and recover turn exceptions into failure`() {
+        val mapped = Attempt.success("x").map { it.toInt() }
+        assertIs<NumberFormatException>((mapped as Attempt.Failure).error)
+
+        val boom = IllegalStateException("boom")
+        val flatMapped = Attempt.success(1).flatMap<Int> { throw boom }
+        assertSame(boom, (flatMapped as Attempt.Failure).error)
+
+        val recovered = SafeMath.divide(1, 0).recover { throw boom }
+        assertSame(boom, (recovered as Attempt.Failure).error)
+
+        assertEquals(Attempt.Success(-1), SafeMath.divide(1, 0).recover { -1 })
+        assertEquals(Attempt.Success(10), SafeMath.divide(10, 2).map { it * 2 })
+        assertEquals(Attempt.Success(5), SafeMath.parseInt("10").flatMap { SafeMath.divide(it, 2) })
+    }
+
+    @Test
+    fun `errors are not caught`() {
+        assertFailsWith<AssertionError> { Attempt.success(1).map { throw AssertionError("fatal") } }
+        assertFailsWith<AssertionError> { Attempt.of { throw AssertionError("fatal") } }
+    }
+
+    @Test
+    fun `fold and getters`() {
+        assertEquals("ok 5", SafeMath.divide(10, 2).fold({ "ok $it" }, { "error ${it.message}" }))
+        assertEquals("error Деление на ноль", SafeMath.divide(10, 0).fold({ "ok $it" }, { "error ${it.message}" }))
+        assertEquals(0, SafeMath.divide(1, 0).getOrElse(0))
+        assertEquals(null, SafeMath.parseInt("x").getOrNull())
+        assertSame(Failures.NOT_A_NUMBER, assertFailsWith<StacklessFailure> { SafeMath.parseInt("x").getOrThrow() })
+    }
+}
@@ -0,0 +1,42 @@
+package ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen
+
+import org.junit.jupiter.api.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertNotSame
+import kotlin.test.assertSame
+
+class MessageCacheTest {
+
+    @Test
+    fun `char sequence hit returns cached instance`() {
+        val cache = MessageCache()
+        val first = cache.canonical(StringBuilder("Сеть недоступна"))
+        assertSame(first, cache.canonical(StringBuilder("Сеть недоступна")))
+        assertSame(first, cache.canonical("Сеть недоступна"))
+        assertEquals("Сеть недоступна", first)
+    }
+
+    @Test
+    fun `collision evicts previous message`() {
+        // "Aa" и "BB" имеют одинаковый hashCode - один слот при любом размере кеша
+        assertEquals("Aa".hashCode(), "BB".hashCode())
+        val cache = MessageCache(capacity = 16)
+        val aa = cache.canonical(StringBuilder("Aa"))
+        val bb = cache.canonical(StringBuilder("BB"))
+        assertSame(bb, cache.canonical("BB"))
+
+        val aaAgain = cache.canonical(StringBuilder("Aa"))
+        assertEquals(aa, aaAgain)
+        assertNotSame(aa, aaAgain)
+    }
+
+    @Test
+    fun `capacity is validated`() {
+        assertFailsWith<IllegalArgumentException> { MessageCache(0) }
+        assertFailsWith<IllegalArgumentException> { MessageCache(MessageCache.MAX_CAPACITY + 1) }
+        assertFailsWith<IllegalArgumentException> { MessageCache(Int.MAX_VALUE) }
+        // Маленькие размеры округляются вверх и работают
+        assertEquals("a", MessageCache(1).canonical("a"))
+    }
+}
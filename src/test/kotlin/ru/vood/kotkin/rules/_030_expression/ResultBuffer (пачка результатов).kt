@@ -0,0 +1,74 @@
+package ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen
+
+import org.junit.jupiter.api.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertSame
+
+class ResultBufferTest {
+
+    private val results = listOf(Ok("a"), Error("x"), Ok("b"), Ok("c"), Error("y"))
+
+    @Test
+    fun `grows past initial capacity`() {
+        val buffer = ResultBuffer(initialCapacity = 2)
+        val many = List(100) { if (it % 3 == 0) Error("e$it") else Ok("ok$it") }
+        buffer.addAll(many)
+
+        assertEquals(100, buffer.size)
+        assertEquals(many.count { it is Ok }, buffer.okCount)
+        assertEquals(many.count { it is Error }, buffer.errorCount)
+        assertEquals(many, buffer.toResults())
+        assertEquals(128, buffer.capacity)
+    }
+
+    @Test
+    fun `clear keeps arrays`() {
+        val buffer = ResultBuffer(initialCapacity = 4)
+        buffer.addAll(List(10) { Ok("ok$it") })
+        val capacity = buffer.capacity
+
+        buffer.clear()
+        assertEquals(0, buffer.size)
+        assertEquals(0, buffer.okCount)
+        assertEquals(capacity, buffer.capacity)
+        assertFailsWith<IndexOutOfBoundsException> { buffer[0] }
+
+        buffer.addAll(results)
+        assertEquals(results, buffer.toResults())
+        assertEquals(capacity, buffer.capacity)
+    }
+
+    @Test
+    fun `fold and visit go in insertion order`() {
+        val buffer = ResultBuffer.of(results)
+        val expected = listOf("ok:a", "error:x", "ok:b", "ok:c", "error:y")
+
+        val folded = mutableListOf<String>()
+        buffer.forEach({ folded += "ok:$it" }, { folded += "error:$it" })
+        assertEquals(expected, folded)
+
+        val visited = mutableListOf<String>()
+        buffer.forEach(object : ResultBuffer.Visitor<Unit> {
+            override fun ok(index: Int, value: String) {
+                visited += "$index ok:$value"
+            }
+
+            override fun error(index: Int, value: String) {
+                visited += "$index error:$value"
+            }
+        })
+        assertEquals(expected.mapIndexed { index, text -> "$index $text" }, visited)
+
+        assertEquals("b", buffer.fold(2, { it }, { "-" }))
+        assertEquals(results[4], buffer[4])
+    }
+
+    @Test
+    fun `repeated messages share one string`() {
+        val buffer = ResultBuffer()
+        buffer.addError(StringBuilder("Сеть недоступна"))
+        buffer.addError(StringBuilder("Сеть недоступна"))
+        assertSame(buffer.payload(0), buffer.payload(1))
+    }
+}
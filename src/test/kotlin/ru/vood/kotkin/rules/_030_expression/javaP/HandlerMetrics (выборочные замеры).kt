@@ -0,0 +1,72 @@
+package ru.vood.kotkin.rules._030_expression.javaP
+
+import org.junit.jupiter.api.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertFalse
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class HandlerMetricsTest {
+
+    @Test
+    fun `every call is counted and a sample is timed`() {
+        val metrics = HandlerMetrics("sampled", 60, 16)
+        repeat(16_000) { metrics.stop(metrics.start()) }
+
+        assertEquals(16_000, metrics.count)
+        // В среднем 1000 замеров; границы с большим запасом
+        assertTrue(metrics.sampledCount in 700..1300, "замеров: ${metrics.sampledCount}")
+        assertTrue(metrics.ratePerSecond > 0.0)
+    }
+
+    @Test
+    fun `sample every call when asked`() {
+        val metrics = HandlerMetrics("every-call", 60, 1)
+        repeat(100) {
+            val start = metrics.start()
+            assertTrue(start != HandlerMetrics.NOT_SAMPLED)
+            metrics.stop(start)
+        }
+        assertEquals(100, metrics.count)
+        assertEquals(100, metrics.sampledCount)
+    }
+
+    @Test
+    fun `not sampled call only counts`() {
+        val metrics = HandlerMetrics("counter")
+        metrics.stop(HandlerMetrics.NOT_SAMPLED)
+        assertEquals(1, metrics.count)
+        assertEquals(0, metrics.sampledCount)
+        assertEquals(0, metrics.p99Nanos)
+
+        metrics.record(1_000, 1_500)
+        assertEquals(2, metrics.count)
+        assertEquals(1, metrics.sampledCount)
+        assertEquals(500, metrics.maxNanos)
+    }
+
+    @Test
+    fun `sample rate must be power of two`() {
+        for (sampleEvery in listOf(0, -16, 3, 24)) {
+            assertFailsWith<IllegalArgumentException> { HandlerMetrics("bad", 60, sampleEvery) }
+        }
+    }
+
+    @Test
+    fun `registration failure is kept instead of printed`() {
+        // Запятая и '=' в имени ломают ObjectName - MalformedObjectNameException
+        val broken = HandlerMetrics.register(HandlerMetrics("bad,name=x"))
+        assertFalse(broken.isRegistered)
+        assertNotNull(broken.registrationError())
+
+        val first = HandlerMetrics.register(HandlerMetrics("registration-test"))
+        assertTrue(first.isRegistered)
+        assertNull(first.registrationError())
+        // Имя уже занято первыми метриками - не ошибка, но и не регистрация
+        val second = HandlerMetrics.register(HandlerMetrics("registration-test"))
+        assertFalse(second.isRegistered)
+        assertNull(second.registrationError())
+    }
+}
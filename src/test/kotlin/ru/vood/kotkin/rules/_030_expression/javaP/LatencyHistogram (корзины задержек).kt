@@ -0,0 +1,72 @@
+package ru.vood.kotkin.rules._030_expression.javaP
+
+import org.junit.jupiter.api.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class LatencyHistogramTest {
+
+    private val maxValue = (1L shl 40) - 1
+
+    private fun lowerBoundOf(bucket: Int) = if (bucket == 0) 0 else LatencyHistogram.upperBoundOf(bucket - 1) + 1
+
+    @Test
+    fun `small values have their own buckets`() {
+        for (value in 0L until 16) {
+            assertEquals(value.toInt(), LatencyHistogram.bucketOf(value))
+            assertEquals(value, LatencyHistogram.upperBoundOf(value.toInt()))
+        }
+    }
+
+    @Test
+    fun `buckets are contiguous and bounds map back to their bucket`() {
+        for (bucket in 0 until LatencyHistogram.BUCKETS) {
+            val lower = lowerBoundOf(bucket)
+            val upper = LatencyHistogram.upperBoundOf(bucket)
+            assertTrue(lower <= upper, "корзина $bucket: $lower..$upper")
+            assertEquals(bucket, LatencyHistogram.bucketOf(lower), "нижняя граница корзины $bucket")
+            assertEquals(bucket, LatencyHistogram.bucketOf(upper), "верхняя граница корзины $bucket")
+        }
+        // Последняя корзина заканчивается ровно на 2^40 - 1
+        assertEquals(maxValue, LatencyHistogram.upperBoundOf(LatencyHistogram.BUCKETS - 1))
+    }
+
+    @Test
+    fun `bucket width stays within one sixteenth`() {
+        for (bucket in 16 until LatencyHistogram.BUCKETS) {
+            val lower = lowerBoundOf(bucket)
+            val width = LatencyHistogram.upperBoundOf(bucket) - lower + 1
+            assertTrue(width * 16 <= lower, "корзина $bucket шириной $width от $lower")
+        }
+    }
+
+    @Test
+    fun `out of range values are clamped`() {
+        val histogram = LatencyHistogram()
+        histogram.record(-5)
+        assertEquals(0, histogram.percentile(1.0))
+
+        histogram.record(Long.MAX_VALUE)
+        assertEquals(maxValue, histogram.max())
+        assertEquals(maxValue, histogram.percentile(1.0))
+        assertEquals(0, histogram.percentile(0.5))
+    }
+
+    @Test
+    fun `percentiles are upper bounds within the bucket error`() {
+        val histogram = LatencyHistogram()
+        for (value in 1L..1000) histogram.record(value)
+
+        for ((q, exact) in listOf(0.5 to 500L, 0.9 to 900L, 0.99 to 990L)) {
+            val reported = histogram.percentile(q)
+            assertTrue(reported >= exact && reported <= exact + exact / 16, "p$q = $reported, точно $exact")
+        }
+        assertEquals(1000, histogram.percentile(1.0), "верхняя граница не больше максимума")
+        assertTrue(Math.abs(histogram.mean() - 500.5) < 500.5 / 16)
+
+        histogram.reset()
+        assertEquals(0, histogram.percentile(0.99))
+        assertEquals(0, histogram.max())
+        assertEquals(0.0, histogram.mean())
+    }
+}
@@ -0,0 +1,217 @@
+package ru.vood.kotkin.rules._030_expression.javaP
+
+import org.junit.jupiter.api.Test
+import ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.Error
+import ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.IResult
+import ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.Ok
+import java.time.Duration
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.CyclicBarrier
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.concurrent.thread
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertFalse
+import kotlin.test.assertIs
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class ResultDispatcherTest {
+
+    private fun settings(
+        capacity: Int = 16,
+        batchSize: Int = 4,
+        flush: Duration = Duration.ofSeconds(30),
+        backpressure: ResultDispatcher.Backpressure = ResultDispatcher.Backpressure.BLOCK,
+    ) = ResultDispatcher.Settings(capacity, batchSize, flush, backpressure)
+
+    private fun oks(count: Int, from: Int = 0) = List(count) { Ok("ok${from + it}") }
+
+    // Ok-пачки попадают в очередь (копией - список обработчика переиспользуется), Error игнорируются
+    private fun recording(settings: ResultDispatcher.Settings, batches: LinkedBlockingQueue<List<Ok>>) =
+        ResultDispatcher(settings, { batches.add(it.toList()) }, {})
+
+    // Обработчик Ok ждет gate: первая пачка занимает очередь, следующие копятся в очереди
+    private fun gated(settings: ResultDispatcher.Settings, entered: CountDownLatch, gate: CountDownLatch) =
+        ResultDispatcher(settings, {
+            entered.countDown()
+            gate.await()
+        }, {})
+
+    @Test
+    fun `full batch is delivered without waiting for flush interval`() {
+        val batches = LinkedBlockingQueue<List<Ok>>()
+        recording(settings(batchSize = 4), batches).use { dispatcher ->
+            assertEquals(8, dispatcher.submitAll(oks(8)))
+            // flushInterval 30 секунд - пачки могут прийти только по batchSize
+            assertEquals(oks(4), batches.poll(5, TimeUnit.SECONDS))
+            assertEquals(oks(4, from = 4), batches.poll(5, TimeUnit.SECONDS))
+        }
+    }
+
+    @Test
+    fun `partial batch is delivered after flush interval`() {
+        val batches = LinkedBlockingQueue<List<Ok>>()
+        recording(settings(batchSize = 100, capacity = 100, flush = Duration.ofMillis(20)), batches).use { dispatcher ->
+            dispatcher.submitAll(oks(3))
+            assertEquals(oks(3), batches.poll(5, TimeUnit.SECONDS))
+            assertEquals(1, dispatcher.stats().okBatches)
+        }
+    }
+
+    @Test
+    fun `drop counts rejected items`() {
+        val entered = CountDownLatch(1)
+        val gate = CountDownLatch(1)
+        val dispatcher = gated(settings(capacity = 2, batchSize = 1, backpressure = ResultDispatcher.Backpressure.DROP), entered, gate)
+        assertTrue(dispatcher.submit(Ok("first")))
+        assertTrue(entered.await(5, TimeUnit.SECONDS))
+
+        // Обработчик занят первой пачкой: в очередь помещаются два, три отброшены
+        assertEquals(2, dispatcher.submitAll(oks(5)))
+        assertEquals(3, dispatcher.stats().dropped)
+
+        gate.countDown()
+        dispatcher.close()
+        assertEquals(3, dispatcher.stats().okProcessed)
+        assertEquals(3, dispatcher.stats().dropped)
+    }
+
+    @Test
+    fun `reject throws when queue is full`() {
+        val entered = CountDownLatch(1)
+        val gate = CountDownLatch(1)
+        val dispatcher = gated(settings(capacity = 2, batchSize = 1, backpressure = ResultDispatcher.Backpressure.REJECT), entered, gate)
+        dispatcher.submit(Ok("first"))
+        assertTrue(entered.await(5, TimeUnit.SECONDS))
+
+        assertEquals(2, dispatcher.submitAll(oks(2)))
+        assertFailsWith<IllegalStateException> { dispatcher.submit(Ok("extra")) }
+        // Очередь Error независима и свободна
+        assertTrue(dispatcher.submit(Error("error")))
+
+        gate.countDown()
+        dispatcher.close()
+        val stats = dispatcher.stats()
+        assertEquals(3, stats.okProcessed)
+        assertEquals(1, stats.errorsProcessed)
+        assertEquals(0, stats.dropped)
+    }
+
+    @Test
+    fun `block waits for space and counts interrupted senders`() {
+        val entered = CountDownLatch(1)
+        val gate = CountDownLatch(1)
+        val dispatcher = gated(settings(capacity = 1, batchSize = 1), entered, gate)
+        dispatcher.submit(Ok("first"))
+        assertTrue(entered.await(5, TimeUnit.SECONDS))
+        dispatcher.submit(Ok("queued"))
+
+        // Очередь полна: отправитель ждет, пока его не прервут
+        var accepted = true
+        var interruptedFlag = false
+        val sender = thread {
+            accepted = dispatcher.submit(Ok("waiting"))
+            interruptedFlag = Thread.currentThread().isInterrupted
+        }
+        while (sender.state != Thread.State.WAITING) Thread.onSpinWait()
+        sender.interrupt()
+        sender.join()
+        assertFalse(accepted)
+        assertTrue(interruptedFlag)
+        assertEquals(1, dispatcher.stats().interrupted)
+
+        // Второй отправитель дожидается места после освобождения обработчика
+        val blocked = thread { dispatcher.submit(Ok("late")) }
+        gate.countDown()
+        blocked.join()
+        dispatcher.close()
+        assertEquals(3, dispatcher.stats().okProcessed)
+    }
+
+    @Test
+    fun `handler failures keep the lane alive`() {
+        val handled = Collections.synchronizedList(mutableListOf<String>())
+        val errors = Collections.synchronizedList(mutableListOf<String>())
+        val dispatcher = ResultDispatcher(settings(batchSize = 1), { batch ->
+            val value = batch.single().value
+            when (value) {
+                "boom" -> throw IllegalArgumentException(value)
+                "assert" -> throw AssertionError(value)
+                else -> handled.add(value)
+            }
+        }, { batch -> errors.addAll(batch.map { it.value }) })
+        assertNull(dispatcher.lastFailure())
+
+        dispatcher.use {
+            it.submitAll(listOf<IResult>(Ok("a"), Ok("boom"), Ok("b"), Error("e"), Ok("assert"), Ok("c")))
+        }
+
+        assertEquals(listOf("a", "b", "c"), handled.toList())
+        assertEquals(listOf("e"), errors.toList())
+        val stats = dispatcher.stats()
+        assertEquals(3, stats.okProcessed)
+        assertEquals(1, stats.errorsProcessed)
+        assertEquals(2, stats.failedBatches)
+        assertEquals(2, stats.failedItems)
+        assertIs<AssertionError>(assertNotNull(dispatcher.lastFailure()))
+    }
+
+    @Test
+    fun `close drains everything accepted`() {
+        val processed = AtomicLong()
+        val dispatcher = ResultDispatcher(settings(capacity = 8, batchSize = 3), { batch ->
+            Thread.sleep(1)
+            processed.addAndGet(batch.size.toLong())
+        }, { batch -> processed.addAndGet(batch.size.toLong()) })
+
+        val results = List(500) { if (it % 5 == 0) Error("e$it") else Ok("ok$it") }
+        assertEquals(500, dispatcher.submitAll(results.stream()))
+        dispatcher.close()
+
+        assertEquals(500, processed.get())
+        val stats = dispatcher.stats()
+        assertEquals(400, stats.okProcessed)
+        assertEquals(100, stats.errorsProcessed)
+        assertFailsWith<IllegalStateException> { dispatcher.submit(Ok("after close")) }
+    }
+
+    @Test
+    fun `submits racing with close are either processed or rejected`() {
+        repeat(20) {
+            val processed = AtomicLong()
+            val dispatcher = ResultDispatcher(
+                settings(capacity = 4, batchSize = 2, flush = Duration.ofMillis(1)),
+                { batch -> processed.addAndGet(batch.size.toLong()) },
+                { batch -> processed.addAndGet(batch.size.toLong()) },
+            )
+            val accepted = AtomicLong()
+            val start = CyclicBarrier(5)
+            val senders = List(4) { sender ->
+                thread {
+                    start.await()
+                    try {
+                        var index = 0
+                        while (true) {
+                            if (dispatcher.submit(Ok("s$sender-${index++}"))) accepted.incrementAndGet()
+                        }
+                    } catch (e: IllegalStateException) {
+                        // Диспетчер закрыт - отправитель завершается
+                    }
+                }
+            }
+            start.await()
+            Thread.sleep(2)
+            dispatcher.close()
+            senders.forEach { it.join() }
+
+            // Все, что submit принял, обработано к моменту возврата close()
+            assertEquals(accepted.get(), processed.get())
+            assertEquals(accepted.get(), dispatcher.stats().okProcessed)
+        }
+    }
+}
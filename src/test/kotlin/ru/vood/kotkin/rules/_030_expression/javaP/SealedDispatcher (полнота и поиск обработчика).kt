@@ -0,0 +1,140 @@
+package ru.vood.kotkin.rules._030_expression.javaP
+
+import org.junit.jupiter.api.Test
+import ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.Error
+import ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.IResult
+import ru.vood.kotkin.rules.ru.vood.kotkin.rules._03_exausiveWhen.Ok
+import java.lang.invoke.MethodHandles
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertTrue
+
+class SealedDispatcherTest {
+
+    sealed interface Shape
+
+    data class Circle(val radius: Int) : Shape
+
+    // Вложенный sealed-подынтерфейс: его варианты - тоже листья Shape
+    sealed interface Polygon : Shape
+
+    data class Square(val side: Int) : Polygon
+
+    data class Triangle(val base: Int) : Polygon
+
+    interface Open
+
+    class OpenImpl : Open
+
+    @Test
+    fun `dispatches every variant to its handler`() {
+        val render = SealedDispatcher.builder<IResult, String>(IResult::class.java)
+            .on(Ok::class.java) { "ok ${it.value}" }
+            .on(Error::class.java) { "error ${it.value}" }
+            .build()
+        assertEquals("ok a", render.dispatch(Ok("a")))
+        assertEquals("error b", render.dispatch(Error("b")))
+
+        val code = IntSealedDispatcher.builder(IResult::class.java)
+            .on(Ok::class.java) { it.value.length }
+            .on(Error::class.java) { -it.value.length }
+            .build()
+        assertEquals(3, code.dispatch(Ok("abc")))
+        assertEquals(-2, code.dispatch(Error("ab")))
+    }
+
+    @Test
+    fun `missing leaf fails build`() {
+        val failure = assertFailsWith<IllegalStateException> {
+            SealedDispatcher.builder<Shape, String>(Shape::class.java)
+                .on(Circle::class.java) { "circle" }
+                .on(Square::class.java) { "square" }
+                .build()
+        }
+        assertTrue(Triangle::class.java.name in failure.message.orEmpty(), failure.message)
+        assertFailsWith<IllegalStateException> {
+            IntSealedDispatcher.builder(Shape::class.java).on(Circle::class.java) { 1 }.build()
+        }
+    }
+
+    @Test
+    fun `nested sealed interface covers its leaves`() {
+        val name = SealedDispatcher.builder<Shape, String>(Shape::class.java)
+            .on(Circle::class.java) { "circle" }
+            .on(Polygon::class.java) { "polygon" }
+            .build()
+        assertEquals("polygon", name.dispatch(Square(1)))
+        assertEquals("polygon", name.dispatch(Triangle(1)))
+        assertEquals("circle", name.dispatch(Circle(1)))
+    }
+
+    @Test
+    fun `exact handler wins over ancestor`() {
+        val area = IntSealedDispatcher.builder(Shape::class.java)
+            .on(Polygon::class.java) { -1 }
+            .on(Square::class.java) { it.side * it.side }
+            .on(Circle::class.java) { 3 * it.radius * it.radius }
+            .build()
+        assertEquals(9, area.dispatch(Square(3)))
+        assertEquals(-1, area.dispatch(Triangle(3)))
+        assertEquals(12, area.dispatch(Circle(2)))
+    }
+
+    @Test
+    fun `resolve falls back to nearest registered ancestor`() {
+        val handlers = mapOf<Class<*>, String>(Polygon::class.java to "polygon", Shape::class.java to "shape")
+        assertEquals("polygon", SealedDispatcher.resolve(handlers, Square::class.java))
+        assertEquals("polygon", SealedDispatcher.resolve(handlers, Polygon::class.java))
+        assertEquals("shape", SealedDispatcher.resolve(handlers, Circle::class.java))
+        assertFailsWith<IllegalArgumentException> { SealedDispatcher.resolve(handlers, String::class.java) }
+    }
+
+    @Test
+    fun `checkExhaustive lists missing leaves`() {
+        SealedDispatcher.checkExhaustive(Shape::class.java, setOf(Circle::class.java, Polygon::class.java))
+        SealedDispatcher.checkExhaustive(Shape::class.java, setOf(Shape::class.java))
+        val failure = assertFailsWith<IllegalStateException> {
+            SealedDispatcher.checkExhaustive(Shape::class.java, setOf(Square::class.java))
+        }
+        val message = failure.message.orEmpty()
+        assertTrue(Circle::class.java.name in message && Triangle::class.java.name in message, message)
+        // У не-sealed корня полноту проверить нельзя - build проходит, ошибка будет при dispatch
+        SealedDispatcher.checkExhaustive(Open::class.java, emptySet())
+    }
+
+    @Test
+    fun `unknown class of open root fails on dispatch`() {
+        val empty = SealedDispatcher.builder<Open, String>(Open::class.java).build()
+        assertFailsWith<IllegalArgumentException> { empty.dispatch(OpenImpl()) }
+    }
+
+    @Test
+    fun `duplicate handler is rejected`() {
+        assertFailsWith<IllegalArgumentException> {
+            SealedDispatcher.builder<IResult, String>(IResult::class.java)
+                .on(Ok::class.java) { "a" }
+                .on(Ok::class.java) { "b" }
+        }
+    }
+
+    @Test
+    fun `handler exceptions pass through`() {
+        val failing = IntSealedDispatcher.builder(IResult::class.java)
+            .on(Ok::class.java) { it.value.toInt() }
+            .on(Error::class.java) { throw IllegalStateException(it.value) }
+            .build()
+        assertEquals(42, failing.dispatch(Ok("42")))
+        assertFailsWith<NumberFormatException> { failing.dispatch(Ok("x")) }
+        assertFailsWith<IllegalStateException> { failing.dispatch(Error("boom")) }
+    }
+
+    @Test
+    fun `invoker of wrong type is rejected`() {
+        assertFailsWith<IllegalArgumentException> {
+            SealedDispatcher<IResult, String>(MethodHandles.identity(String::class.java))
+        }
+        assertFailsWith<IllegalArgumentException> {
+            IntSealedDispatcher<IResult>(MethodHandles.identity(Any::class.java))
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package ru.vood.kotkin.rules._060_many_this.javaP
+
+import org.junit.jupiter.api.Test
+import ru.vood.kotkin.rules.ru.vood.kotkin.rules._005_class.Person
+import java.util.Collections
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Function
+import kotlin.random.Random
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class SomeServiceTest {
+
+    private val service = SomeService()
+
+    private val cities = listOf("Москва", "Казань", "Пермь", "Тверь")
+
+    // Возраст - порядковый номер, чтобы проверять порядок обработки
+    private val people = List(400) { Person("person-$it", it, cities[it % cities.size]) }
+
+    private val byCity = SomeService.BulkOptions.orderedBy(Function { person: Person -> person.city }, 8)
+
+    @Test
+    fun `same key is processed in submission order`() {
+        val seen: MutableMap<String, MutableList<Int>> = Collections.synchronizedMap(HashMap())
+        val random = Random(7)
+        val delays = List(people.size) { random.nextLong(0, 300_000) }
+
+        val stats = service.doSomethingAll(people, { person ->
+            // Разное время обработки, чтобы задачи разных ключей обгоняли друг друга
+            TimeUnit.NANOSECONDS.sleep(delays[person.age])
+            seen.computeIfAbsent(person.city) { Collections.synchronizedList(ArrayList()) }.add(person.age)
+        }, byCity).get(30, TimeUnit.SECONDS)
+
+        assertEquals(400, stats.submitted())
+        assertEquals(400, stats.succeeded())
+        assertEquals(0, stats.failed())
+        for (city in cities) {
+            assertEquals(people.filter { it.city == city }.map { it.age }, seen[city]?.toList(), "порядок для $city")
+        }
+    }
+
+    @Test
+    fun `failures including errors do not break the chain of a key`() {
+        val processed = AtomicInteger()
+
+        val stats = service.doSomethingAll(people, { person ->
+            when (person.age % 10) {
+                3 -> throw IllegalStateException("сбой ${person.name}")
+                7 -> throw AssertionError("ошибка ${person.name}")
+                else -> processed.incrementAndGet()
+            }
+        }, byCity).get(30, TimeUnit.SECONDS)
+
+        assertEquals(400, stats.submitted())
+        assertEquals(320, stats.succeeded())
+        assertEquals(80, stats.failed())
+        assertEquals(320, processed.get())
+    }
+
+    @Test
+    fun `concurrency never exceeds the limit`() {
+        val running = AtomicInteger()
+        val peak = AtomicInteger()
+
+        val stats = service.doSomethingAll(people, {
+            peak.accumulateAndGet(running.incrementAndGet(), ::maxOf)
+            Thread.sleep(1)
+            running.decrementAndGet()
+        }, SomeService.BulkOptions.unordered(3)).get(30, TimeUnit.SECONDS)
+
+        assertEquals(400, stats.succeeded())
+        assertTrue(peak.get() in 1..3, "одновременно выполнялось ${peak.get()}")
+    }
+
+    @Test
+    fun `stream is closed after it has been read`() {
+        val closed = AtomicBoolean()
+
+        val stats = service.doSomethingAll(people.stream().onClose { closed.set(true) }, {}, byCity)
+            .get(30, TimeUnit.SECONDS)
+
+        assertEquals(400, stats.succeeded())
+        assertTrue(closed.get())
+    }
+
+    @Test
+    fun `source failure completes the future exceptionally and still closes the stream`() {
+        val closed = AtomicBoolean()
+        val source = people.stream().map { if (it.age == 50) error("источник сломался") else it }.onClose { closed.set(true) }
+
+        val error = runCatching { service.doSomethingAll(source, {}, byCity).get(30, TimeUnit.SECONDS) }.exceptionOrNull()
+
+        assertTrue(error?.cause is IllegalStateException, "ожидалась ошибка источника, а не $error")
+        assertTrue(closed.get())
+    }
+}
@@ -0,0 +1,182 @@
+package ru.vood.kotkin.rules._020_collection;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Реализация ядер на Vector API: основной цикл обрабатывает по SPECIES.length() элементов
+ * (4 double на AVX2, 8 на AVX-512), хвост короче вектора - скалярно.
+ * Лежит в отдельном наборе исходников src/vector/java: только он компилируется с модулем
+ * jdk.incubator.vector. ColumnKernels загружает класс рефлексией, когда модуль доступен.
+ */
+final class VectorKernels implements ColumnKernels.Kernels {
+
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    // Та же ширина вектора, что у INTS, но вдвое меньше элементов
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+    @Override
+    public double sum(double[] values, int length) {
+        DoubleVector accumulator = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(length); i < bound; i += DOUBLES.length()) {
+            accumulator = accumulator.add(DoubleVector.fromArray(DOUBLES, values, i));
+        }
+        double sum = accumulator.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public double min(double[] values, int length) {
+        DoubleVector accumulator = DoubleVector.broadcast(DOUBLES, Double.POSITIVE_INFINITY);
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(length); i < bound; i += DOUBLES.length()) {
+            accumulator = accumulator.min(DoubleVector.fromArray(DOUBLES, values, i));
+        }
+        double min = accumulator.reduceLanes(VectorOperators.MIN);
+        for (; i < length; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    @Override
+    public double max(double[] values, int length) {
+        DoubleVector accumulator = DoubleVector.broadcast(DOUBLES, Double.NEGATIVE_INFINITY);
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(length); i < bound; i += DOUBLES.length()) {
+            accumulator = accumulator.max(DoubleVector.fromArray(DOUBLES, values, i));
+        }
+        double max = accumulator.reduceLanes(VectorOperators.MAX);
+        for (; i < length; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    @Override
+    public long sum(int[] values, int length) {
+        // Сумма int может не поместиться в int: вектор int расширяется до двух векторов long
+        // (нижняя и верхняя половины) и копится по элементам, свертка в число - один раз после цикла
+        LongVector low = LongVector.zero(LONGS);
+        LongVector high = LongVector.zero(LONGS);
+        int i = 0;
+        for (int bound = INTS.loopBound(length); i < bound; i += INTS.length()) {
+            IntVector vector = IntVector.fromArray(INTS, values, i);
+            low = low.add(vector.convertShape(VectorOperators.I2L, LONGS, 0));
+            high = high.add(vector.convertShape(VectorOperators.I2L, LONGS, 1));
+        }
+        long sum = low.add(high).reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public int min(int[] values, int length) {
+        IntVector accumulator = IntVector.broadcast(INTS, Integer.MAX_VALUE);
+        int i = 0;
+        for (int bound = INTS.loopBound(length); i < bound; i += INTS.length()) {
+            accumulator = accumulator.min(IntVector.fromArray(INTS, values, i));
+        }
+        int min = accumulator.reduceLanes(VectorOperators.MIN);
+        for (; i < length; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    @Override
+    public int max(int[] values, int length) {
+        IntVector accumulator = IntVector.broadcast(INTS, Integer.MIN_VALUE);
+        int i = 0;
+        for (int bound = INTS.loopBound(length); i < bound; i += INTS.length()) {
+            accumulator = accumulator.max(IntVector.fromArray(INTS, values, i));
+        }
+        int max = accumulator.reduceLanes(VectorOperators.MAX);
+        for (; i < length; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    @Override
+    public int countGreaterThan(double[] values, int length, double threshold) {
+        int count = 0;
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(length); i < bound; i += DOUBLES.length()) {
+            count += DoubleVector.fromArray(DOUBLES, values, i).compare(VectorOperators.GT, threshold).trueCount();
+        }
+        for (; i < length; i++) {
+            if (values[i] > threshold) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int countLessThan(int[] values, int length, int threshold) {
+        int count = 0;
+        int i = 0;
+        for (int bound = INTS.loopBound(length); i < bound; i += INTS.length()) {
+            count += IntVector.fromArray(INTS, values, i).compare(VectorOperators.LT, threshold).trueCount();
+        }
+        for (; i < length; i++) {
+            if (values[i] < threshold) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int selectGreaterThan(double[] values, int length, double threshold, int[] selection) {
+        int count = 0;
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(length); i < bound; i += DOUBLES.length()) {
+            VectorMask<Double> mask = DoubleVector.fromArray(DOUBLES, values, i).compare(VectorOperators.GT, threshold);
+            count = appendSelected(mask.toLong(), i, selection, count);
+        }
+        for (; i < length; i++) {
+            if (values[i] > threshold) {
+                selection[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int selectLessThan(int[] values, int length, int threshold, int[] selection) {
+        int count = 0;
+        int i = 0;
+        for (int bound = INTS.loopBound(length); i < bound; i += INTS.length()) {
+            VectorMask<Integer> mask = IntVector.fromArray(INTS, values, i).compare(VectorOperators.LT, threshold);
+            count = appendSelected(mask.toLong(), i, selection, count);
+        }
+        for (; i < length; i++) {
+            if (values[i] < threshold) {
+                selection[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    // Биты маски -> номера элементов; пустая маска (частый случай при редком условии) пропускается сразу
+    private static int appendSelected(long bits, int offset, int[] selection, int count) {
+        while (bits != 0) {
+            selection[count++] = offset + Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+        }
+        return count;
+    }
+}